@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// One synthetic month of channel history: grouping into pages and history round trips.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HistoryBenchmark {
+
+    private static final TypeReference<List<SlackMessage>> MESSAGE_LIST = new TypeReference<>() {};
+    private static final YearMonth MONTH = YearMonth.of(2026, 2);
+
+    @Param({"100"})
+    int messagesPerDay;
+
+    @Param({"JSON", "BINARY"})
+    ArchiveConfig.HistoryFormat format;
+
+    private List<SlackMessage> messages;
+    private Set<String> parents;
+    private ObjectMapper objectMapper;
+    private byte[] json;
+    private Path stateDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticMessages generator = new SyntheticMessages(42, 200);
+        messages = new ArrayList<>();
+        for (LocalDate date = MONTH.atDay(1); !date.isAfter(MONTH.atEndOfMonth());
+                date = date.plusDays(1)) {
+            messages.addAll(generator.day(date, messagesPerDay));
+        }
+        parents = new HashSet<>();
+        for (SlackMessage message : messages) {
+            parents.add(message.ts());
+        }
+        // Same settings as HistoryStore.
+        objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        json = objectMapper.writeValueAsBytes(messages);
+
+        stateDir = Files.createTempDirectory("history-benchmark");
+        HistoryStore store = new HistoryStore(stateDir, "fineract", format);
+        for (SlackMessage message : messages) {
+            store.put(message);
+        }
+        store.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(stateDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<LocalDate, List<SlackMessage>> groupByDate() {
+        return ChatArchiveApp.groupByDate(messages, parents::contains);
+    }
+
+    @Benchmark
+    public List<SlackMessage> jsonRoundTrip() throws IOException {
+        return objectMapper.readValue(objectMapper.writeValueAsBytes(messages), MESSAGE_LIST);
+    }
+
+    @Benchmark
+    public List<SlackMessage> jsonRead() throws IOException {
+        return objectMapper.readValue(json, MESSAGE_LIST);
+    }
+
+    // Reads the month back through a fresh store, as a full rebuild does.
+    @Benchmark
+    public List<SlackMessage> storeRead() {
+        return new HistoryStore(stateDir, "fineract", format).month(MONTH);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Formatting and page rendering for one synthetic day of a busy channel.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageFormattingBenchmark {
+
+    @Param({"200"})
+    int messagesPerDay;
+
+    private final LocalDate date = LocalDate.parse("2026-02-06");
+    private List<String> texts;
+    private List<String> formattedTexts;
+    private List<HtmlRenderer.Row> rows;
+    private Map<String, String> userNames;
+
+    @Setup
+    public void setUp() {
+        SyntheticMessages generator = new SyntheticMessages(42, 200);
+        userNames = generator.userNames();
+        texts = new ArrayList<>();
+        formattedTexts = new ArrayList<>();
+        rows = new ArrayList<>();
+        for (SlackMessage message : generator.day(date, messagesPerDay)) {
+            String formatted = SlackTextFormatter.format(message.text(), userNames::get);
+            texts.add(message.text());
+            formattedTexts.add(formatted);
+            boolean reply = message.threadTs() != null && !message.threadTs().equals(message.ts());
+            rows.add(new HtmlRenderer.Row(reply, "Fri 09:15", "Fri, 6 Feb 2026 09:15:00 GMT",
+                    userNames.getOrDefault(message.user(), "bot"), formatted,
+                    PermalinkResolver.synthesize("https://fineract.slack.com", "C0000001",
+                            message.ts(), message.threadTs()),
+                    List.of("👍 2")));
+        }
+    }
+
+    @Benchmark
+    public int formatSlackText() {
+        int length = 0;
+        for (String text : texts) {
+            length += SlackTextFormatter.format(text, userNames::get).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int messageMarkup() {
+        StringBuilder html = new StringBuilder();
+        for (String text : formattedTexts) {
+            MessageMarkup.appendHtml(text, html);
+        }
+        return html.length();
+    }
+
+    @Benchmark
+    public String renderDailyPage() {
+        return HtmlRenderer.renderDailyPage("fineract", date, rows);
+    }
+}
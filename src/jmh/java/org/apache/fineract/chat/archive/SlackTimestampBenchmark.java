@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Compares the packed-long SlackTimestamp against the BigDecimal implementation it replaced.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SlackTimestampBenchmark {
+
+    @Param({"1000"})
+    int size;
+
+    private List<String> timestamps;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        timestamps = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long seconds = 1_700_000_000L + random.nextInt(30_000_000);
+            timestamps.add(seconds + "." + String.format(Locale.ROOT, "%06d", random.nextInt(1_000_000)));
+        }
+    }
+
+    @Benchmark
+    public List<String> sortLegacy() {
+        List<String> sorted = new ArrayList<>(timestamps);
+        sorted.sort(SlackTimestampBenchmark::legacyCompare);
+        return sorted;
+    }
+
+    @Benchmark
+    public List<String> sortPacked() {
+        List<String> sorted = new ArrayList<>(timestamps);
+        sorted.sort(SlackTimestamp::compare);
+        return sorted;
+    }
+
+    @Benchmark
+    public long toInstantLegacy() {
+        long sum = 0;
+        for (String ts : timestamps) {
+            sum += legacyToInstant(ts).getNano();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long toInstantPacked() {
+        long sum = 0;
+        for (String ts : timestamps) {
+            sum += SlackTimestamp.toInstant(ts).getNano();
+        }
+        return sum;
+    }
+
+    private static int legacyCompare(String first, String second) {
+        return new BigDecimal(first).compareTo(new BigDecimal(second));
+    }
+
+    private static Instant legacyToInstant(String ts) {
+        BigDecimal value = new BigDecimal(ts);
+        long seconds = value.longValue();
+        BigDecimal fractional = value.subtract(BigDecimal.valueOf(seconds));
+        int nanos = fractional.movePointRight(9).setScale(0, RoundingMode.DOWN).intValue();
+        return Instant.ofEpochSecond(seconds, nanos);
+    }
+}
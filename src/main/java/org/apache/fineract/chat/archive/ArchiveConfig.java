@@ -19,8 +19,12 @@
 package org.apache.fineract.chat.archive;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 final class ArchiveConfig {
     static final String SLACK_TOKEN_ENV = "SLACK_TOKEN";
@@ -31,10 +35,33 @@ final class ArchiveConfig {
     static final String LOOKBACK_DAYS_ENV = "LOOKBACK_DAYS";
     static final String SITE_BASE_URL_ENV = "SITE_BASE_URL";
     static final String LOG_LEVEL_ENV = "LOG_LEVEL";
+    static final String FULL_REBUILD_ENV = "FULL_REBUILD";
+    static final String PERMALINK_MODE_ENV = "PERMALINK_MODE";
+    static final String PERMALINK_VERIFY_SAMPLES_ENV = "PERMALINK_VERIFY_SAMPLES";
+    static final String USER_LIST_REFRESH_HOURS_ENV = "USER_LIST_REFRESH_HOURS";
+    static final String FETCH_CONCURRENCY_ENV = "FETCH_CONCURRENCY";
+    static final String HISTORY_FORMAT_ENV = "HISTORY_FORMAT";
+    static final String SLACK_API_BASE_URL_ENV = "SLACK_API_BASE_URL";
+    static final String SLACK_PACING_ENV = "SLACK_PACING";
+    static final String RENDER_PARALLELISM_ENV = "RENDER_PARALLELISM";
+    static final String OUTPUT_MANIFEST_ENV = "OUTPUT_MANIFEST";
+    static final String PRECOMPRESS_ENV = "PRECOMPRESS";
+    static final String SERVE_PORT_ENV = "SERVE_PORT";
+    static final String FEED_SIZE_ENV = "FEED_SIZE";
+    static final String SERVE_UPDATE_MINUTES_ENV = "SERVE_UPDATE_MINUTES";
+    static final String THREAD_POLL_DAYS_ENV = "THREAD_POLL_DAYS";
 
     static final String DEFAULT_OUTPUT_DIR = "docs";
     static final String DEFAULT_STATE_DIR = "state";
     static final int DEFAULT_LOOKBACK_DAYS = 1;
+    static final int DEFAULT_PERMALINK_VERIFY_SAMPLES = 10;
+    static final int DEFAULT_USER_LIST_REFRESH_HOURS = 24;
+    static final int DEFAULT_FETCH_CONCURRENCY = 4;
+    static final String DEFAULT_SLACK_API_BASE_URL = "https://slack.com/api";
+    static final int DEFAULT_SERVE_PORT = 8080;
+    static final int DEFAULT_FEED_SIZE = 50;
+    static final int DEFAULT_SERVE_UPDATE_MINUTES = 15;
+    static final int DEFAULT_THREAD_POLL_DAYS = 14;
 
     private final String slackToken;
     private final List<String> channelAllowlist;
@@ -42,20 +69,63 @@ final class ArchiveConfig {
     private final Path stateDir;
     private final int lookbackDays;
     private final String siteBaseUrl;
+    private final boolean fullRebuild;
+    private final PermalinkMode permalinkMode;
+    private final int permalinkVerifySamples;
+    private final Duration userListRefreshInterval;
+    private final int fetchConcurrency;
+    private final HistoryFormat historyFormat;
+    private final String slackApiBaseUrl;
+    private final boolean slackPacing;
+    private final int renderParallelism;
+    private final ManifestMode manifestMode;
+    private final Precompression precompression;
+    private final int feedSize;
+    private final int servePort;
+    private final Duration serveUpdateInterval;
+    private final Duration threadPollAge;
 
-    private ArchiveConfig(String slackToken, List<String> channelAllowlist, Path outputDir, Path stateDir,
-            int lookbackDays, String siteBaseUrl) {
-        this.slackToken = slackToken;
-        this.channelAllowlist = List.copyOf(channelAllowlist);
-        this.outputDir = outputDir;
-        this.stateDir = stateDir;
-        this.lookbackDays = lookbackDays;
-        this.siteBaseUrl = siteBaseUrl;
+    private ArchiveConfig(Map<String, String> env) {
+        String slackTokenValue = env.get(SLACK_TOKEN_ENV);
+        String outputDirValue = env.get(OUTPUT_DIR_ENV);
+        String stateDirValue = env.get(STATE_DIR_ENV);
+        this.slackToken = slackTokenValue != null ? slackTokenValue.trim() : "";
+        this.channelAllowlist = parseAllowlist(env.get(CHANNELS_ALLOWLIST_ENV));
+        this.outputDir = Path.of(outputDirValue != null ? outputDirValue.trim() : DEFAULT_OUTPUT_DIR);
+        this.stateDir = Path.of(stateDirValue != null ? stateDirValue.trim() : DEFAULT_STATE_DIR);
+        this.lookbackDays = parseLookbackDays(env.get(LOOKBACK_DAYS_ENV));
+        this.siteBaseUrl = normalizeBaseUrl(env.get(SITE_BASE_URL_ENV));
+        this.fullRebuild = parseBoolean(env.get(FULL_REBUILD_ENV));
+        this.permalinkMode = PermalinkMode.parse(env.get(PERMALINK_MODE_ENV));
+        this.permalinkVerifySamples = parsePositiveInt(env.get(PERMALINK_VERIFY_SAMPLES_ENV),
+                DEFAULT_PERMALINK_VERIFY_SAMPLES);
+        this.userListRefreshInterval = Duration.ofHours(parsePositiveInt(
+                env.get(USER_LIST_REFRESH_HOURS_ENV), DEFAULT_USER_LIST_REFRESH_HOURS));
+        this.fetchConcurrency = parsePositiveInt(env.get(FETCH_CONCURRENCY_ENV),
+                DEFAULT_FETCH_CONCURRENCY);
+        this.historyFormat = HistoryFormat.parse(env.get(HISTORY_FORMAT_ENV));
+        String slackApiBaseUrlValue = normalizeBaseUrl(env.get(SLACK_API_BASE_URL_ENV));
+        this.slackApiBaseUrl = slackApiBaseUrlValue.isEmpty()
+                ? DEFAULT_SLACK_API_BASE_URL : slackApiBaseUrlValue;
+        this.slackPacing = parseBoolean(env.get(SLACK_PACING_ENV), true);
+        this.renderParallelism = parsePositiveInt(env.get(RENDER_PARALLELISM_ENV),
+                Runtime.getRuntime().availableProcessors());
+        this.manifestMode = ManifestMode.parse(env.get(OUTPUT_MANIFEST_ENV));
+        this.precompression = Precompression.parse(env.get(PRECOMPRESS_ENV));
+        this.feedSize = parsePositiveInt(env.get(FEED_SIZE_ENV), DEFAULT_FEED_SIZE);
+        this.servePort = parsePositiveInt(env.get(SERVE_PORT_ENV), DEFAULT_SERVE_PORT);
+        this.serveUpdateInterval = Duration.ofMinutes(parsePositiveInt(
+                env.get(SERVE_UPDATE_MINUTES_ENV), DEFAULT_SERVE_UPDATE_MINUTES));
+        this.threadPollAge = Duration.ofDays(parsePositiveInt(env.get(THREAD_POLL_DAYS_ENV),
+                DEFAULT_THREAD_POLL_DAYS));
     }
 
     static ArchiveConfig fromEnv() {
-        return fromValues(System.getenv(SLACK_TOKEN_ENV), System.getenv(CHANNELS_ALLOWLIST_ENV), System.getenv(OUTPUT_DIR_ENV),
-                System.getenv(STATE_DIR_ENV), System.getenv(LOOKBACK_DAYS_ENV), System.getenv(SITE_BASE_URL_ENV));
+        return fromEnv(System.getenv());
+    }
+
+    static ArchiveConfig fromEnv(Map<String, String> env) {
+        return new ArchiveConfig(env);
     }
 
     static ArchiveConfig fromValues(String slackTokenValue, String allowlist, String outputDirValue,
@@ -65,13 +135,14 @@ final class ArchiveConfig {
 
     static ArchiveConfig fromValues(String slackTokenValue, String allowlist, String outputDirValue,
             String stateDirValue, String lookbackDaysValue, String siteBaseUrlValue) {
-        String slackToken = slackTokenValue != null ? slackTokenValue.trim() : "";
-        List<String> channels = parseAllowlist(allowlist);
-        Path outputDir = Path.of(outputDirValue != null ? outputDirValue.trim() : DEFAULT_OUTPUT_DIR);
-        Path stateDir = Path.of(stateDirValue != null ? stateDirValue.trim() : DEFAULT_STATE_DIR);
-        int lookbackDays = parseLookbackDays(lookbackDaysValue);
-        String siteBaseUrl = normalizeSiteBaseUrl(siteBaseUrlValue);
-        return new ArchiveConfig(slackToken, channels, outputDir, stateDir, lookbackDays, siteBaseUrl);
+        Map<String, String> env = new HashMap<>();
+        putIfPresent(env, SLACK_TOKEN_ENV, slackTokenValue);
+        putIfPresent(env, CHANNELS_ALLOWLIST_ENV, allowlist);
+        putIfPresent(env, OUTPUT_DIR_ENV, outputDirValue);
+        putIfPresent(env, STATE_DIR_ENV, stateDirValue);
+        putIfPresent(env, LOOKBACK_DAYS_ENV, lookbackDaysValue);
+        putIfPresent(env, SITE_BASE_URL_ENV, siteBaseUrlValue);
+        return fromEnv(env);
     }
 
     String slackToken() {
@@ -98,6 +169,72 @@ final class ArchiveConfig {
         return siteBaseUrl;
     }
 
+    boolean fullRebuild() {
+        return fullRebuild;
+    }
+
+    PermalinkMode permalinkMode() {
+        return permalinkMode;
+    }
+
+    int permalinkVerifySamples() {
+        return permalinkVerifySamples;
+    }
+
+    Duration userListRefreshInterval() {
+        return userListRefreshInterval;
+    }
+
+    int fetchConcurrency() {
+        return fetchConcurrency;
+    }
+
+    HistoryFormat historyFormat() {
+        return historyFormat;
+    }
+
+    String slackApiBaseUrl() {
+        return slackApiBaseUrl;
+    }
+
+    boolean slackPacing() {
+        return slackPacing;
+    }
+
+    int renderParallelism() {
+        return renderParallelism;
+    }
+
+    ManifestMode manifestMode() {
+        return manifestMode;
+    }
+
+    Precompression precompression() {
+        return precompression;
+    }
+
+    int feedSize() {
+        return feedSize;
+    }
+
+    int servePort() {
+        return servePort;
+    }
+
+    Duration serveUpdateInterval() {
+        return serveUpdateInterval;
+    }
+
+    Duration threadPollAge() {
+        return threadPollAge;
+    }
+
+    private static void putIfPresent(Map<String, String> env, String key, String value) {
+        if (value != null) {
+            env.put(key, value);
+        }
+    }
+
     private static List<String> parseAllowlist(String value) {
         if (value == null || value.isBlank()) {
             return List.of();
@@ -119,18 +256,50 @@ final class ArchiveConfig {
     }
 
     private static int parseLookbackDays(String value) {
+        return parsePositiveInt(value, DEFAULT_LOOKBACK_DAYS);
+    }
+
+    private static int parsePositiveInt(String value, int defaultValue) {
         if (value == null || value.isBlank()) {
-            return DEFAULT_LOOKBACK_DAYS;
+            return defaultValue;
         }
         try {
             int parsed = Integer.parseInt(value.trim());
-            return parsed > 0 ? parsed : DEFAULT_LOOKBACK_DAYS;
+            return parsed > 0 ? parsed : defaultValue;
         } catch (NumberFormatException ex) {
-            return DEFAULT_LOOKBACK_DAYS;
+            return defaultValue;
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        return parseBoolean(value, false);
+    }
+
+    private static boolean parseBoolean(String value, boolean defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        if (normalized.equals("false") || normalized.equals("0") || normalized.equals("no")) {
+            return false;
+        }
+        return normalized.equals("true") || normalized.equals("1") || normalized.equals("yes")
+                || defaultValue;
+    }
+
+    // Case-insensitive constant name; unknown or missing values fall back to the default.
+    private static <E extends Enum<E>> E parseEnum(String value, Class<E> type, E defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return defaultValue;
         }
     }
 
-    private static String normalizeSiteBaseUrl(String value) {
+    private static String normalizeBaseUrl(String value) {
         if (value == null || value.isBlank()) {
             return "";
         }
@@ -140,5 +309,60 @@ final class ArchiveConfig {
         }
         return normalized;
     }
-}
 
+    enum PermalinkMode {
+        // one chat.getPermalink call per message (cached in the state dir)
+        API,
+        // build permalinks from the auth.test workspace URL, no API calls
+        SYNTHESIZE,
+        // synthesize, but compare a sample against chat.getPermalink
+        VERIFY;
+
+        static PermalinkMode parse(String value) {
+            return parseEnum(value, PermalinkMode.class, API);
+        }
+    }
+
+    enum HistoryFormat {
+        // pretty-printed JSON arrays, easy to inspect and diff
+        JSON(".json"),
+        // compact HistoryCodec encoding, read through a memory mapping
+        BINARY(".bin");
+
+        private final String suffix;
+
+        HistoryFormat(String suffix) {
+            this.suffix = suffix;
+        }
+
+        String suffix() {
+            return suffix;
+        }
+
+        static HistoryFormat parse(String value) {
+            return parseEnum(value, HistoryFormat.class, JSON);
+        }
+    }
+
+    enum ManifestMode {
+        // skip reading output files whose size matches the manifest
+        TRUST,
+        // read every existing output file and report manifest entries that were wrong
+        VERIFY;
+
+        static ManifestMode parse(String value) {
+            return parseEnum(value, ManifestMode.class, TRUST);
+        }
+    }
+
+    enum Precompression {
+        // only the files themselves
+        NONE,
+        // an <file>.gz copy next to every generated file
+        GZIP;
+
+        static Precompression parse(String value) {
+            return parseEnum(value, Precompression.class, NONE);
+        }
+    }
+}
@@ -18,19 +18,26 @@
  */
 package org.apache.fineract.chat.archive;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.core.type.TypeReference;
 import java.io.IOException;
-import java.nio.file.Path;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,44 +46,62 @@ public final class ChatArchiveApp {
     private static final Logger LOG = Logger.getLogger(ChatArchiveApp.class.getName());
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter
             .ofPattern("EEE HH:mm");
+    private static final String SITEMAPS_DIR_NAME = "sitemaps";
+    private static final String FEEDS_DIR_NAME = "feeds";
+    private static final int FEED_TITLE_LENGTH = 80;
 
     public static void main(String[] args) {
-        ArchiveConfig config = ArchiveConfig.fromEnv();
+        boolean serve = args.length > 0 && args[0].equals("serve");
+        int status = serve ? serve(ArchiveConfig.fromEnv()) : run(ArchiveConfig.fromEnv());
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
 
+    // One archive update; returns the process exit status.
+    static int run(ArchiveConfig config) {
         String slackToken = config.slackToken();
         if (slackToken.isEmpty()) {
             LOG.severe("Missing/invalid required env var: " + ArchiveConfig.SLACK_TOKEN_ENV);
-            System.exit(1);
+            return 1;
         }
 
         if (config.channelAllowlist().isEmpty()) {
             LOG.severe("Missing/invalid required env var: " + ArchiveConfig.CHANNELS_ALLOWLIST_ENV);
-            System.exit(1);
+            return 1;
         }
 
         LOG.info("Using state dir [" + config.stateDir() + "]");
         LOG.info("Using output dir [" + config.outputDir() + "]");
+        if (!config.slackApiBaseUrl().equals(ArchiveConfig.DEFAULT_SLACK_API_BASE_URL)) {
+            LOG.info("Using Slack API at [" + config.slackApiBaseUrl() + "]");
+        }
+        if (!config.slackPacing()) {
+            LOG.warning("Client-side pacing to Slack's rate limits is off.");
+        }
         LOG.info("Loaded config for " + config.channelAllowlist().size() + " channel(s).");
         LOG.info("Will fetch messages for the past " + config.lookbackDays() + " day(s).");
+        if (config.fullRebuild()) {
+            LOG.info("Full rebuild requested. Rendering every archived day.");
+        }
 
-        SlackApiClient slackApiClient = new SlackApiClient();
+        SlackApiClient slackApiClient = new SlackApiClient(config.slackApiBaseUrl(),
+                new RateLimiter(config.slackPacing()));
         SlackApiClient.AuthTestResponse authResponse;
         try {
             authResponse = slackApiClient.authTest(config.slackToken());
         } catch (IOException ex) {
             LOG.log(Level.SEVERE, "Slack auth.test call failed.", ex);
-            System.exit(1);
-            return; // or authResponse might not be initialized
+            return 1;
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             LOG.log(Level.SEVERE, "Slack auth.test call interrupted.", ex);
-            System.exit(1);
-            return; // or authResponse might not be initialized
+            return 1;
         }
 
         if (!authResponse.ok()) {
             LOG.severe("Slack auth.test not ok: " + authResponse.error());
-            System.exit(1);
+            return 1;
         }
 
         LOG.info("Slack auth.test succeeded for team " + authResponse.team() + ".");
@@ -86,18 +111,16 @@ public final class ChatArchiveApp {
             channelsResponse = slackApiClient.listPublicChannels(config.slackToken());
         } catch (IOException ex) {
             LOG.log(Level.SEVERE, "Slack conversations.list call failed.", ex);
-            System.exit(1);
-            return; // or channelsResponse might not be initialized
+            return 1;
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             LOG.log(Level.SEVERE, "Slack conversations.list call interrupted.", ex);
-            System.exit(1);
-            return; // or channelsResponse might not be initialized
+            return 1;
         }
 
         if (!channelsResponse.ok()) {
             LOG.severe("Slack conversations.list not ok: " + channelsResponse.error());
-            System.exit(1);
+            return 1;
         }
 
         List<SlackApiClient.SlackChannel> channels = channelsResponse.channels();
@@ -111,7 +134,7 @@ public final class ChatArchiveApp {
 
         if (resolution.resolved().isEmpty()) {
             LOG.severe("No allowlisted channels resolved. Skipping archive update.");
-            System.exit(1);
+            return 1;
         }
 
         LOG.info("Resolved " + resolution.resolved().size() + " channel(s).");
@@ -123,74 +146,440 @@ public final class ChatArchiveApp {
 
         CursorStore cursorStore = new CursorStore(config.stateDir());
         CursorStore.CursorState cursorState = loadCursorState(cursorStore);
-        Map<String, String> cursors = new HashMap<>(cursorState.channels());
+        Map<String, String> cursors = new ConcurrentHashMap<>(cursorState.channels());
 
         Path dailyRoot = config.outputDir().resolve("daily");
-        Map<String, String> permalinkCache = new HashMap<>();
-        Map<String, String> userCache = new HashMap<>();
-        Map<String, List<SlackMessage>> threadRepliesCache = new HashMap<>();
+        PermalinkStore permalinkStore = new PermalinkStore(config.stateDir());
+        Map<String, String> storedPermalinks = loadPermalinks(permalinkStore);
+        Map<String, String> permalinkCache = new ConcurrentHashMap<>(storedPermalinks);
+        PermalinkResolver permalinkResolver = new PermalinkResolver(config.permalinkMode(),
+                authResponse.url(), config.permalinkVerifySamples(), slackApiClient,
+                config.slackToken(), permalinkCache);
+        UserStore userStore = new UserStore(config.stateDir());
+        UserDirectory userDirectory = new UserDirectory(loadUserState(userStore), slackApiClient,
+                config.slackToken());
+        userDirectory.refreshIfStale(Instant.now(), config.userListRefreshInterval());
+        OutputTransaction transaction = new OutputTransaction(config.stateDir());
+        if (!recoverOutput(transaction)) {
+            return 1;
+        }
+        Precompressor precompressor = new Precompressor(config.precompression(),
+                config.renderParallelism(), transaction);
+        OutputManifest manifest = new OutputManifest(config.stateDir(), config.outputDir(),
+                config.manifestMode(), transaction, precompressor);
+        loadManifest(manifest);
+        DateIndex dateIndex = new DateIndex(config.stateDir());
+        if (!loadDateIndex(dateIndex, dailyRoot)) {
+            return 1;
+        }
+        if (config.fullRebuild()) {
+            dateIndex.touchAll();
+        }
+        SearchIndex searchIndex = new SearchIndex(config.outputDir());
+        FeedStore feeds = new FeedStore(config.stateDir(), config.feedSize());
+        loadFeeds(feeds);
+        Queue<ChannelState> channelStates = new ConcurrentLinkedQueue<>();
         boolean anyRendered = false;
 
-        for (SlackApiClient.SlackChannel channel : resolution.resolved()) {
-            String channelId = channel.id();
-            String oldest = determineOldestTs(windowStart, windowOldest,
-                    cursors.get(channelId));
-            SlackApiClient.ConversationsHistoryResponse historyResponse;
+        LOG.info("Fetching up to " + config.fetchConcurrency() + " channel(s) concurrently.");
+        LOG.info("Rendering pages on " + config.renderParallelism() + " thread(s).");
+        try (precompressor; ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+                RenderStage renderStage = new RenderStage(config.renderParallelism(), manifest,
+                        dateIndex, searchIndex)) {
+            ArchiveRun run = new ArchiveRun(config, slackApiClient, permalinkResolver,
+                    userDirectory, executor, renderStage, dailyRoot, feeds, channelStates);
+            Semaphore channelPermits = new Semaphore(config.fetchConcurrency());
+            Map<SlackApiClient.SlackChannel, Future<Boolean>> results = new LinkedHashMap<>();
+            for (SlackApiClient.SlackChannel channel : resolution.resolved()) {
+                String oldest = determineOldestTs(windowStart, windowOldest,
+                        cursors.get(channel.id()));
+                results.put(channel, executor.submit(() -> {
+                    channelPermits.acquire();
+                    try {
+                        return archiveChannel(run, channel, oldest, cursors);
+                    } finally {
+                        channelPermits.release();
+                    }
+                }));
+            }
+            for (Map.Entry<SlackApiClient.SlackChannel, Future<Boolean>> result : results.entrySet()) {
+                try {
+                    anyRendered = result.getValue().get() || anyRendered;
+                } catch (ExecutionException ex) {
+                    LOG.log(Level.SEVERE, "Failed to archive channel "
+                            + result.getKey().name() + ".", ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    LOG.log(Level.SEVERE, "Interrupted while archiving channel "
+                            + result.getKey().name() + ".", ex);
+                }
+            }
+
+            permalinkResolver.logVerificationSummary();
+            for (String line : slackApiClient.rateLimiter().summary()) {
+                LOG.info("Slack API " + line + ".");
+            }
+            saveUserState(userStore, userDirectory);
+            savePermalinks(permalinkStore, storedPermalinks, permalinkCache);
+
+            // Daily pages are committed first; until then the journals keep the days whose
+            // history was already saved, and thread replies are only saved with them. The date
+            // lists are staged with the indexes and sitemaps
+            // rendered from them, so a run that dies in between leaves its days touched for the
+            // next one. The cursor goes last: until it moves, the next run fetches and renders
+            // the same days again.
+            if (!commitOutput(transaction, precompressor)) {
+                return 1;
+            }
+            saveChannelStates(channelStates);
+            if (renderIndexes(dailyRoot, config.siteBaseUrl(), manifest, dateIndex)) {
+                anyRendered = true;
+            }
+            if (writeSearchIndex(searchIndex, manifest, dateIndex)) {
+                anyRendered = true;
+            }
+            if (writeFeeds(config.outputDir(), config.siteBaseUrl(), feeds, manifest)) {
+                anyRendered = true;
+            }
+            if (!stageDateIndex(dateIndex, transaction)
+                    || !commitOutput(transaction, precompressor)) {
+                return 1;
+            }
+            LOG.info("Output: " + manifest.summary() + ".");
+            saveManifest(manifest);
+            saveFeeds(feeds);
+
+            if (saveCursorState(cursorStore, cursors)) {
+                anyRendered = true;
+            }
+
+            if (!anyRendered) {
+                LOG.info("No changes detected. Archive output unchanged.");
+            }
+            return 0;
+        }
+    }
+
+    // Answers search queries over the stored history until interrupted. With a Slack token the
+    // archive is updated every SERVE_UPDATE_MINUTES and the index picks up the changed months.
+    static int serve(ArchiveConfig config) {
+        try (SearchServer server = new SearchServer(config)) {
+            server.refresh();
+            server.start(config.servePort());
+            LOG.info("Indexed " + server.indexedMessages() + " message(s). Serving search on port "
+                    + server.port() + ".");
+            while (true) {
+                Thread.sleep(config.serveUpdateInterval().toMillis());
+                if (!config.slackToken().isEmpty() && run(config) != 0) {
+                    LOG.warning("Archive update failed. Serving the history stored so far.");
+                }
+                refreshIndex(server);
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Search server failed.", ex);
+            return 1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private static void refreshIndex(SearchServer server) {
+        try {
+            int updated = server.refresh();
+            if (updated > 0) {
+                LOG.info("Re-indexed " + updated + " month(s) of history and thread replies.");
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to refresh the search index. Serving the old one.", ex);
+        }
+    }
+
+    private static boolean archiveChannel(ArchiveRun run, SlackApiClient.SlackChannel channel,
+            String oldest, Map<String, String> cursors) {
+        String channelId = channel.id();
+        HistoryStore history = new HistoryStore(run.config().stateDir(), channel.name(),
+                run.config().historyFormat());
+        migrateLegacyHistory(history, channel.name(), run.config().outputDir());
+        ThreadRepliesStore threadReplies = new ThreadRepliesStore(run.config().stateDir(),
+                channel.name());
+        if (!threadReplies.tracksActiveThreads()) {
+            trackStoredThreads(history, threadReplies);
+        }
+
+        // Pages are merged as they arrive; only the newest messages are kept for the feed. What
+        // made the pages dirty is journaled before the history is flushed.
+        RenderJournal journal = new RenderJournal(run.config().stateDir(), channel.name());
+        DirtyDateTracker tracker = new DirtyDateTracker(history, oldest);
+        resumeJournal(journal, tracker, channel.name());
+        List<SlackMessage> newest = new ArrayList<>();
+        Set<String> fetchedParents = new HashSet<>();
+        String[] latestTs = {cursors.get(channelId)};
+        int feedSize = run.config().feedSize();
+        Consumer<List<SlackMessage>> merge = page -> {
+            if (tracker.add(page) && saveJournal(journal, tracker.dirtyDates(),
+                    tracker.changedParents(), channel.name())) {
+                flushHistory(history, channel.name());
+                history.release();
+            }
+            for (SlackMessage message : page) {
+                if (threadReplies.track(message)) {
+                    fetchedParents.add(message.ts());
+                }
+            }
+            latestTs[0] = updateCursor(latestTs[0], page);
+            newest.addAll(page);
+            newest.removeIf(message -> message.ts() == null);
+            newest.sort(Comparator.comparingLong((SlackMessage message) ->
+                    SlackTimestamp.pack(message.ts())).reversed());
+            if (newest.size() > feedSize) {
+                newest.subList(feedSize, newest.size()).clear();
+            }
+        };
+        SlackApiClient.PageStatus historyResponse;
+        try {
+            historyResponse = run.slackApiClient().streamChannelMessages(run.config().slackToken(),
+                    channelId, oldest, merge);
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Slack conversations.history call failed for channel "
+                    + channel.name() + ".", ex);
+            historyResponse = null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.SEVERE, "Slack conversations.history call interrupted for channel "
+                    + channel.name() + ".", ex);
+            historyResponse = null;
+        }
+        if (historyResponse != null && !historyResponse.ok()) {
+            LOG.warning("Slack conversations.history not ok for channel " + channel.name()
+                    + ": " + historyResponse.error());
+        }
+
+        // Pages merged before a failure are kept and rendered, but the cursor stays put, so the
+        // next run fetches them again.
+        boolean complete = historyResponse != null && historyResponse.ok();
+        Set<LocalDate> dirtyDates = new TreeSet<>(tracker.finish(complete));
+        dirtyDates.addAll(pollActiveThreads(run, channel, history, threadReplies,
+                fetchedParents));
+        if (saveJournal(journal, dirtyDates, Set.of(), channel.name())) {
+            flushHistory(history, channel.name());
+        }
+        // Saved once the pages rendered below are committed.
+        run.channelStates().add(new ChannelState(channel.name(), journal, threadReplies));
+        // Compared against the feed state rather than history, so messages a failed run already
+        // stored still reach the feed when they are fetched again.
+        run.feeds().add(channel.name(), feedEntries(newest, channel.name(), history,
+                run.userDirectory(), feedSize));
+        if (complete && latestTs[0] != null) {
+            cursors.put(channelId, latestTs[0]);
+        }
+        if (!complete || !run.config().fullRebuild()) {
+            LOG.info("Rendering " + dirtyDates.size() + " day(s) for channel "
+                    + channel.name() + ".");
+            List<SlackMessage> dirtyMessages = new ArrayList<>();
+            for (LocalDate date : dirtyDates) {
+                dirtyMessages.addAll(history.messagesOn(date));
+            }
+            return renderDays(run, channel, threadReplies, dirtyDates,
+                    groupByDate(dirtyMessages, history::contains));
+        }
+
+        // Scanned a day at a time and rendered in batches that keep the render stage busy, so
+        // only a batch of days is ever decoded. Only thread replies that were refetched stay in
+        // memory until the commit.
+        boolean[] anyRendered = {false};
+        int batchSize = run.config().renderParallelism();
+        for (YearMonth month : history.months()) {
+            Map<LocalDate, List<SlackMessage>> batch = new TreeMap<>();
+            history.forEachDay(month, (date, messages, isStored) -> {
+                batch.putAll(groupByDate(messages, isStored));
+                if (batch.size() >= batchSize) {
+                    anyRendered[0] = renderDays(run, channel, threadReplies, batch.keySet(), batch)
+                            || anyRendered[0];
+                    batch.clear();
+                }
+            });
+            anyRendered[0] = renderDays(run, channel, threadReplies, batch.keySet(), batch)
+                    || anyRendered[0];
+            history.release();
+            threadReplies.release();
+        }
+        return anyRendered[0];
+    }
+
+    // History stored before active threads were tracked; read once, a month at a time.
+    private static void trackStoredThreads(HistoryStore history,
+            ThreadRepliesStore threadReplies) {
+        for (YearMonth month : history.months()) {
+            for (SlackMessage message : history.month(month)) {
+                threadReplies.track(message);
+            }
+            history.release();
+        }
+    }
+
+    // conversations.history only reports thread activity on the parents it returns, and replies
+    // that are not sent to the channel never show up in it. Threads with a recent reply are
+    // polled instead, and the days of parents whose latest_reply moved on are rendered again.
+    private static Set<LocalDate> pollActiveThreads(ArchiveRun run,
+            SlackApiClient.SlackChannel channel, HistoryStore history,
+            ThreadRepliesStore threadReplies, Set<String> fetchedParents) {
+        Set<LocalDate> dates = new TreeSet<>();
+        Instant since = Instant.now().minus(run.config().threadPollAge());
+        for (String threadTs : threadReplies.activeThreads(since)) {
+            if (fetchedParents.contains(threadTs)) {
+                continue;
+            }
+            if (!history.contains(threadTs)) {
+                threadReplies.untrack(threadTs);
+                continue;
+            }
+            SlackApiClient.ConversationsRepliesResponse response;
             try {
-                historyResponse = slackApiClient.listChannelMessages(config.slackToken(), channelId,
-                        oldest);
+                response = run.slackApiClient().listThreadReplies(run.config().slackToken(),
+                        channel.id(), threadTs);
             } catch (IOException ex) {
-                LOG.log(Level.SEVERE, "Slack conversations.history call failed for channel "
+                LOG.log(Level.WARNING, "Slack conversations.replies call failed for channel "
                         + channel.name() + ".", ex);
                 continue;
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
-                LOG.log(Level.SEVERE, "Slack conversations.history call interrupted for channel "
+                LOG.log(Level.WARNING, "Slack conversations.replies call interrupted for channel "
                         + channel.name() + ".", ex);
+                break;
+            }
+            if (!response.ok()) {
+                LOG.warning("Slack conversations.replies not ok for channel " + channel.name()
+                        + ": " + response.error());
+                if ("thread_not_found".equals(response.error())) {
+                    threadReplies.untrack(threadTs);
+                }
                 continue;
             }
-
-            if (!historyResponse.ok()) {
-                LOG.warning("Slack conversations.history not ok for channel " + channel.name()
-                        + ": " + historyResponse.error());
+            SlackMessage polled = null;
+            for (SlackMessage message : response.messages()) {
+                if (threadTs.equals(message.ts())) {
+                    polled = message;
+                }
+            }
+            ThreadRepliesStore.ThreadReplies stored = threadReplies.get(threadTs);
+            if (polled == null || stored != null && stored.isCurrent(polled)) {
                 continue;
             }
+            // Stored with the replies, so rendering the day needs no second call.
+            storeThreadReplies(threadReplies, threadTs, null, response.messages());
+            history.put(polled);
+            threadReplies.track(polled);
+            dates.add(DirtyDateTracker.pageDate(polled, history));
+        }
+        return dates;
+    }
 
-            List<SlackMessage> fetchedMessages = new ArrayList<>(historyResponse.messages());
-            List<SlackMessage> fullHistory = syncWithHistory(channel.name(), fetchedMessages, config.outputDir());
-            String latestTs = updateCursor(cursors.get(channelId), fetchedMessages);
-            if (latestTs != null) {
-                cursors.put(channelId, latestTs);
-            }
-            Map<LocalDate, List<SlackMessage>> grouped = groupByDate(fullHistory);
-            for (Map.Entry<LocalDate, List<SlackMessage>> entry : grouped.entrySet()) {
-                LocalDate date = entry.getKey();
-                List<HtmlRenderer.Row> rows = toRows(entry.getValue(), channelId,
-                        config.slackToken(), slackApiClient, permalinkCache, userCache,
-                        threadRepliesCache);
-                String page = HtmlRenderer.renderDailyPage(channel.name(), date, rows);
-                String datePath = String.format("%d/%02d/%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
-                Path pagePath = dailyRoot.resolve(channel.name()).resolve(datePath).resolve("index.html");
-                try {
-                    boolean changed = FileWriterUtil.writeIfChanged(pagePath, page);
-                    anyRendered = anyRendered || changed;
-                } catch (IOException ex) {
-                    LOG.log(Level.SEVERE, "Failed to write archive for channel "
-                            + channel.name() + " on " + date + ".", ex);
+    // Only the newest messages can make it into the feed, so only those are formatted.
+    private static List<SiteMetadataRenderer.FeedEntry> feedEntries(List<SlackMessage> messages,
+            String channelName, HistoryStore history, UserDirectory userDirectory, int feedSize) {
+        List<SlackMessage> newest = new ArrayList<>();
+        for (SlackMessage message : messages) {
+            if (message.ts() != null) {
+                newest.add(message);
+            }
+        }
+        newest.sort(Comparator.comparingLong((SlackMessage message) ->
+                SlackTimestamp.pack(message.ts())).reversed());
+        List<SiteMetadataRenderer.FeedEntry> entries = new ArrayList<>();
+        for (SlackMessage message : newest.subList(0, Math.min(feedSize, newest.size()))) {
+            String user = resolveUser(message, userDirectory);
+            String text = MessageIndex.plainText(message.text(), userDirectory::resolve);
+            String title = user + ": " + (text.length() > FEED_TITLE_LENGTH
+                    ? text.substring(0, FEED_TITLE_LENGTH) + "…" : text);
+            entries.add(new SiteMetadataRenderer.FeedEntry(channelName, message.ts(), user, title,
+                    SlackTextFormatter.format(message.text(), userDirectory::resolve),
+                    SiteMetadataRenderer.dailyPagePath(channelName,
+                            DirtyDateTracker.pageDate(message, history))));
+        }
+        return entries;
+    }
+
+    // Resolves every day up front, then hands the pages to the shared render stage.
+    private static boolean renderDays(ArchiveRun run, SlackApiClient.SlackChannel channel,
+            ThreadRepliesStore threadReplies, Set<LocalDate> dates,
+            Map<LocalDate, List<SlackMessage>> grouped) {
+        List<RenderStage.DayPage> pages = new ArrayList<>(dates.size());
+        for (LocalDate date : dates) {
+            List<SlackMessage> dayMessages = grouped.get(date);
+            if (dayMessages == null) {
+                pages.add(RenderStage.DayPage.empty(channel.name(), date));
+            } else {
+                List<HtmlRenderer.Row> rows = new ArrayList<>();
+                List<String> text = new ArrayList<>();
+                for (SlackMessage message : pageMessages(dayMessages, channel.id(), run,
+                        threadReplies)) {
+                    rows.add(toRow(message, channel.id(), run.permalinkResolver(),
+                            run.userDirectory()));
+                    text.add(MessageIndex.plainText(message.text(),
+                            run.userDirectory()::resolve));
                 }
+                pages.add(new RenderStage.DayPage(channel.name(), date, rows, text));
             }
         }
+        try {
+            return run.renderStage().render(run.dailyRoot(), pages);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.SEVERE, "Interrupted while rendering channel " + channel.name() + ".",
+                    ex);
+            return false;
+        }
+    }
+
+    private static void saveThreadReplies(ThreadRepliesStore threadReplies, String channelName) {
+        try {
+            threadReplies.flush();
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to write thread replies for channel " + channelName
+                    + ".", ex);
+        }
+    }
 
-        if (saveCursorState(cursorStore, cursors)) {
-            anyRendered = true;
+    private static void resumeJournal(RenderJournal journal, DirtyDateTracker tracker,
+            String channelName) {
+        try {
+            RenderJournal.Pending pending = journal.load();
+            if (!pending.dates().isEmpty() || !pending.parents().isEmpty()) {
+                LOG.info("Rendering " + pending.dates().size() + " day(s) of channel "
+                        + channelName + " left by a run that did not commit.");
+            }
+            tracker.resume(pending);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to read pending days of channel " + channelName
+                    + ".", ex);
         }
+    }
 
-        if (renderIndexes(dailyRoot, config.siteBaseUrl())) {
-            anyRendered = true;
+    // History is only flushed once this succeeded; until then it is fetched again next run.
+    private static boolean saveJournal(RenderJournal journal, Set<LocalDate> dates,
+            Set<String> parents, String channelName) {
+        try {
+            journal.save(dates, parents);
+            return true;
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to write pending days of channel " + channelName
+                    + ". History not saved.", ex);
+            return false;
         }
+    }
 
-        if (!anyRendered) {
-            LOG.info("No changes detected. Archive output unchanged.");
+    // A thread's latest_reply is only recorded once the pages showing its replies are out;
+    // until then the next run fetches the replies again.
+    private static void saveChannelStates(Queue<ChannelState> channelStates) {
+        for (ChannelState state : channelStates) {
+            saveThreadReplies(state.threadReplies(), state.channelName());
+            try {
+                state.journal().clear();
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Failed to clear pending days of channel "
+                        + state.channelName() + ".", ex);
+            }
         }
     }
 
@@ -213,6 +602,134 @@ public final class ChatArchiveApp {
         }
     }
 
+    private static boolean recoverOutput(OutputTransaction transaction) {
+        try {
+            transaction.recover();
+            return true;
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Failed to recover output of an interrupted run.", ex);
+            return false;
+        }
+    }
+
+    private static boolean commitOutput(OutputTransaction transaction,
+            Precompressor precompressor) {
+        try {
+            precompressor.await();
+            int committed = transaction.commit();
+            if (committed > 0) {
+                LOG.info("Committed " + committed + " output file change(s).");
+            }
+            return true;
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Failed to commit output. Cursor not advanced.", ex);
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.SEVERE, "Interrupted while compressing output. Cursor not advanced.",
+                    ex);
+            return false;
+        }
+    }
+
+    private static boolean loadDateIndex(DateIndex dateIndex, Path dailyRoot) {
+        try {
+            dateIndex.load(dailyRoot);
+            return true;
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Failed to read archived dates.", ex);
+            return false;
+        }
+    }
+
+    private static boolean stageDateIndex(DateIndex dateIndex, OutputTransaction transaction) {
+        try {
+            dateIndex.stage(transaction);
+            return true;
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Failed to write archived dates. Cursor not advanced.", ex);
+            return false;
+        }
+    }
+
+    private static void loadManifest(OutputManifest manifest) {
+        try {
+            manifest.load();
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to read output manifest. Reading back output files.",
+                    ex);
+        }
+    }
+
+    private static void saveManifest(OutputManifest manifest) {
+        try {
+            manifest.save();
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to write output manifest.", ex);
+        }
+    }
+
+    private static void loadFeeds(FeedStore feeds) {
+        try {
+            feeds.load();
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to read feed state. Starting fresh.", ex);
+        }
+    }
+
+    private static void saveFeeds(FeedStore feeds) {
+        try {
+            feeds.save();
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to write feed state.", ex);
+        }
+    }
+
+    private static UserStore.UserState loadUserState(UserStore userStore) {
+        try {
+            return userStore.load().orElseGet(UserStore.UserState::empty);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to read user cache. Starting fresh.", ex);
+            return UserStore.UserState.empty();
+        }
+    }
+
+    private static void saveUserState(UserStore userStore, UserDirectory userDirectory) {
+        if (!userDirectory.changed()) {
+            return;
+        }
+        try {
+            userStore.save(userDirectory.state());
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to write user cache.", ex);
+        }
+    }
+
+    private static Map<String, String> loadPermalinks(PermalinkStore permalinkStore) {
+        try {
+            Map<String, String> permalinks = permalinkStore.load()
+                    .orElseGet(PermalinkStore.PermalinkState::empty).permalinks();
+            return permalinks == null ? Map.of() : permalinks;
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to read permalink cache. Starting fresh.", ex);
+            return Map.of();
+        }
+    }
+
+    private static void savePermalinks(PermalinkStore permalinkStore,
+            Map<String, String> stored, Map<String, String> permalinkCache) {
+        Map<String, String> resolved = Map.copyOf(permalinkCache);
+        if (resolved.equals(stored)) {
+            return;
+        }
+        try {
+            permalinkStore.save(new PermalinkStore.PermalinkState(resolved));
+            LOG.info("Saved " + (resolved.size() - stored.size()) + " new permalink(s).");
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to write permalink cache.", ex);
+        }
+    }
+
     private static String determineOldestTs(Instant windowStart, String windowOldest,
             String cursorTs) {
         if (cursorTs == null || cursorTs.isBlank()) {
@@ -227,33 +744,28 @@ public final class ChatArchiveApp {
 
     private static String updateCursor(String current, List<SlackMessage> messages) {
         String latest = current;
+        long latestPacked = current == null ? Long.MIN_VALUE : SlackTimestamp.pack(current);
         for (SlackMessage message : messages) {
             if (message.ts() == null) {
                 continue;
             }
-            if (latest == null || SlackTimestamp.compare(message.ts(), latest) > 0) {
+            long packed = SlackTimestamp.pack(message.ts());
+            if (packed > latestPacked) {
                 latest = message.ts();
+                latestPacked = packed;
             }
         }
         return latest;
     }
 
-    private static Map<LocalDate, List<SlackMessage>> groupByDate(List<SlackMessage> messages) {
+    static Map<LocalDate, List<SlackMessage>> groupByDate(List<SlackMessage> messages,
+            Predicate<String> isKnownParent) {
         Map<LocalDate, List<SlackMessage>> grouped = new TreeMap<>();
-        Set<String> parentSet = new HashSet<>();
-        for (SlackMessage message : messages) {
-            if (message.ts() == null) {
-                continue;
-            }
-            if (message.threadTs() == null || message.threadTs().equals(message.ts())) {
-                parentSet.add(message.ts());
-            }
-        }
         for (SlackMessage message : messages) {
             if (message.ts() == null) {
                 continue;
             }
-            if (isReply(message) && parentSet.contains(message.threadTs())) {
+            if (isReply(message) && isKnownParent.test(message.threadTs())) {
                 continue;
             }
             Instant instant = SlackTimestamp.toInstant(message.ts());
@@ -263,13 +775,27 @@ public final class ChatArchiveApp {
         return grouped;
     }
 
-    private static List<HtmlRenderer.Row> toRows(List<SlackMessage> messages, String channelId, String token, SlackApiClient slackApiClient, Map<String, String> permalinkCache, Map<String, String> userCache, Map<String, List<SlackMessage>> threadRepliesCache) {
-        List<HtmlRenderer.Row> rows = new ArrayList<>();
+    // The day's messages in page order, each parent followed by its thread replies.
+    private static List<SlackMessage> pageMessages(List<SlackMessage> messages, String channelId,
+            ArchiveRun run, ThreadRepliesStore threadReplies) {
+        List<SlackMessage> ordered = new ArrayList<>();
         Set<String> processedTs = new HashSet<>();
 
         Map<String, List<SlackMessage>> repliesByParent = collectReplies(messages);
         Set<String> parentSet = collectParentIds(messages);
 
+        // Fetch all threads of the day up front so their conversations.replies calls overlap.
+        Map<String, Future<List<SlackMessage>>> pendingReplies = new HashMap<>();
+        for (SlackMessage message : messages) {
+            if (message.ts() != null && !isReply(message)
+                    && message.ts().equals(message.threadTs())) {
+                pendingReplies.computeIfAbsent(message.ts(), threadTs -> run.executor().submit(
+                        () -> resolveThreadReplies(channelId, message, repliesByParent,
+                                threadReplies, run.slackApiClient(),
+                                run.config().slackToken())));
+            }
+        }
+
         for (SlackMessage message : messages) {
             if (message.ts() == null || processedTs.contains(message.ts())) {
                 continue;
@@ -278,37 +804,48 @@ public final class ChatArchiveApp {
                 if (parentSet.contains(message.threadTs())) {
                     continue;
                 }
-                rows.add(toRow(message, channelId, token, slackApiClient, permalinkCache, userCache));
+                ordered.add(message);
                 processedTs.add(message.ts());
                 continue;
             }
-            rows.add(toRow(message, channelId, token, slackApiClient, permalinkCache, userCache));
+            ordered.add(message);
             processedTs.add(message.ts());
-            if (message.threadTs() != null && message.threadTs().equals(message.ts())) {
-                List<SlackMessage> replies = resolveThreadReplies(channelId, message.threadTs(),
-                        repliesByParent, threadRepliesCache, slackApiClient, token);
+            Future<List<SlackMessage>> pending = pendingReplies.get(message.ts());
+            if (pending != null) {
+                List<SlackMessage> replies = awaitReplies(pending,
+                        repliesByParent.getOrDefault(message.ts(), List.of()));
                 for (SlackMessage reply : replies) {
                     if (reply.ts() != null && processedTs.add(reply.ts())) {
-                        rows.add(toRow(reply, channelId, token, slackApiClient, permalinkCache,
-                                userCache));
+                        ordered.add(reply);
                     }
                 }
             }
         }
-        return rows;
+        return ordered;
     }
 
-    private static HtmlRenderer.Row toRow(SlackMessage message, String channelId, String token,
-            SlackApiClient slackApiClient, Map<String, String> permalinkCache,
-            Map<String, String> userCache) {
+    private static List<SlackMessage> awaitReplies(Future<List<SlackMessage>> pending,
+            List<SlackMessage> fallback) {
+        try {
+            return pending.get();
+        } catch (ExecutionException ex) {
+            LOG.log(Level.WARNING, "Failed to resolve thread replies.", ex.getCause());
+            return fallback;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.WARNING, "Interrupted while resolving thread replies.", ex);
+            return fallback;
+        }
+    }
+
+    private static HtmlRenderer.Row toRow(SlackMessage message, String channelId,
+            PermalinkResolver permalinkResolver, UserDirectory userDirectory) {
         Instant instant = SlackTimestamp.toInstant(message.ts());
         String time = TIME_FORMATTER.format(instant.atZone(ZoneOffset.UTC));
         String rfcTimedate = DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
-        String user = resolveUser(message, token, slackApiClient, userCache);
-        String text = SlackTextFormatter.format(message.text(),
-                userId -> resolveUserDisplayName(userId, token, slackApiClient, userCache));
-        String permalink = resolvePermalink(channelId, message.ts(), token, slackApiClient,
-                permalinkCache);
+        String user = resolveUser(message, userDirectory);
+        String text = SlackTextFormatter.format(message.text(), userDirectory::resolve);
+        String permalink = permalinkResolver.resolve(channelId, message);
         List<String> reactions = formatReactions(message.reactions());
         return new HtmlRenderer.Row(isReply(message), time, rfcTimedate, user, text, permalink,
                 reactions);
@@ -344,21 +881,16 @@ public final class ChatArchiveApp {
         return repliesByParent;
     }
 
-    private static List<SlackMessage> resolveThreadReplies(String channelId, String threadTs,
-            Map<String, List<SlackMessage>> repliesByParent,
-            Map<String, List<SlackMessage>> repliesCache, SlackApiClient slackApiClient,
-            String token) {
-        if (repliesCache.containsKey(threadTs)) {
-            return repliesCache.get(threadTs);
-        }
-
-        List<SlackMessage> replies = new ArrayList<>(repliesByParent.getOrDefault(threadTs,
-                List.of()));
-        Set<String> replyIds = new HashSet<>();
-        for (SlackMessage message : replies) {
-            if (message.ts() != null) {
-                replyIds.add(message.ts());
-            }
+    // Only asks Slack when the parent's latest_reply moved past the stored replies.
+    private static List<SlackMessage> resolveThreadReplies(String channelId, SlackMessage parent,
+            Map<String, List<SlackMessage>> repliesByParent, ThreadRepliesStore threadReplies,
+            SlackApiClient slackApiClient, String token) {
+        String threadTs = parent.ts();
+        List<SlackMessage> known = repliesByParent.getOrDefault(threadTs, List.of());
+        ThreadRepliesStore.ThreadReplies stored = threadReplies.get(threadTs);
+        List<SlackMessage> storedReplies = stored == null ? List.of() : stored.replies();
+        if (stored != null && stored.isCurrent(parent)) {
+            return mergeReplies(threadTs, known, storedReplies);
         }
 
         SlackApiClient.ConversationsRepliesResponse response;
@@ -366,22 +898,56 @@ public final class ChatArchiveApp {
             response = slackApiClient.listThreadReplies(token, channelId, threadTs);
         } catch (IOException ex) {
             LOG.log(Level.WARNING, "Slack conversations.replies call failed.", ex);
-            repliesCache.put(threadTs, List.copyOf(replies));
-            return replies;
+            return mergeReplies(threadTs, known, storedReplies);
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             LOG.log(Level.WARNING, "Slack conversations.replies call interrupted.", ex);
-            repliesCache.put(threadTs, List.copyOf(replies));
-            return replies;
+            return mergeReplies(threadTs, known, storedReplies);
         }
 
         if (!response.ok()) {
             LOG.warning("Slack conversations.replies not ok: " + response.error());
-            repliesCache.put(threadTs, List.copyOf(replies));
-            return replies;
+            return mergeReplies(threadTs, known, storedReplies);
         }
 
-        for (SlackMessage message : response.messages()) {
+        return mergeReplies(threadTs, known, storeThreadReplies(threadReplies, threadTs,
+                parent.latestReply(), response.messages()));
+    }
+
+    // Keyed by the latest_reply conversations.replies reports for the parent, which may be newer
+    // than the stored parent's; failing that by the known one, or by the newest reply.
+    private static List<SlackMessage> storeThreadReplies(ThreadRepliesStore threadReplies,
+            String threadTs, String knownLatestReply, List<SlackMessage> messages) {
+        List<SlackMessage> fetched = new ArrayList<>();
+        String latestReply = knownLatestReply;
+        for (SlackMessage message : messages) {
+            if (message.ts() == null) {
+                continue;
+            }
+            if (!message.ts().equals(threadTs)) {
+                fetched.add(message);
+            } else if (message.latestReply() != null) {
+                latestReply = message.latestReply();
+            }
+        }
+        if (latestReply == null) {
+            latestReply = updateCursor(null, fetched);
+        }
+        threadReplies.put(threadTs, new ThreadRepliesStore.ThreadReplies(latestReply,
+                List.copyOf(fetched)));
+        return fetched;
+    }
+
+    private static List<SlackMessage> mergeReplies(String threadTs, List<SlackMessage> known,
+            List<SlackMessage> fetched) {
+        List<SlackMessage> replies = new ArrayList<>(known);
+        Set<String> replyIds = new HashSet<>();
+        for (SlackMessage message : replies) {
+            if (message.ts() != null) {
+                replyIds.add(message.ts());
+            }
+        }
+        for (SlackMessage message : fetched) {
             if (message.ts() == null || message.ts().equals(threadTs)) {
                 continue;
             }
@@ -389,16 +955,13 @@ public final class ChatArchiveApp {
                 replies.add(message);
             }
         }
-        replies.sort((left, right) -> SlackTimestamp.compare(left.ts(), right.ts()));
-        List<SlackMessage> merged = List.copyOf(replies);
-        repliesCache.put(threadTs, merged);
-        return merged;
+        replies.sort(Comparator.comparingLong(reply -> SlackTimestamp.pack(reply.ts())));
+        return List.copyOf(replies);
     }
 
-    private static String resolveUser(SlackMessage message, String token,
-            SlackApiClient slackApiClient, Map<String, String> userCache) {
+    private static String resolveUser(SlackMessage message, UserDirectory userDirectory) {
         if (message.user() != null && !message.user().isBlank()) {
-            return resolveUserDisplayName(message.user(), token, slackApiClient, userCache);
+            return userDirectory.resolve(message.user());
         }
         if (message.botId() != null && !message.botId().isBlank()) {
             return "bot:" + message.botId();
@@ -406,66 +969,6 @@ public final class ChatArchiveApp {
         return "unknown";
     }
 
-    private static String resolveUserDisplayName(String userId, String token,
-            SlackApiClient slackApiClient, Map<String, String> userCache) {
-        if (userCache.containsKey(userId)) {
-            return userCache.get(userId);
-        }
-        SlackApiClient.UserInfoResponse response;
-        try {
-            response = slackApiClient.getUserInfo(token, userId);
-        } catch (IOException ex) {
-            LOG.log(Level.WARNING, "Slack users.info call failed.", ex);
-            userCache.put(userId, userId);
-            return userId;
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            LOG.log(Level.WARNING, "Slack users.info call interrupted.", ex);
-            userCache.put(userId, userId);
-            return userId;
-        }
-
-        if (!response.ok() || response.user() == null) {
-            userCache.put(userId, userId);
-            return userId;
-        }
-
-        String displayName = UserDisplayNameResolver.resolve(response.user());
-        userCache.put(userId, displayName);
-        return displayName;
-    }
-
-    private static String resolvePermalink(String channelId, String messageTs, String token,
-            SlackApiClient slackApiClient, Map<String, String> permalinkCache) {
-        if (messageTs == null || messageTs.isBlank()) {
-            return null;
-        }
-        String cacheKey = channelId + ":" + messageTs;
-        if (permalinkCache.containsKey(cacheKey)) {
-            return permalinkCache.get(cacheKey);
-        }
-        SlackApiClient.PermalinkResponse response;
-        try {
-            response = slackApiClient.getPermalink(token, channelId, messageTs);
-        } catch (IOException ex) {
-            LOG.log(Level.WARNING, "Slack chat.getPermalink call failed.", ex);
-            permalinkCache.put(cacheKey, null);
-            return null;
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            LOG.log(Level.WARNING, "Slack chat.getPermalink call interrupted.", ex);
-            permalinkCache.put(cacheKey, null);
-            return null;
-        }
-        if (!response.ok()) {
-            LOG.warning("Slack chat.getPermalink not ok: " + response.error());
-            permalinkCache.put(cacheKey, null);
-            return null;
-        }
-        permalinkCache.put(cacheKey, response.permalink());
-        return response.permalink();
-    }
-
     private static List<String> formatReactions(List<SlackMessage.Reaction> reactions) {
         if (reactions == null || reactions.isEmpty()) {
             return List.of();
@@ -484,74 +987,213 @@ public final class ChatArchiveApp {
         return List.copyOf(badges);
     }
 
-    private static boolean renderIndexes(Path dailyRoot, String siteBaseUrl) {
+    // Only the channel, year and month indexes of months whose days changed are rendered.
+    private static boolean renderIndexes(Path dailyRoot, String siteBaseUrl,
+            OutputManifest manifest, DateIndex dateIndex) {
         boolean changed = false;
         try {
-            List<String> channels = IndexRenderer.listChannels(dailyRoot);
-            Map<String, List<LocalDate>> allDatesByChannel = new LinkedHashMap<>();
+            List<String> channels = dateIndex.channels();
             for (String channel : channels) {
+                List<LocalDate> dates = dateIndex.dates(channel);
+                Set<YearMonth> touched = dateIndex.touchedMonths(channel);
+                if (touched.isEmpty()) {
+                    continue;
+                }
                 Path channelPath = dailyRoot.resolve(channel);
-                List<LocalDate> dates = IndexRenderer.listDates(channelPath);
-                allDatesByChannel.put(channel, dates);
                 List<Integer> years = dates.stream().map(LocalDate::getYear).distinct().sorted().toList();
-                String channelIndex = HtmlRenderer.renderChannelIndex(channel, years);
-                changed = FileWriterUtil.writeIfChanged(channelPath.resolve("index.html"), channelIndex) || changed;
+                changed = manifest.writeIfChanged(channelPath.resolve("index.html"),
+                        out -> HtmlRenderer.writeChannelIndex(out, channel, years)) || changed;
                 Map<Integer, Set<Integer>> yearMonthMap = new TreeMap<>();
                 for (LocalDate date : dates) {
                     yearMonthMap.computeIfAbsent(date.getYear(), k -> new TreeSet<>()).add(date.getMonthValue());
                 }
-                for (Integer year : yearMonthMap.keySet()) {
+                Set<Integer> touchedYears = new TreeSet<>();
+                for (YearMonth month : touched) {
+                    touchedYears.add(month.getYear());
+                }
+                for (Integer year : touchedYears) {
+                    if (!yearMonthMap.containsKey(year)) {
+                        continue;
+                    }
                     Path yearPath = channelPath.resolve(String.valueOf(year));
                     List<Integer> months = yearMonthMap.get(year).stream().sorted().toList();
-                    String yearIndex = HtmlRenderer.renderYearIndex(channel, year, months);
-                    changed = FileWriterUtil.writeIfChanged(yearPath.resolve("index.html"), yearIndex) || changed;
+                    changed = manifest.writeIfChanged(yearPath.resolve("index.html"),
+                            out -> HtmlRenderer.writeYearIndex(out, channel, year, months)) || changed;
                     for (Integer month : months) {
+                        if (!touched.contains(YearMonth.of(year, month))) {
+                            continue;
+                        }
                         Path monthPath = yearPath.resolve(String.format("%02d", month));
                         List<LocalDate> monthDates = dates.stream()
                                 .filter(d -> d.getYear() == year && d.getMonthValue() == month)
                                 .sorted().toList();
-                        String monthIndex = HtmlRenderer.renderMonthIndex(channel, year, month, monthDates);
-                        changed = FileWriterUtil.writeIfChanged(monthPath.resolve("index.html"), monthIndex) || changed;
+                        changed = manifest.writeIfChanged(monthPath.resolve("index.html"),
+                                out -> HtmlRenderer.writeMonthIndex(out, channel, year, month, monthDates))
+                                || changed;
                     }
                 }
             }
-            String globalIndex = HtmlRenderer.renderGlobalIndex(channels);
-            changed = FileWriterUtil.writeIfChanged(dailyRoot.getParent().resolve("index.html"), globalIndex) || changed;
+            if (dateIndex.anyTouched()) {
+                changed = manifest.writeIfChanged(dailyRoot.getParent().resolve("index.html"),
+                        out -> HtmlRenderer.writeGlobalIndex(out, channels)) || changed;
+            }
             String robotsTxt = SiteMetadataRenderer.renderRobotsTxt(siteBaseUrl);
-            changed = FileWriterUtil.writeIfChanged(dailyRoot.getParent().resolve("robots.txt"), robotsTxt) || changed;
+            changed = manifest.writeIfChanged(dailyRoot.getParent().resolve("robots.txt"), robotsTxt) || changed;
             if (!siteBaseUrl.isBlank()) {
-                String sitemap = SiteMetadataRenderer.renderSitemapXml(siteBaseUrl, allDatesByChannel);
-                changed = FileWriterUtil.writeIfChanged(dailyRoot.getParent().resolve("sitemap.xml"), sitemap) || changed;
+                changed = renderSitemaps(dailyRoot, siteBaseUrl, manifest, dateIndex) || changed;
             }
         } catch (IOException ex) {
             LOG.log(Level.WARNING, "Failed to write index files.", ex);
         }
         return changed;
     }
-    private static List<SlackMessage> syncWithHistory(String channelName, List<SlackMessage> newMessages, Path outputDir) {
-        Path historyPath = outputDir.resolve("state").resolve(channelName + "_history.json");
-        ObjectMapper mapper = new ObjectMapper()
-                .enable(SerializationFeature.INDENT_OUTPUT);
-        Map<String, SlackMessage> historyMap = new TreeMap<>();
+
+    // sitemap.xml is an index of one sitemap per channel and year, plus one for the index pages.
+    // Only the shards of years whose pages changed are rendered; lastmod is when the content of
+    // the page or shard last changed, as recorded in the manifest. Sites without shards yet get
+    // all of them once.
+    private static boolean renderSitemaps(Path dailyRoot, String siteBaseUrl,
+            OutputManifest manifest, DateIndex dateIndex) throws IOException {
+        Path siteRoot = dailyRoot.getParent();
+        Path sitemapsDir = siteRoot.resolve(SITEMAPS_DIR_NAME);
+        boolean bootstrap = !Files.exists(sitemapsDir.resolve("pages.xml"));
+        if (!bootstrap && dateIndex.changedChannels().isEmpty()) {
+            return false;
+        }
+        boolean changed = false;
+        List<String> channels = dateIndex.channels();
+        if (bootstrap || dateIndex.anyTouched()) {
+            List<SiteMetadataRenderer.SitemapEntry> pages = new ArrayList<>();
+            pages.add(new SiteMetadataRenderer.SitemapEntry("",
+                    manifest.changedAt(siteRoot.resolve("index.html"))));
+            for (String channel : channels) {
+                pages.add(new SiteMetadataRenderer.SitemapEntry("daily/" + channel + "/",
+                        manifest.changedAt(dailyRoot.resolve(channel).resolve("index.html"))));
+            }
+            changed = manifest.writeIfChanged(sitemapsDir.resolve("pages.xml"),
+                    SiteMetadataRenderer.renderUrlSet(siteBaseUrl, pages)) || changed;
+        }
+        Set<String> changedChannels = new TreeSet<>(dateIndex.changedChannels());
+        if (bootstrap) {
+            changedChannels.addAll(channels);
+        }
+        for (String channel : changedChannels) {
+            Map<Integer, List<LocalDate>> datesByYear = groupByYear(dateIndex.dates(channel));
+            Set<Integer> years = new TreeSet<>(dateIndex.changedYears(channel));
+            if (bootstrap) {
+                years.addAll(datesByYear.keySet());
+            }
+            for (Integer year : years) {
+                Path shard = sitemapsDir.resolve(channel).resolve(year + ".xml");
+                List<LocalDate> dates = datesByYear.get(year);
+                if (dates == null) {
+                    changed = manifest.deleteIfExists(shard) || changed;
+                    continue;
+                }
+                List<SiteMetadataRenderer.SitemapEntry> urls = new ArrayList<>(dates.size());
+                for (LocalDate date : dates) {
+                    String lastmod = manifest.changedAt(RenderStage.pagePath(dailyRoot, channel, date));
+                    urls.add(new SiteMetadataRenderer.SitemapEntry(
+                            SiteMetadataRenderer.dailyPagePath(channel, date), lastmod));
+                }
+                changed = manifest.writeIfChanged(shard,
+                        SiteMetadataRenderer.renderUrlSet(siteBaseUrl, urls)) || changed;
+            }
+        }
+        List<SiteMetadataRenderer.SitemapEntry> shards = new ArrayList<>();
+        shards.add(new SiteMetadataRenderer.SitemapEntry(SITEMAPS_DIR_NAME + "/pages.xml",
+                manifest.changedAt(sitemapsDir.resolve("pages.xml"))));
+        for (String channel : channels) {
+            for (Integer year : groupByYear(dateIndex.dates(channel)).keySet()) {
+                String lastmod = manifest.changedAt(sitemapsDir.resolve(channel).resolve(year + ".xml"));
+                shards.add(new SiteMetadataRenderer.SitemapEntry(
+                        SITEMAPS_DIR_NAME + "/" + channel + "/" + year + ".xml", lastmod));
+            }
+        }
+        return manifest.writeIfChanged(siteRoot.resolve("sitemap.xml"),
+                SiteMetadataRenderer.renderSitemapIndex(siteBaseUrl, shards)) || changed;
+    }
+
+    // Years oldest first, dates newest first as DateIndex returns them.
+    private static Map<Integer, List<LocalDate>> groupByYear(List<LocalDate> dates) {
+        Map<Integer, List<LocalDate>> byYear = new TreeMap<>();
+        for (LocalDate date : dates) {
+            byYear.computeIfAbsent(date.getYear(), k -> new ArrayList<>()).add(date);
+        }
+        return byYear;
+    }
+
+    private static boolean writeSearchIndex(SearchIndex searchIndex, OutputManifest manifest,
+            DateIndex dateIndex) {
         try {
-            if (Files.exists(historyPath)) {
-                List<SlackMessage> existing = mapper.readValue(
-                        historyPath.toFile(),
-                        new TypeReference<List<SlackMessage>>() {}
-                );
-                for (SlackMessage m : existing) {
-                    if (m.ts() != null) historyMap.put(m.ts(), m);
+            return searchIndex.write(manifest, dateIndex);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to write search index.", ex);
+            return false;
+        }
+    }
+
+    // Feeds of channels with new messages are rewritten, and the global feed with them. Feeds
+    // missing from the output, e.g. after SITE_BASE_URL was set, are written from the state.
+    private static boolean writeFeeds(Path outputDir, String siteBaseUrl, FeedStore feeds,
+            OutputManifest manifest) {
+        if (siteBaseUrl.isBlank()) {
+            return false;
+        }
+        boolean changed = false;
+        try {
+            Set<String> changedChannels = feeds.changedChannels();
+            for (String channel : feeds.channels()) {
+                Path feed = outputDir.resolve(FEEDS_DIR_NAME).resolve(channel + ".xml");
+                if (!changedChannels.contains(channel) && Files.exists(feed)) {
+                    continue;
                 }
+                List<SiteMetadataRenderer.FeedEntry> entries = feeds.entries(channel);
+                changed = manifest.writeIfChanged(feed, out -> SiteMetadataRenderer.writeAtomFeed(
+                        out, siteBaseUrl, FEEDS_DIR_NAME + "/" + channel + ".xml",
+                        "#" + channel + " - Chat Archive", "daily/" + channel + "/", entries))
+                        || changed;
             }
-            for (SlackMessage m : newMessages) {
-                if (m.ts() != null) historyMap.put(m.ts(), m);
+            Path global = outputDir.resolve("feed.xml");
+            if (!feeds.channels().isEmpty()
+                    && (!changedChannels.isEmpty() || !Files.exists(global))) {
+                List<SiteMetadataRenderer.FeedEntry> entries = feeds.latest();
+                changed = manifest.writeIfChanged(global, out -> SiteMetadataRenderer.writeAtomFeed(
+                        out, siteBaseUrl, "feed.xml", "Chat Archive", "", entries)) || changed;
             }
-            Files.createDirectories(historyPath.getParent());
-            mapper.writeValue(historyPath.toFile(), new ArrayList<>(historyMap.values()));
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Failed to write feeds.", ex);
+        }
+        return changed;
+    }
+
+    private static void migrateLegacyHistory(HistoryStore history, String channelName,
+            Path outputDir) {
+        Path legacyPath = outputDir.resolve("state").resolve(channelName + "_history.json");
+        try {
+            history.migrateLegacy(legacyPath);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not migrate history for " + channelName, e);
+        }
+    }
+
+    private static void flushHistory(HistoryStore history, String channelName) {
+        try {
+            history.flush();
         } catch (IOException e) {
             LOG.log(Level.WARNING, "Could not sync history for " + channelName, e);
         }
-        return new ArrayList<>(historyMap.values());
+    }
+
+    private record ArchiveRun(ArchiveConfig config, SlackApiClient slackApiClient,
+            PermalinkResolver permalinkResolver, UserDirectory userDirectory,
+            ExecutorService executor, RenderStage renderStage, Path dailyRoot, FeedStore feeds,
+            Queue<ChannelState> channelStates) {
+    }
+
+    // What a channel saves once its daily pages are committed.
+    private record ChannelState(String channelName, RenderJournal journal,
+            ThreadRepliesStore threadReplies) {
     }
 }
 
@@ -45,8 +45,9 @@ final class CursorStore {
     }
 
     void save(CursorState state) throws IOException {
-        Files.createDirectories(cursorFile.getParent());
-        objectMapper.writerWithDefaultPrettyPrinter().writeValue(cursorFile.toFile(), state);
+        FileWriterUtil.replaceAtomically(cursorFile,
+                temp -> objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(),
+                        state));
     }
 
     record CursorState(Map<String, String> channels) {
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+// The days that have a daily page, per channel, kept in STATE_DIR/dates/<channel>.json so
+// indexes are rendered without walking the output tree. Months whose days came or went are
+// remembered, and only their indexes need rendering.
+final class DateIndex {
+
+    private static final String DATES_DIR_NAME = "dates";
+    private static final TypeReference<List<String>> DATE_LIST = new TypeReference<>() {};
+
+    private final Path datesDir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, NavigableSet<LocalDate>> dates = new ConcurrentHashMap<>();
+    private final Map<String, Set<YearMonth>> touched = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> changedYears = new ConcurrentHashMap<>();
+
+    DateIndex(Path stateDir) {
+        this.datesDir = stateDir.resolve(DATES_DIR_NAME);
+    }
+
+    // The first run without a saved index walks the output once and renders every index.
+    void load(Path dailyRoot) throws IOException {
+        if (!Files.isDirectory(datesDir)) {
+            for (String channel : IndexRenderer.listChannels(dailyRoot)) {
+                for (LocalDate date : IndexRenderer.listDates(dailyRoot.resolve(channel))) {
+                    add(channel, date);
+                }
+            }
+            return;
+        }
+        try (Stream<Path> files = Files.list(datesDir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(".json")) {
+                    continue;
+                }
+                NavigableSet<LocalDate> channelDates = new ConcurrentSkipListSet<>();
+                for (String date : objectMapper.readValue(file.toFile(), DATE_LIST)) {
+                    channelDates.add(LocalDate.parse(date));
+                }
+                dates.put(name.substring(0, name.length() - ".json".length()), channelDates);
+            }
+        }
+    }
+
+    void add(String channel, LocalDate date) {
+        if (dates.computeIfAbsent(channel, key -> new ConcurrentSkipListSet<>()).add(date)) {
+            touch(channel, date);
+        }
+    }
+
+    void remove(String channel, LocalDate date) {
+        NavigableSet<LocalDate> channelDates = dates.get(channel);
+        if (channelDates != null && channelDates.remove(date)) {
+            touch(channel, date);
+        }
+    }
+
+    // The page of the day was rewritten; its sitemap shard needs a new lastmod.
+    void changed(String channel, LocalDate date) {
+        changedYears.computeIfAbsent(channel, key -> ConcurrentHashMap.newKeySet())
+                .add(date.getYear());
+    }
+
+    // Treats every month as changed, e.g. after a template change.
+    void touchAll() {
+        for (Map.Entry<String, NavigableSet<LocalDate>> entry : dates.entrySet()) {
+            for (LocalDate date : entry.getValue()) {
+                touch(entry.getKey(), date);
+            }
+        }
+    }
+
+    // Channels with at least one day, in the order of the global index.
+    List<String> channels() {
+        List<String> channels = new ArrayList<>();
+        for (Map.Entry<String, NavigableSet<LocalDate>> entry : dates.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                channels.add(entry.getKey());
+            }
+        }
+        channels.sort(String.CASE_INSENSITIVE_ORDER);
+        return channels;
+    }
+
+    // Newest first.
+    List<LocalDate> dates(String channel) {
+        NavigableSet<LocalDate> channelDates = dates.get(channel);
+        return channelDates == null ? List.of() : List.copyOf(channelDates.descendingSet());
+    }
+
+    Set<YearMonth> touchedMonths(String channel) {
+        Set<YearMonth> months = touched.get(channel);
+        return months == null ? Set.of() : new TreeSet<>(months);
+    }
+
+    // Years whose days or pages changed.
+    Set<Integer> changedYears(String channel) {
+        Set<Integer> years = new TreeSet<>(changedYears.getOrDefault(channel, Set.of()));
+        for (YearMonth month : touched.getOrDefault(channel, Set.of())) {
+            years.add(month.getYear());
+        }
+        return years;
+    }
+
+    // Channels with touched months or changed pages, including ones without days left.
+    Set<String> changedChannels() {
+        Set<String> channels = new TreeSet<>(touched.keySet());
+        channels.addAll(changedYears.keySet());
+        return channels;
+    }
+
+    boolean anyTouched() {
+        return !touched.isEmpty();
+    }
+
+    // Stages the changed channels, so they commit with the indexes rendered from them.
+    void stage(OutputTransaction transaction) throws IOException {
+        for (String channel : touched.keySet()) {
+            List<String> values = new ArrayList<>();
+            for (LocalDate date : dates.getOrDefault(channel, new TreeSet<>())) {
+                values.add(date.toString());
+            }
+            transaction.write(datesDir.resolve(channel + ".json"),
+                    objectMapper.writeValueAsBytes(values));
+        }
+    }
+
+    private void touch(String channel, LocalDate date) {
+        touched.computeIfAbsent(channel, key -> ConcurrentHashMap.newKeySet())
+                .add(YearMonth.from(date));
+    }
+}
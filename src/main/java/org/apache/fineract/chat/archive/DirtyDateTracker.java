@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Merges conversations.history into the stored history one page at a time, collecting the days
+// whose pages need rendering. Every fetched message marks its page dirty, even when unchanged,
+// since its thread replies may have moved on. History at/after oldestTs that Slack no longer
+// returns was deleted: each page accounts for the stretch from its oldest message up to the
+// oldest message of the pages before it, so no page needs to be held back.
+final class DirtyDateTracker {
+
+    private final HistoryStore history;
+    private final long oldestPacked;
+    private final Set<LocalDate> dirty = new TreeSet<>();
+    private final Set<String> changedParents = new HashSet<>();
+    // Stored messages at or after this were checked against the fetched ones.
+    private long covered = Long.MAX_VALUE;
+    private YearMonth oldestMonth;
+
+    // Without oldestTs, messages missing from the fetch are kept.
+    DirtyDateTracker(HistoryStore history, String oldestTs) {
+        this.history = history;
+        this.oldestPacked = oldestTs == null || oldestTs.isBlank()
+                ? Long.MAX_VALUE : SlackTimestamp.pack(oldestTs);
+    }
+
+    // Picks up what a run that never committed its pages left in its journal.
+    void resume(RenderJournal.Pending pending) {
+        dirty.addAll(pending.days());
+        changedParents.addAll(pending.parents());
+    }
+
+    // What has to go into the journal before the history is flushed.
+    Set<LocalDate> dirtyDates() {
+        return new TreeSet<>(dirty);
+    }
+
+    Set<String> changedParents() {
+        return new HashSet<>(changedParents);
+    }
+
+    // Returns true when the page reached an older month than the pages before it. Slack pages
+    // newest first, so the newer months are complete then and can be flushed.
+    boolean add(List<SlackMessage> page) {
+        Set<String> fetchedTs = new HashSet<>();
+        long pageOldest = Long.MAX_VALUE;
+        for (SlackMessage message : page) {
+            if (message.ts() != null) {
+                fetchedTs.add(message.ts());
+                pageOldest = Math.min(pageOldest, SlackTimestamp.pack(message.ts()));
+            }
+        }
+        if (fetchedTs.isEmpty()) {
+            return false;
+        }
+        removeMissing(Math.max(pageOldest, oldestPacked), fetchedTs);
+
+        for (SlackMessage message : page) {
+            if (message.ts() == null) {
+                continue;
+            }
+            if (history.put(message) == null && !isReply(message)) {
+                changedParents.add(message.ts());
+            }
+        }
+        for (SlackMessage message : page) {
+            if (message.ts() != null) {
+                dirty.add(pageDate(message, history));
+            }
+        }
+
+        YearMonth month = YearMonth.from(
+                SlackTimestamp.toInstant(pageOldest).atZone(ZoneOffset.UTC));
+        boolean older = oldestMonth != null && month.isBefore(oldestMonth);
+        if (oldestMonth == null || older) {
+            oldestMonth = month;
+        }
+        return older;
+    }
+
+    // complete is false when the fetch broke off, so the stretch below the last page is unknown.
+    Set<LocalDate> finish(boolean complete) {
+        if (complete) {
+            removeMissing(oldestPacked, Set.of());
+        }
+
+        // Replies always come after their parent, so only later history needs scanning.
+        String oldestChangedParent = null;
+        long oldestChanged = Long.MAX_VALUE;
+        for (String ts : changedParents) {
+            long packed = SlackTimestamp.pack(ts);
+            if (packed < oldestChanged) {
+                oldestChangedParent = ts;
+                oldestChanged = packed;
+            }
+        }
+        if (oldestChangedParent != null) {
+            YearMonth first = YearMonth.from(
+                    SlackTimestamp.toInstant(oldestChanged).atZone(ZoneOffset.UTC));
+            for (YearMonth month : history.months()) {
+                if (month.isBefore(first)) {
+                    continue;
+                }
+                for (SlackMessage message : history.month(month)) {
+                    if (isReply(message) && changedParents.contains(message.threadTs())) {
+                        dirty.add(dateOf(message.ts()));
+                        dirty.add(dateOf(message.threadTs()));
+                    }
+                }
+                history.release();
+            }
+        }
+        return dirty;
+    }
+
+    // Drops stored messages from `from` up to what earlier pages covered that this page lacks.
+    private void removeMissing(long from, Set<String> fetchedTs) {
+        if (from >= covered) {
+            return;
+        }
+        List<SlackMessage> removed = new ArrayList<>();
+        for (SlackMessage message : history.between(from, covered)) {
+            if (!fetchedTs.contains(message.ts())) {
+                removed.add(message);
+            }
+        }
+        for (SlackMessage message : removed) {
+            dirty.add(pageDate(message, history));
+        }
+        for (SlackMessage message : removed) {
+            history.remove(message.ts());
+            changedParents.add(message.ts());
+        }
+        covered = from;
+    }
+
+    // Replies with a known parent are rendered below it, on the parent's page.
+    static LocalDate pageDate(SlackMessage message, HistoryStore history) {
+        if (isReply(message) && history.contains(message.threadTs())) {
+            return dateOf(message.threadTs());
+        }
+        return dateOf(message.ts());
+    }
+
+    static LocalDate dateOf(String ts) {
+        return SlackTimestamp.toInstant(ts).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private static boolean isReply(SlackMessage message) {
+        return message.threadTs() != null && !message.threadTs().equals(message.ts());
+    }
+}
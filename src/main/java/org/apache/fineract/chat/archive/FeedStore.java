@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// The latest messages of every channel as shown in its Atom feed, newest first. Feeds are built
+// from these and the messages fetched in a run, so history is never read back for them.
+final class FeedStore {
+
+    private static final String FEED_FILE_NAME = "feeds.json";
+    private static final Comparator<SiteMetadataRenderer.FeedEntry> NEWEST_FIRST =
+            Comparator.comparingLong(
+                    (SiteMetadataRenderer.FeedEntry entry) -> SlackTimestamp.pack(entry.ts()))
+                    .reversed();
+
+    private final Path feedFile;
+    private final int size;
+    private final ObjectMapper objectMapper;
+    private final Map<String, List<SiteMetadataRenderer.FeedEntry>> channels = new HashMap<>();
+    private final Set<String> changed = new TreeSet<>();
+
+    FeedStore(Path stateDir, int size) {
+        this.feedFile = stateDir.resolve(FEED_FILE_NAME);
+        this.size = size;
+        this.objectMapper = new ObjectMapper()
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    synchronized void load() throws IOException {
+        if (!Files.exists(feedFile)) {
+            return;
+        }
+        FeedState state = objectMapper.readValue(feedFile.toFile(), FeedState.class);
+        if (state.channels() != null) {
+            state.channels().forEach((channel, entries) -> channels.put(channel,
+                    new ArrayList<>(entries)));
+        }
+    }
+
+    // Entries for messages already in the feed replace the old ones.
+    synchronized void add(String channel, List<SiteMetadataRenderer.FeedEntry> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        Map<String, SiteMetadataRenderer.FeedEntry> byTs = new LinkedHashMap<>();
+        for (SiteMetadataRenderer.FeedEntry entry : channels.getOrDefault(channel, List.of())) {
+            byTs.put(entry.ts(), entry);
+        }
+        for (SiteMetadataRenderer.FeedEntry entry : added) {
+            byTs.put(entry.ts(), entry);
+        }
+        List<SiteMetadataRenderer.FeedEntry> entries = new ArrayList<>(byTs.values());
+        entries.sort(NEWEST_FIRST);
+        if (entries.size() > size) {
+            entries = new ArrayList<>(entries.subList(0, size));
+        }
+        if (!entries.equals(channels.put(channel, entries))) {
+            changed.add(channel);
+        }
+    }
+
+    synchronized List<SiteMetadataRenderer.FeedEntry> entries(String channel) {
+        return List.copyOf(channels.getOrDefault(channel, List.of()));
+    }
+
+    // The newest entries across all channels; each channel keeps enough to fill it.
+    synchronized List<SiteMetadataRenderer.FeedEntry> latest() {
+        List<SiteMetadataRenderer.FeedEntry> entries = new ArrayList<>();
+        channels.values().forEach(entries::addAll);
+        entries.sort(NEWEST_FIRST.thenComparing(SiteMetadataRenderer.FeedEntry::channel));
+        return List.copyOf(entries.subList(0, Math.min(size, entries.size())));
+    }
+
+    synchronized Set<String> channels() {
+        return new TreeSet<>(channels.keySet());
+    }
+
+    // Channels whose entries changed since the last save.
+    synchronized Set<String> changedChannels() {
+        return new TreeSet<>(changed);
+    }
+
+    // Entries describe committed feeds, so save only after the output was committed.
+    synchronized void save() throws IOException {
+        if (changed.isEmpty()) {
+            return;
+        }
+        FeedState state = new FeedState(new TreeMap<>(channels));
+        FileWriterUtil.replaceAtomically(feedFile,
+                temp -> objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(),
+                        state));
+        changed.clear();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record FeedState(Map<String, List<SiteMetadataRenderer.FeedEntry>> channels) {
+    }
+}
@@ -19,24 +19,66 @@
 package org.apache.fineract.chat.archive;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 final class FileWriterUtil {
 
     private FileWriterUtil() {}
 
-    static boolean writeIfChanged(Path path, String content) throws IOException {
-        String existing = null;
-        if (Files.exists(path)) {
-            existing = Files.readString(path, StandardCharsets.UTF_8);
-        }
-        if (content.equals(existing)) {
+    static boolean deleteIfExists(Path path) throws IOException {
+        if (!Files.deleteIfExists(path)) {
             return false;
         }
-        Files.createDirectories(path.getParent());
-        Files.writeString(path, content, StandardCharsets.UTF_8);
+        try {
+            // Empty day directories would still be listed by IndexRenderer.listDates.
+            Files.deleteIfExists(path.getParent());
+        } catch (DirectoryNotEmptyException ex) {
+            // other files live next to the page, keep the directory
+        }
         return true;
     }
+
+    // Writes to a sibling temp file, syncs it and renames it over the target, so readers and
+    // crashes only ever see the old or the new content.
+    static void replaceAtomically(Path path, Writer writer) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling("." + path.getFileName() + ".tmp");
+        writer.writeTo(temp);
+        force(temp);
+        move(temp, path);
+    }
+
+    static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // Makes renames into the directory durable; not every platform can sync a directory.
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // best effort
+        }
+    }
+
+    interface Writer {
+        void writeTo(Path path) throws IOException;
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Encodes appended text as UTF-8 straight into a file through a fixed buffer, hashing the bytes
+// on the way, or only hashes them. Malformed surrogates become '?', as String.getBytes does, so
+// the file and hash match those of the same text encoded in one piece.
+final class HashingUtf8Sink implements Appendable, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // null when only hashing.
+    private final FileChannel channel;
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long size;
+    private char pendingHighSurrogate;
+    private String sha256;
+
+    HashingUtf8Sink(Path path) throws IOException {
+        this.digest = newDigest();
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private HashingUtf8Sink() {
+        this.digest = newDigest();
+        this.channel = null;
+    }
+
+    static HashingUtf8Sink hashOnly() {
+        return new HashingUtf8Sink();
+    }
+
+    @Override
+    public HashingUtf8Sink append(CharSequence csq) throws IOException {
+        CharSequence value = csq == null ? "null" : csq;
+        return append(value, 0, value.length());
+    }
+
+    @Override
+    public HashingUtf8Sink append(CharSequence csq, int start, int end) throws IOException {
+        CharSequence value = csq == null ? "null" : csq;
+        for (int index = start; index < end; index++) {
+            put(value.charAt(index));
+        }
+        return this;
+    }
+
+    @Override
+    public HashingUtf8Sink append(char c) throws IOException {
+        put(c);
+        return this;
+    }
+
+    // Appends bytes that are already UTF-8 encoded.
+    void write(byte[] utf8) throws IOException {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            putByte('?');
+        }
+        if (utf8.length > buffer.length - position) {
+            flush();
+        }
+        if (utf8.length > buffer.length) {
+            digest.update(utf8);
+            ByteBuffer direct = ByteBuffer.wrap(utf8);
+            while (channel != null && direct.hasRemaining()) {
+                channel.write(direct);
+            }
+            size += utf8.length;
+            return;
+        }
+        System.arraycopy(utf8, 0, buffer, position, utf8.length);
+        position += utf8.length;
+    }
+
+    long size() {
+        return size;
+    }
+
+    // Hex SHA-256 of everything written; available once closed.
+    String sha256() {
+        return sha256;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sha256 != null) {
+            return;
+        }
+        try (channel) {
+            if (pendingHighSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                putByte('?');
+            }
+            flush();
+        }
+        sha256 = HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available.", ex);
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                ensureCapacity(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            putByte('?');
+        }
+        if (c < 0x80) {
+            putByte(c);
+        } else if (c < 0x800) {
+            ensureCapacity(2);
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            putByte('?');
+        } else {
+            ensureCapacity(3);
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void putByte(int value) throws IOException {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        digest.update(buffer, 0, position);
+        ByteBuffer pending = ByteBuffer.wrap(buffer, 0, position);
+        while (channel != null && pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        size += position;
+        position = 0;
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Compact binary encoding of history segments:
+//   magic, version, string table (ids, subtypes, reaction names), message count, messages.
+// Version 1 segments lack reply_count/latest_reply and are still read.
+// Timestamps in Slack's canonical "<seconds>.<6 digits>" form are packed as a long/int pair,
+// anything else is kept verbatim in the string table. Text is length-prefixed UTF-8.
+final class HistoryCodec {
+
+    private static final int MAGIC = 0x53434148; // "SCAH"
+    private static final byte VERSION = 2;
+    private static final byte VERSION_WITHOUT_THREAD_SUMMARY = 1;
+    private static final byte TS_NULL = 0;
+    private static final byte TS_PACKED = 1;
+    private static final byte TS_RAW = 2;
+    private static final int NULL_INDEX = -1;
+    private static final Pattern CANONICAL_TS = Pattern.compile("(0|[1-9]\\d{0,11})\\.\\d{6}");
+
+    private HistoryCodec() {}
+
+    static void write(Path path, Collection<SlackMessage> messages) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (SlackMessage message : messages) {
+            intern(strings, message.user());
+            intern(strings, message.botId());
+            intern(strings, message.subtype());
+            internTs(strings, message.ts());
+            internTs(strings, message.threadTs());
+            internTs(strings, message.latestReply());
+            if (message.edited() != null) {
+                internTs(strings, message.edited().ts());
+            }
+            if (message.reactions() != null) {
+                for (SlackMessage.Reaction reaction : message.reactions()) {
+                    intern(strings, reaction.name());
+                }
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(strings.size());
+            for (String value : strings.keySet()) {
+                writeText(out, value);
+            }
+            out.writeInt(messages.size());
+            for (SlackMessage message : messages) {
+                writeTs(out, strings, message.ts());
+                writeIndex(out, strings, message.user());
+                writeIndex(out, strings, message.botId());
+                writeText(out, message.text());
+                writeIndex(out, strings, message.subtype());
+                writeTs(out, strings, message.threadTs());
+                out.writeBoolean(message.edited() != null);
+                if (message.edited() != null) {
+                    writeTs(out, strings, message.edited().ts());
+                }
+                if (message.reactions() == null) {
+                    out.writeInt(NULL_INDEX);
+                } else {
+                    out.writeInt(message.reactions().size());
+                    for (SlackMessage.Reaction reaction : message.reactions()) {
+                        writeIndex(out, strings, reaction.name());
+                        out.writeInt(reaction.count());
+                    }
+                }
+                out.writeInt(message.replyCount() == null ? NULL_INDEX : message.replyCount());
+                writeTs(out, strings, message.latestReply());
+            }
+        }
+    }
+
+    static List<SlackMessage> read(Path path) throws IOException {
+        Cursor cursor = open(path);
+        List<SlackMessage> messages = new ArrayList<>(cursor.size());
+        while (cursor.next()) {
+            messages.add(cursor.message());
+        }
+        return messages;
+    }
+
+    static Cursor open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Cursor(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    path);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | IndexOutOfBoundsException ex) {
+            throw corrupt(path, ex);
+        }
+    }
+
+    private static IOException corrupt(Path path, RuntimeException ex) {
+        return new IOException("Truncated or corrupt history segment " + path, ex);
+    }
+
+    // Walks a segment in its mapping. Moving on only skips over the encoded fields; ts() and
+    // message() decode the current one on demand, so a scan allocates nothing for the messages
+    // it passes over.
+    static final class Cursor {
+
+        // ts() of a message without one.
+        static final long NO_TS = Long.MIN_VALUE;
+
+        private final ByteBuffer buffer;
+        private final Path path;
+        private final byte version;
+        // Every message shares these instances, so repeated user ids cost nothing extra.
+        private final String[] strings;
+        private final int count;
+        private int index;
+        private int start = -1;
+
+        private Cursor(ByteBuffer buffer, Path path) throws IOException {
+            this.buffer = buffer;
+            this.path = path;
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a binary history segment: " + path);
+            }
+            version = buffer.get();
+            if (version != VERSION && version != VERSION_WITHOUT_THREAD_SUMMARY) {
+                throw new IOException("Unsupported history segment version " + version + ": "
+                        + path);
+            }
+            strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readText(buffer);
+            }
+            count = buffer.getInt();
+        }
+
+        int size() {
+            return count;
+        }
+
+        boolean next() throws IOException {
+            if (index == count) {
+                return false;
+            }
+            try {
+                start = buffer.position();
+                skipTs(buffer);
+                skipMessageAfterTs();
+            } catch (BufferUnderflowException | IllegalArgumentException
+                    | IndexOutOfBoundsException ex) {
+                throw corrupt(path, ex);
+            }
+            index++;
+            return true;
+        }
+
+        // Packed ts of the current message, read without formatting it.
+        long ts() throws IOException {
+            try {
+                return readPackedTs(buffer.duplicate().position(start), strings);
+            } catch (BufferUnderflowException | IllegalArgumentException
+                    | IndexOutOfBoundsException ex) {
+                throw corrupt(path, ex);
+            }
+        }
+
+        SlackMessage message() throws IOException {
+            int end = buffer.position();
+            try {
+                buffer.position(start);
+                return readMessage();
+            } catch (BufferUnderflowException | IllegalArgumentException
+                    | IndexOutOfBoundsException ex) {
+                throw corrupt(path, ex);
+            } finally {
+                buffer.position(end);
+            }
+        }
+
+        private void skipMessageAfterTs() throws IOException {
+            buffer.getInt();
+            buffer.getInt();
+            skipText(buffer);
+            buffer.getInt();
+            skipTs(buffer);
+            if (buffer.get() != 0) {
+                skipTs(buffer);
+            }
+            int reactionCount = buffer.getInt();
+            for (int r = 0; r < reactionCount; r++) {
+                buffer.getInt();
+                buffer.getInt();
+            }
+            if (version != VERSION_WITHOUT_THREAD_SUMMARY) {
+                buffer.getInt();
+                skipTs(buffer);
+            }
+        }
+
+        private SlackMessage readMessage() throws IOException {
+            String ts = readTs(buffer, strings);
+            String user = readIndex(buffer, strings);
+            String botId = readIndex(buffer, strings);
+            String text = readText(buffer);
+            String subtype = readIndex(buffer, strings);
+            String threadTs = readTs(buffer, strings);
+            SlackMessage.Edited edited = buffer.get() != 0
+                    ? new SlackMessage.Edited(readTs(buffer, strings)) : null;
+            int reactionCount = buffer.getInt();
+            List<SlackMessage.Reaction> reactions = null;
+            if (reactionCount >= 0) {
+                reactions = new ArrayList<>(reactionCount);
+                for (int r = 0; r < reactionCount; r++) {
+                    reactions.add(new SlackMessage.Reaction(readIndex(buffer, strings),
+                            buffer.getInt()));
+                }
+            }
+            Integer replyCount = null;
+            String latestReply = null;
+            if (version != VERSION_WITHOUT_THREAD_SUMMARY) {
+                int replies = buffer.getInt();
+                replyCount = replies == NULL_INDEX ? null : replies;
+                latestReply = readTs(buffer, strings);
+            }
+            return new SlackMessage(ts, user, botId, text, subtype, threadTs, edited, reactions,
+                    replyCount, latestReply);
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String value) {
+        if (value != null) {
+            strings.putIfAbsent(value, strings.size());
+        }
+    }
+
+    private static void internTs(Map<String, Integer> strings, String ts) {
+        if (ts != null && !CANONICAL_TS.matcher(ts).matches()) {
+            intern(strings, ts);
+        }
+    }
+
+    private static void writeIndex(DataOutputStream out, Map<String, Integer> strings,
+            String value) throws IOException {
+        out.writeInt(value == null ? NULL_INDEX : strings.get(value));
+    }
+
+    private static String readIndex(ByteBuffer buffer, String[] strings) {
+        int index = buffer.getInt();
+        return index == NULL_INDEX ? null : strings[index];
+    }
+
+    private static void writeTs(DataOutputStream out, Map<String, Integer> strings, String ts)
+            throws IOException {
+        if (ts == null) {
+            out.writeByte(TS_NULL);
+        } else if (CANONICAL_TS.matcher(ts).matches()) {
+            long packed = SlackTimestamp.pack(ts);
+            out.writeByte(TS_PACKED);
+            out.writeLong(packed / SlackTimestamp.MICROS_PER_SECOND);
+            out.writeInt((int) (packed % SlackTimestamp.MICROS_PER_SECOND));
+        } else {
+            out.writeByte(TS_RAW);
+            out.writeInt(strings.get(ts));
+        }
+    }
+
+    private static String readTs(ByteBuffer buffer, String[] strings) throws IOException {
+        byte kind = buffer.get();
+        return switch (kind) {
+            case TS_NULL -> null;
+            case TS_PACKED -> SlackTimestamp.format(
+                    buffer.getLong() * SlackTimestamp.MICROS_PER_SECOND + buffer.getInt());
+            case TS_RAW -> strings[buffer.getInt()];
+            default -> throw new IOException("Unknown timestamp encoding " + kind);
+        };
+    }
+
+    // The timestamp packed rather than formatted; NO_TS if there is none.
+    private static long readPackedTs(ByteBuffer buffer, String[] strings) throws IOException {
+        byte kind = buffer.get();
+        return switch (kind) {
+            case TS_NULL -> Cursor.NO_TS;
+            case TS_PACKED -> buffer.getLong() * SlackTimestamp.MICROS_PER_SECOND + buffer.getInt();
+            case TS_RAW -> SlackTimestamp.pack(strings[buffer.getInt()]);
+            default -> throw new IOException("Unknown timestamp encoding " + kind);
+        };
+    }
+
+    private static void skipTs(ByteBuffer buffer) throws IOException {
+        byte kind = buffer.get();
+        switch (kind) {
+            case TS_NULL -> { }
+            case TS_PACKED -> buffer.position(buffer.position() + Long.BYTES + Integer.BYTES);
+            case TS_RAW -> buffer.getInt();
+            default -> throw new IOException("Unknown timestamp encoding " + kind);
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_INDEX);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void skipText(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length != NULL_INDEX) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private static String readText(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_INDEX) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Rewrites every stored history segment in HISTORY_FORMAT, e.g. before switching formats.
+public final class HistoryConverter {
+
+    private static final Logger LOG = Logger.getLogger(HistoryConverter.class.getName());
+
+    private HistoryConverter() {}
+
+    public static void main(String[] args) {
+        ArchiveConfig config = ArchiveConfig.fromEnv();
+        Path historyDir = config.stateDir().resolve("history");
+        LOG.info("Converting history in [" + historyDir + "] to " + config.historyFormat() + ".");
+        if (!Files.isDirectory(historyDir)) {
+            LOG.info("No history to convert.");
+            return;
+        }
+
+        List<Path> channelDirs;
+        try (Stream<Path> paths = Files.list(historyDir)) {
+            channelDirs = paths.filter(Files::isDirectory).sorted().toList();
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Could not list " + historyDir, ex);
+            System.exit(1);
+            return;
+        }
+
+        boolean failed = false;
+        for (Path channelDir : channelDirs) {
+            String channelName = channelDir.getFileName().toString();
+            HistoryStore history = new HistoryStore(config.stateDir(), channelName,
+                    config.historyFormat());
+            try {
+                history.convertAll();
+                LOG.info("Converted history of channel " + channelName + ".");
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Could not convert history of channel " + channelName, ex);
+                failed = true;
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
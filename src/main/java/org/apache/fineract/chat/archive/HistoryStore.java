@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Channel history partitioned into one file per UTC month. Segments are loaded on first use and
+// only the ones that changed are written back by flush(). Segments in the other format are still
+// read, and replaced by the configured format once they change.
+final class HistoryStore {
+
+    private static final Logger LOG = Logger.getLogger(HistoryStore.class.getName());
+    private static final String HISTORY_DIR_NAME = "history";
+    private static final DateTimeFormatter SEGMENT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final TypeReference<List<SlackMessage>> MESSAGE_LIST = new TypeReference<>() {};
+
+    private final String channelName;
+    private final Path channelDir;
+    private final ArchiveConfig.HistoryFormat format;
+    private final ObjectMapper objectMapper;
+    private final Map<YearMonth, NavigableMap<Long, SlackMessage>> segments = new HashMap<>();
+    private final Set<YearMonth> dirty = new HashSet<>();
+    private final Set<YearMonth> unreadable = new HashSet<>();
+
+    HistoryStore(Path stateDir, String channelName) {
+        this(stateDir, channelName, ArchiveConfig.HistoryFormat.JSON);
+    }
+
+    HistoryStore(Path stateDir, String channelName, ArchiveConfig.HistoryFormat format) {
+        this.channelName = channelName;
+        this.channelDir = stateDir.resolve(HISTORY_DIR_NAME).resolve(channelName);
+        this.format = format;
+        this.objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    // Splits a whole-channel history file written by earlier versions into segments.
+    void migrateLegacy(Path legacyFile) throws IOException {
+        if (!Files.exists(legacyFile)) {
+            return;
+        }
+        List<SlackMessage> legacy = objectMapper.readValue(legacyFile.toFile(), MESSAGE_LIST);
+        for (SlackMessage message : legacy) {
+            if (message.ts() != null) {
+                put(message);
+            }
+        }
+        flush();
+        Files.delete(legacyFile);
+        LOG.info("Migrated " + legacy.size() + " message(s) of channel " + channelName
+                + " from " + legacyFile + ".");
+    }
+
+    boolean contains(String ts) {
+        if (ts == null) {
+            return false;
+        }
+        long packed = SlackTimestamp.pack(ts);
+        return segment(monthOf(packed)).containsKey(packed);
+    }
+
+    SlackMessage get(String ts) {
+        if (ts == null) {
+            return null;
+        }
+        long packed = SlackTimestamp.pack(ts);
+        return segment(monthOf(packed)).get(packed);
+    }
+
+    SlackMessage put(SlackMessage message) {
+        long packed = SlackTimestamp.pack(message.ts());
+        YearMonth month = monthOf(packed);
+        SlackMessage previous = segment(month).put(packed, message);
+        if (!message.equals(previous)) {
+            dirty.add(month);
+        }
+        return previous;
+    }
+
+    SlackMessage remove(String ts) {
+        long packed = SlackTimestamp.pack(ts);
+        YearMonth month = monthOf(packed);
+        SlackMessage previous = segment(month).remove(packed);
+        if (previous != null) {
+            dirty.add(month);
+        }
+        return previous;
+    }
+
+    // Messages with ts at or after the given one, oldest first.
+    List<SlackMessage> since(String ts) {
+        long packed = SlackTimestamp.pack(ts);
+        YearMonth first = monthOf(packed);
+        List<SlackMessage> messages = new ArrayList<>();
+        for (YearMonth month : months()) {
+            if (!month.isBefore(first)) {
+                messages.addAll(segment(month).tailMap(packed, true).values());
+            }
+        }
+        return messages;
+    }
+
+    // Messages with packed ts in [from, to), oldest first.
+    List<SlackMessage> between(long from, long to) {
+        YearMonth first = monthOf(from);
+        List<SlackMessage> messages = new ArrayList<>();
+        for (YearMonth month : months()) {
+            if (!month.isBefore(first) && (to == Long.MAX_VALUE || !month.isAfter(monthOf(to)))) {
+                messages.addAll(segment(month).subMap(from, true, to, false).values());
+            }
+        }
+        return messages;
+    }
+
+    List<SlackMessage> messagesOn(LocalDate date) {
+        long start = SlackTimestamp.fromInstant(date.atStartOfDay(ZoneOffset.UTC).toInstant());
+        long end = SlackTimestamp.fromInstant(
+                date.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        return new ArrayList<>(segment(YearMonth.from(date)).subMap(start, end).values());
+    }
+
+    List<SlackMessage> month(YearMonth month) {
+        return new ArrayList<>(segment(month).values());
+    }
+
+    // The month's messages one UTC day at a time, oldest first, with a check for whether a ts is
+    // stored. A binary segment that is not in memory is scanned in its mapping and decoded one
+    // day at a time; anything else is loaded whole.
+    void forEachDay(YearMonth month, DayVisitor visitor) {
+        ArchiveConfig.HistoryFormat stored = segments.containsKey(month) ? null
+                : storedFormat(month);
+        if (stored != ArchiveConfig.HistoryFormat.BINARY || !scanDays(month, visitor)) {
+            Map<LocalDate, List<SlackMessage>> days = new TreeMap<>();
+            for (Map.Entry<Long, SlackMessage> entry : segment(month).entrySet()) {
+                days.computeIfAbsent(dateOf(entry.getKey()), key -> new ArrayList<>())
+                        .add(entry.getValue());
+            }
+            days.forEach((date, messages) -> visitor.visit(date, messages, this::contains));
+        }
+    }
+
+    interface DayVisitor {
+        void visit(LocalDate date, List<SlackMessage> messages, Predicate<String> isStored);
+    }
+
+    // False if the segment has to be loaded instead. The first pass only collects the
+    // timestamps, so a corrupt segment is caught before any day is visited and the month's own
+    // lookups need no records.
+    private boolean scanDays(YearMonth month, DayVisitor visitor) {
+        Path path = segmentPath(month, ArchiveConfig.HistoryFormat.BINARY);
+        try {
+            HistoryCodec.Cursor cursor = HistoryCodec.open(path);
+            long[] stamps = new long[cursor.size()];
+            int count = 0;
+            while (cursor.next()) {
+                long ts = cursor.ts();
+                if (ts == HistoryCodec.Cursor.NO_TS) {
+                    continue;
+                }
+                // Segments are written in ts order; anything else goes through the map.
+                if (count > 0 && ts <= stamps[count - 1]) {
+                    return false;
+                }
+                stamps[count++] = ts;
+            }
+            long[] monthStamps = Arrays.copyOf(stamps, count);
+            Predicate<String> isStored = ts -> {
+                if (ts == null) {
+                    return false;
+                }
+                long packed = SlackTimestamp.pack(ts);
+                return monthOf(packed).equals(month)
+                        ? Arrays.binarySearch(monthStamps, packed) >= 0 : contains(ts);
+            };
+
+            cursor = HistoryCodec.open(path);
+            LocalDate day = null;
+            List<SlackMessage> messages = new ArrayList<>();
+            while (cursor.next()) {
+                long ts = cursor.ts();
+                if (ts == HistoryCodec.Cursor.NO_TS) {
+                    continue;
+                }
+                LocalDate date = dateOf(ts);
+                if (!date.equals(day)) {
+                    if (day != null) {
+                        visitor.visit(day, messages, isStored);
+                    }
+                    day = date;
+                    messages = new ArrayList<>();
+                }
+                messages.add(cursor.message());
+            }
+            if (day != null) {
+                visitor.visit(day, messages, isStored);
+            }
+            return true;
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Could not read history segment " + path + ".", ex);
+            unreadable.add(month);
+            segments.put(month, new TreeMap<>());
+            return true;
+        }
+    }
+
+    // Months with stored or pending messages, oldest first.
+    List<YearMonth> months() {
+        Set<YearMonth> months = new TreeSet<>();
+        for (Map.Entry<YearMonth, NavigableMap<Long, SlackMessage>> entry : segments.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                months.add(entry.getKey());
+            }
+        }
+        if (Files.isDirectory(channelDir)) {
+            try (Stream<Path> files = Files.list(channelDir)) {
+                files.map(path -> parseMonth(path.getFileName().toString()))
+                        .filter(month -> month != null && !segments.containsKey(month))
+                        .forEach(months::add);
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Could not list history of channel " + channelName + ".",
+                        ex);
+            }
+        }
+        return new ArrayList<>(months);
+    }
+
+    // Size and modification time of the stored segment, to notice it was rewritten; null if the
+    // month has no segment.
+    String segmentVersion(YearMonth month) {
+        for (ArchiveConfig.HistoryFormat segmentFormat : ArchiveConfig.HistoryFormat.values()) {
+            Path path = segmentPath(month, segmentFormat);
+            try {
+                return segmentFormat.suffix() + ":" + Files.size(path) + ":"
+                        + Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException ex) {
+                // not stored in this format
+            }
+        }
+        return null;
+    }
+
+    // Channels with stored history, by name.
+    static List<String> channels(Path stateDir) throws IOException {
+        Path historyDir = stateDir.resolve(HISTORY_DIR_NAME);
+        if (!Files.isDirectory(historyDir)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(historyDir)) {
+            return paths.filter(Files::isDirectory).map(path -> path.getFileName().toString())
+                    .sorted().toList();
+        }
+    }
+
+    // Rewrites every segment in the configured format, one month at a time.
+    void convertAll() throws IOException {
+        for (YearMonth month : months()) {
+            if (Files.exists(segmentPath(month, format))) {
+                continue;
+            }
+            segment(month);
+            dirty.add(month);
+            flush();
+            release();
+        }
+    }
+
+    // Drops segments without pending changes from memory.
+    void release() {
+        segments.keySet().removeIf(month -> !dirty.contains(month));
+    }
+
+    void flush() throws IOException {
+        for (YearMonth month : new TreeSet<>(dirty)) {
+            if (unreadable.contains(month)) {
+                LOG.warning("Not overwriting unreadable history segment " + month + " of channel "
+                        + channelName + ".");
+                continue;
+            }
+            NavigableMap<Long, SlackMessage> messages = segments.get(month);
+            if (!messages.isEmpty()) {
+                FileWriterUtil.replaceAtomically(segmentPath(month, format), temp -> {
+                    if (format == ArchiveConfig.HistoryFormat.BINARY) {
+                        HistoryCodec.write(temp, messages.values());
+                    } else {
+                        objectMapper.writeValue(temp.toFile(), new ArrayList<>(messages.values()));
+                    }
+                });
+            }
+            for (ArchiveConfig.HistoryFormat other : ArchiveConfig.HistoryFormat.values()) {
+                if (other != format || messages.isEmpty()) {
+                    Files.deleteIfExists(segmentPath(month, other));
+                }
+            }
+        }
+        dirty.clear();
+    }
+
+    private NavigableMap<Long, SlackMessage> segment(YearMonth month) {
+        NavigableMap<Long, SlackMessage> segment = segments.get(month);
+        if (segment == null) {
+            segment = load(month);
+            segments.put(month, segment);
+        }
+        return segment;
+    }
+
+    private NavigableMap<Long, SlackMessage> load(YearMonth month) {
+        NavigableMap<Long, SlackMessage> messages = new TreeMap<>();
+        ArchiveConfig.HistoryFormat stored = storedFormat(month);
+        if (stored == null) {
+            return messages;
+        }
+        Path path = segmentPath(month, stored);
+        try {
+            List<SlackMessage> read = stored == ArchiveConfig.HistoryFormat.BINARY
+                    ? HistoryCodec.read(path)
+                    : objectMapper.readValue(path.toFile(), MESSAGE_LIST);
+            for (SlackMessage message : read) {
+                if (message.ts() != null) {
+                    messages.put(SlackTimestamp.pack(message.ts()), message);
+                }
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Could not read history segment " + path + ".", ex);
+            unreadable.add(month);
+        }
+        return messages;
+    }
+
+    // The configured format if the month is stored in it, else whichever it is stored in.
+    private ArchiveConfig.HistoryFormat storedFormat(YearMonth month) {
+        if (Files.exists(segmentPath(month, format))) {
+            return format;
+        }
+        ArchiveConfig.HistoryFormat stored = null;
+        for (ArchiveConfig.HistoryFormat other : ArchiveConfig.HistoryFormat.values()) {
+            if (Files.exists(segmentPath(month, other))) {
+                stored = other;
+            }
+        }
+        return stored;
+    }
+
+    private Path segmentPath(YearMonth month, ArchiveConfig.HistoryFormat segmentFormat) {
+        return channelDir.resolve(SEGMENT_FORMAT.format(month) + segmentFormat.suffix());
+    }
+
+    private static YearMonth monthOf(long packed) {
+        return YearMonth.from(SlackTimestamp.toInstant(packed).atZone(ZoneOffset.UTC));
+    }
+
+    private static LocalDate dateOf(long packed) {
+        return SlackTimestamp.toInstant(packed).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private static YearMonth parseMonth(String fileName) {
+        for (ArchiveConfig.HistoryFormat segmentFormat : ArchiveConfig.HistoryFormat.values()) {
+            if (!fileName.endsWith(segmentFormat.suffix())) {
+                continue;
+            }
+            try {
+                return YearMonth.parse(fileName.substring(0,
+                        fileName.length() - segmentFormat.suffix().length()), SEGMENT_FORMAT);
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
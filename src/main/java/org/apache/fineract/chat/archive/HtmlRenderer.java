@@ -18,345 +18,310 @@
  */
 package org.apache.fineract.chat.archive;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+// Pages are stitched together from PageTemplates compiled once per layout; see PageTemplate for
+// the slot syntax.
 final class HtmlRenderer {
 
     private static final String ROOT_STYLESHEET_PATH = "assets/chat-archive.css";
     private static final String CHANNEL_STYLESHEET_PATH = "../../assets/chat-archive.css";
+    private static final String YEAR_STYLESHEET_PATH = "../../../assets/chat-archive.css";
+    private static final String MONTH_STYLESHEET_PATH = "../../../../assets/chat-archive.css";
     private static final String DAILY_STYLESHEET_PATH = "../../../../../assets/chat-archive.css";
-    private static final Pattern UNORDERED_LIST_PATTERN = Pattern.compile("^\\s*(?:[-*]|\\u2022)\\s+(.+)$");
-    private static final Pattern ORDERED_LIST_PATTERN = Pattern.compile("^\\s*\\d+\\.\\s+(.+)$");
-    private static final Pattern ANCHOR_PATTERN = Pattern.compile("(<a\\b[^>]*>.*?</a>)",
-            Pattern.CASE_INSENSITIVE);
-    private static final Pattern BOLD_PATTERN = Pattern.compile("(?<!\\w)\\*(\\S(?:.*?\\S)?)\\*(?!\\w)");
-    private static final Pattern ITALIC_PATTERN = Pattern.compile("(?<!\\w)_(\\S(?:.*?\\S)?)_(?!\\w)");
-    private static final Pattern STRIKE_PATTERN = Pattern.compile("(?<!\\w)~(\\S(?:.*?\\S)?)~(?!\\w)");
+    private static final String SEARCH_STYLESHEET_PATH = "../assets/chat-archive.css";
+
+    private static final PageTemplate ROOT_DOCUMENT_START = documentStart(ROOT_STYLESHEET_PATH);
+    private static final PageTemplate CHANNEL_DOCUMENT_START =
+            documentStart(CHANNEL_STYLESHEET_PATH);
+    private static final PageTemplate YEAR_DOCUMENT_START = documentStart(YEAR_STYLESHEET_PATH);
+    private static final PageTemplate MONTH_DOCUMENT_START = documentStart(MONTH_STYLESHEET_PATH);
+    private static final PageTemplate DAILY_DOCUMENT_START = documentStart(DAILY_STYLESHEET_PATH);
+    private static final PageTemplate SEARCH_DOCUMENT_START = documentStart(SEARCH_STYLESHEET_PATH);
+    private static final PageTemplate DOCUMENT_END = PageTemplate.compile("""
+
+              </main>
+            </body>
+            </html>
+            """);
+
+    private static final PageTemplate DAILY_HEADER = PageTemplate.compile(
+            "<header class=\"archive-header\">\n"
+                    + "<p class=\"archive-breadcrumb\">"
+                    + "<a href=\"../../../../../\">Channels</a> / "
+                    + "<a href=\"../../../\">#{{text:channel}}</a> / "
+                    + "<a href=\"../../\">{{int:year}}</a> / "
+                    + "<a href=\"../\">{{2d:month}}</a> / "
+                    + "{{2d:day}}</p>"
+                    + "<h1>#{{text:channel}} {{int:year}}-{{2d:month}}-{{2d:day}}</h1>"
+                    + "</header>"
+                    + "<section class=\"archive-log\">");
+    private static final PageTemplate DAILY_FOOTER = PageTemplate.compile("</section>");
+    private static final PageTemplate THREAD_START = PageTemplate.compile(
+            "<section class=\"archive-thread\" aria-label=\"Thread replies\">");
+    private static final PageTemplate THREAD_START_AFTER_PARENT = PageTemplate.compile(
+            "<section class=\"archive-thread\" aria-label=\"Thread replies\">\n");
+    private static final PageTemplate THREAD_END = PageTemplate.compile("</section>");
+
+    private static final PageTemplate MESSAGE_START = PageTemplate.compile(
+            "<article class=\"archive-message\">\n"
+                    + "<div class=\"archive-meta\">\n");
+    private static final PageTemplate REPLY_START = PageTemplate.compile(
+            "<article class=\"archive-message archive-message-reply\">\n"
+                    + "<div class=\"archive-meta\">\n"
+                    + "<span class=\"archive-reply-indicator\" aria-hidden=\"true\">&rarr;</span>\n"
+                    + "<span class=\"archive-reply-label\">reply</span>\n");
+    private static final PageTemplate TIME = PageTemplate.compile(
+            "<span class=\"archive-time\">{{text:label}}</span>");
+    private static final PageTemplate TIME_LINK = PageTemplate.compile(
+            "<a class=\"archive-time archive-time-link\" href=\"{{text:href}}\" "
+                    + "title=\"{{text:title}}\">{{text:label}}</a>");
+    private static final PageTemplate MESSAGE_BODY = PageTemplate.compile(
+            "<span class=\"archive-user\">{{text:user}}</span>\n"
+                    + "</div>\n"
+                    + "<div class=\"archive-text\">\n"
+                    + "{{html:text}}</div>\n");
+    private static final PageTemplate REACTIONS_START = PageTemplate.compile(
+            "<div class=\"archive-reactions\">");
+    private static final PageTemplate REACTION = PageTemplate.compile(
+            "<span class=\"archive-reaction\">{{text:reaction}}</span>\n");
+    private static final PageTemplate REACTIONS_END = PageTemplate.compile("</div>\n");
+    private static final PageTemplate MESSAGE_END = PageTemplate.compile("</article>");
+
+    private static final PageTemplate CHANNEL_INDEX_START = PageTemplate.compile("""
+            <header class="archive-header">
+            <p class="archive-breadcrumb">
+            <a href="../../">Channels</a> / #{{text:channel}}</p>
+            <h1>#{{text:channel}} Archive</h1>
+            </header>
+            <section class="archive-index">
+            <h2>Years</h2>
+            <ul class="archive-year-list">
+            """);
+    private static final PageTemplate YEAR_ITEM = PageTemplate.compile("""
+            <li><a href="{{int:year}}/">
+            {{int:year}}</a></li>
+            """);
+    private static final PageTemplate YEAR_INDEX_START = PageTemplate.compile("""
+            <header class="archive-header">
+            <p class="archive-breadcrumb">
+            <a href="../../../">Channels</a> / <a href="../">#{{text:channel}}</a> / {{int:year}}</p>
+            <h1>#{{text:channel}} - {{int:year}}</h1>
+            </header>
+            <section class="archive-index">
+            <h2>Months</h2>
+            <ul class="archive-month-list">
+            """);
+    private static final PageTemplate MONTH_ITEM = PageTemplate.compile("""
+            <li><a href="{{2d:month}}/">
+            {{2d:month}}</a></li>
+            """);
+    private static final PageTemplate MONTH_INDEX_START = PageTemplate.compile("""
+            <header class="archive-header">
+            <p class="archive-breadcrumb">
+            <a href="../../../../">Channels</a> / <a href="../../">#{{text:channel}}</a> / \
+            <a href="../">{{int:year}}</a> / {{2d:month}}</p>
+            <h1>#{{text:channel}} - {{2d:month}} {{int:year}}</h1>
+            </header>
+            <section class="archive-index">
+            <h2>Days</h2>
+            <ul class="archive-day-list">
+            """);
+    private static final PageTemplate DAY_ITEM = PageTemplate.compile("""
+            <li><a href="{{2d:day}}/">
+            {{html:date}}</a></li>
+            """);
+    private static final PageTemplate GLOBAL_INDEX_START = PageTemplate.compile("""
+            <header class="archive-header">
+            <h1>Chat Archive</h1>
+            <p class="archive-search-link"><a href="search/">Search</a></p>
+            </header>
+            <section class="archive-index">
+            <h2>Channels</h2>
+            <ul class="archive-channel-list">
+            """);
+    private static final PageTemplate CHANNEL_ITEM = PageTemplate.compile("""
+            <li><a href="daily/{{text:channel}}/">#{{text:channel}}</a></li>
+            """);
+    private static final PageTemplate LIST_END = PageTemplate.compile("</ul>\n</section>");
+    private static final PageTemplate SEARCH_BODY = PageTemplate.compile("""
+            <header class="archive-header">
+            <p class="archive-breadcrumb">
+            <a href="../">Channels</a> / Search</p>
+            <h1>Search</h1>
+            </header>
+            <section class="archive-search">
+            <form id="archive-search-form" class="archive-search-form" role="search">
+            <input id="archive-search-query" type="search" name="q" aria-label="Words to find" required>
+            <select id="archive-search-channel" name="channel" aria-label="Channel">
+            <option value="">All channels</option>
+            </select>
+            <button type="submit">Search</button>
+            </form>
+            <p id="archive-search-status" class="archive-search-status" aria-live="polite"></p>
+            <ul id="archive-search-results" class="archive-search-results"></ul>
+            <button id="archive-search-more" type="button" hidden>More results</button>
+            </section>
+            <script src="../assets/chat-archive-search.js"></script>""");
 
     private HtmlRenderer() {}
 
     static String renderDailyPage(String channelName, LocalDate date, List<Row> rows) {
-        String safeChannel = escapeHtml(normalize(channelName));
-        String displayDate = escapeHtml(date.toString());
-
-        StringBuilder body = new StringBuilder();
-        body.append("<header class=\"archive-header\">\n")
-                .append("<p class=\"archive-breadcrumb\">")
-                .append("<a href=\"../../../../../\">Channels</a> / ")
-                .append("<a href=\"../../../\">#").append(safeChannel).append("</a> / ")
-                .append("<a href=\"../../\">").append(date.getYear()).append("</a> / ")
-                .append("<a href=\"../\">").append(String.format("%02d", date.getMonthValue())).append("</a> / ")
-                .append(String.format("%02d", date.getDayOfMonth()))
-                .append("</p>")
-                .append("<h1>#").append(safeChannel).append(" ").append(date.getYear()).append("-").append(String.format("%02d", date.getMonthValue())).append("-").append(String.format("%02d", date.getDayOfMonth())).append("</h1>")
-                .append("</header>");
+        return render(out -> writeDailyPage(out, channelName, date, rows));
+    }
 
-        body.append("<section class=\"archive-log\">");
+    // Streams the page into out; only the markup of one message is ever buffered.
+    static void writeDailyPage(Appendable out, String channelName, LocalDate date, List<Row> rows)
+            throws IOException {
+        DAILY_DOCUMENT_START.render(out, "#" + normalize(channelName) + " " + date);
+        DAILY_HEADER.render(out, channelName, date.getYear(), date.getMonthValue(),
+                date.getDayOfMonth());
+        StringBuilder text = new StringBuilder();
         for (int index = 0; index < rows.size(); index++) {
             Row row = rows.get(index);
             if (row.isReply()) {
-                body.append("<section class=\"archive-thread\" aria-label=\"Thread replies\">");
+                THREAD_START.render(out);
                 while (index < rows.size() && rows.get(index).isReply()) {
-                    body.append(renderMessageRow(rows.get(index)));
+                    writeMessageRow(out, rows.get(index), text);
                     index++;
                 }
-                body.append("</section>");
+                THREAD_END.render(out);
                 index--;
                 continue;
             }
 
-            body.append(renderMessageRow(row));
+            writeMessageRow(out, row, text);
             int replyIndex = index + 1;
             if (replyIndex < rows.size() && rows.get(replyIndex).isReply()) {
-                body.append("<section class=\"archive-thread\" aria-label=\"Thread replies\">\n");
+                THREAD_START_AFTER_PARENT.render(out);
                 while (replyIndex < rows.size() && rows.get(replyIndex).isReply()) {
-                    body.append(renderMessageRow(rows.get(replyIndex)));
+                    writeMessageRow(out, rows.get(replyIndex), text);
                     replyIndex++;
                 }
-                body.append("</section>");
+                THREAD_END.render(out);
                 index = replyIndex - 1;
             }
         }
-        body.append("</section>");
-
-        return renderDocument("#" + normalize(channelName) + " " + date,
-                DAILY_STYLESHEET_PATH, body.toString());
+        DAILY_FOOTER.render(out);
+        DOCUMENT_END.render(out);
     }
 
     static String renderChannelIndex(String channelName, List<Integer> years) {
-        String safeChannel = escapeHtml(normalize(channelName));
-        StringBuilder body = new StringBuilder();
-        body.append("<header class=\"archive-header\">\n")
-                .append("<p class=\"archive-breadcrumb\">\n")
-                .append("<a href=\"../../\">Channels</a> / #").append(safeChannel)
-                .append("</p>\n")
-                .append("<h1>#").append(safeChannel).append(" Archive</h1>\n")
-                .append("</header>\n");
-        body.append("<section class=\"archive-index\">\n")
-                .append("<h2>Years</h2>\n")
-                .append("<ul class=\"archive-year-list\">\n");
+        return render(out -> writeChannelIndex(out, channelName, years));
+    }
+
+    static void writeChannelIndex(Appendable out, String channelName, List<Integer> years)
+            throws IOException {
+        CHANNEL_DOCUMENT_START.render(out, "#" + normalize(channelName));
+        CHANNEL_INDEX_START.render(out, channelName);
         for (Integer year : years) {
-            body.append("<li><a href=\"").append(year).append("/\">\n")
-                    .append(year)
-                    .append("</a></li>\n");
+            YEAR_ITEM.render(out, year);
         }
-        body.append("</ul>\n")
-                .append("</section>");
-
-        return renderDocument("#" + normalize(channelName), CHANNEL_STYLESHEET_PATH,
-                body.toString());
+        LIST_END.render(out);
+        DOCUMENT_END.render(out);
     }
 
     static String renderYearIndex(String channelName, int year, List<Integer> months) {
+        return render(out -> writeYearIndex(out, channelName, year, months));
+    }
+
+    static void writeYearIndex(Appendable out, String channelName, int year, List<Integer> months)
+            throws IOException {
+        // The title escapes the already escaped channel name once more, as it always has.
         String safeChannel = escapeHtml(normalize(channelName));
-        String yearStr = String.valueOf(year);
-        StringBuilder body = new StringBuilder();
-        body.append("<header class=\"archive-header\">\n")
-                .append("<p class=\"archive-breadcrumb\">\n")
-                .append("<a href=\"../../../\">Channels</a> / ")
-                .append("<a href=\"../\">#").append(safeChannel).append("</a> / ")
-                .append(yearStr)
-                .append("</p>\n")
-                .append("<h1>#").append(safeChannel).append(" - ").append(yearStr).append("</h1>\n")
-                .append("</header>\n");
-        body.append("<section class=\"archive-index\">\n")
-                .append("<h2>Months</h2>\n")
-                .append("<ul class=\"archive-month-list\">\n");
+        YEAR_DOCUMENT_START.render(out, "#" + safeChannel + " " + year);
+        YEAR_INDEX_START.render(out, channelName, year);
         for (Integer month : months) {
-            String monthNum = String.format("%02d", month);
-            body.append("<li><a href=\"").append(monthNum).append("/\">\n")
-                    .append(monthNum)
-                    .append("</a></li>\n");
+            MONTH_ITEM.render(out, month);
         }
-        body.append("</ul>\n")
-                .append("</section>");
-        return renderDocument("#" + safeChannel + " " + yearStr, "../../../assets/chat-archive.css", body.toString());
+        LIST_END.render(out);
+        DOCUMENT_END.render(out);
     }
 
     static String renderMonthIndex(String channelName, int year, int month, List<LocalDate> dates) {
+        return render(out -> writeMonthIndex(out, channelName, year, month, dates));
+    }
+
+    static void writeMonthIndex(Appendable out, String channelName, int year, int month,
+            List<LocalDate> dates) throws IOException {
         String safeChannel = escapeHtml(normalize(channelName));
-        String monthNum = String.format("%02d", month);
-        StringBuilder body = new StringBuilder();
-        body.append("<header class=\"archive-header\">\n")
-                .append("<p class=\"archive-breadcrumb\">\n")
-                .append("<a href=\"../../../../\">Channels</a> / ")
-                .append("<a href=\"../../\">#").append(safeChannel).append("</a> / ")
-                .append("<a href=\"../\">").append(year).append("</a> / ")
-                .append(monthNum) // Use number here
-                .append("</p>\n")
-                .append("<h1>#").append(safeChannel).append(" - ").append(monthNum).append(" ").append(year).append("</h1>\n")
-                .append("</header>\n");
-        body.append("<section class=\"archive-index\">\n")
-                .append("<h2>Days</h2>\n")
-                .append("<ul class=\"archive-day-list\">\n");
+        MONTH_DOCUMENT_START.render(out, "#" + safeChannel + " " + (month < 10 ? "0" : "") + month);
+        MONTH_INDEX_START.render(out, channelName, year, month);
         for (LocalDate date : dates) {
-            String dayStr = String.format("%02d", date.getDayOfMonth());
-            body.append("<li><a href=\"").append(dayStr).append("/\">\n")
-                    .append(date.toString())
-                    .append("</a></li>\n");
+            DAY_ITEM.render(out, date.getDayOfMonth(), date.toString());
         }
-        body.append("</ul>\n")
-                .append("</section>");
-        return renderDocument("#" + safeChannel + " " + monthNum, "../../../../assets/chat-archive.css", body.toString());
+        LIST_END.render(out);
+        DOCUMENT_END.render(out);
     }
 
     static String renderGlobalIndex(List<String> channels) {
-        StringBuilder body = new StringBuilder();
-        body.append("<header class=\"archive-header\">\n")
-                .append("<h1>Chat Archive</h1>\n")
-                .append("</header>\n");
-        body.append("<section class=\"archive-index\">\n")
-                .append("<h2>Channels</h2>\n")
-                .append("<ul class=\"archive-channel-list\">\n");
-        for (String channel : channels) {
-            String safeChannel = escapeHtml(normalize(channel));
-            body.append("<li><a href=\"daily/")
-                    .append(safeChannel)
-                    .append("/\">#")
-                    .append(safeChannel)
-                    .append("</a></li>\n");
-        }
-        body.append("</ul>\n")
-                .append("</section>");
-
-        return renderDocument("Chat Archive", ROOT_STYLESHEET_PATH, body.toString());
-    }
-
-    private static String renderDocument(String title, String stylesheetPath, String bodyContent) {
-        StringBuilder builder = new StringBuilder();
-        builder.append("<!doctype html>\n");
-        builder.append("<html lang=\"en\">\n");
-        builder.append("<head>\n");
-        builder.append("  <meta charset=\"utf-8\">\n");
-        builder.append("  <meta name=\"viewport\" content=\"width=device-width, initial-scale=1\">\n");
-        builder.append("  <title>").append(escapeHtml(normalize(title))).append("</title>\n");
-        builder.append("  <link rel=\"stylesheet\" href=\"")
-                .append(stylesheetPath)
-                .append("\">\n");
-        builder.append("</head>\n");
-        builder.append("<body>\n");
-        builder.append("  <main class=\"archive-page\">\n");
-        builder.append(bodyContent).append('\n');
-        builder.append("  </main>\n");
-        builder.append("</body>\n");
-        builder.append("</html>\n");
-        return builder.toString();
+        return render(out -> writeGlobalIndex(out, channels));
     }
 
-    private static String renderMessageRow(Row row) {
-        StringBuilder builder = new StringBuilder();
-        builder.append("<article class=\"archive-message");
-        if (row.isReply()) {
-            builder.append(" archive-message-reply");
-        }
-        builder.append("\">\n");
-        builder.append("<div class=\"archive-meta\">\n");
-        if (row.isReply()) {
-            builder.append("<span class=\"archive-reply-indicator\" aria-hidden=\"true\">&rarr;</span>\n");
-            builder.append("<span class=\"archive-reply-label\">reply</span>\n");
-        }
-        builder.append(formatTimeCell(row));
-        builder.append("<span class=\"archive-user\">")
-                .append(escapeHtml(normalize(row.user())))
-                .append("</span>\n");
-        builder.append("</div>\n");
-        builder.append("<div class=\"archive-text\">\n")
-                .append(formatMessage(row.message()))
-                .append("</div>\n");
-        if (row.reactions() != null && !row.reactions().isEmpty()) {
-            builder.append("<div class=\"archive-reactions\">");
-            for (String reaction : row.reactions()) {
-                builder.append("<span class=\"archive-reaction\">")
-                        .append(escapeHtml(normalize(reaction)))
-                        .append("</span>\n");
-            }
-            builder.append("</div>\n");
+    static void writeGlobalIndex(Appendable out, List<String> channels) throws IOException {
+        ROOT_DOCUMENT_START.render(out, "Chat Archive");
+        GLOBAL_INDEX_START.render(out);
+        for (String channel : channels) {
+            CHANNEL_ITEM.render(out, channel);
         }
-        builder.append("</article>");
-        return builder.toString();
+        LIST_END.render(out);
+        DOCUMENT_END.render(out);
     }
 
-    private static String formatMessage(String value) {
-        String normalized = normalize(value);
-        if (normalized.isEmpty()) {
-            return "";
-        }
-
-        String[] lines = normalized.split("\n", -1);
-        StringBuilder builder = new StringBuilder();
-        ListType listType = ListType.NONE;
-
-        for (int index = 0; index < lines.length; index++) {
-            String line = lines[index];
-            Matcher unorderedMatcher = UNORDERED_LIST_PATTERN.matcher(line);
-            Matcher orderedMatcher = ORDERED_LIST_PATTERN.matcher(line);
-            if (unorderedMatcher.matches()) {
-                listType = switchToList(builder, listType, ListType.UNORDERED);
-                builder.append("<li>")
-                        .append(applyInlineMarkup(unorderedMatcher.group(1).trim()))
-                        .append("</li>\n");
-                continue;
-            }
-            if (orderedMatcher.matches()) {
-                listType = switchToList(builder, listType, ListType.ORDERED);
-                builder.append("<li>")
-                        .append(applyInlineMarkup(orderedMatcher.group(1).trim()))
-                        .append("</li>\n");
-                continue;
-            }
-
-            if (listType != ListType.NONE) {
-                closeList(builder, listType);
-                listType = ListType.NONE;
-            }
-
-            if (line.isBlank()) {
-                builder.append("<br>\n");
-                continue;
-            }
-
-            builder.append("<span class=\"archive-line\">")
-                    .append(applyInlineMarkup(line))
-                    .append("</span>\n");
-            if (index < lines.length - 1) {
-                builder.append("<br>");
-            }
-        }
+    static void writeSearchPage(Appendable out) throws IOException {
+        SEARCH_DOCUMENT_START.render(out, "Search - Chat Archive");
+        SEARCH_BODY.render(out);
+        DOCUMENT_END.render(out);
+    }
 
-        if (listType != ListType.NONE) {
-            closeList(builder, listType);
-        }
-        return builder.toString();
+    private static PageTemplate documentStart(String stylesheetPath) {
+        return PageTemplate.compile("""
+                <!doctype html>
+                <html lang="en">
+                <head>
+                  <meta charset="utf-8">
+                  <meta name="viewport" content="width=device-width, initial-scale=1">
+                  <title>{{text:title}}</title>
+                  <link rel="stylesheet" href="%s">
+                </head>
+                <body>
+                  <main class="archive-page">
+                """.formatted(stylesheetPath));
     }
 
-    private static String applyInlineMarkup(String line) {
-        Matcher matcher = ANCHOR_PATTERN.matcher(line);
+    private static String render(OutputManifest.Content content) {
         StringBuilder builder = new StringBuilder();
-        int cursor = 0;
-        while (matcher.find()) {
-            builder.append(applyInlineMarkupToText(line.substring(cursor, matcher.start())));
-            builder.append(matcher.group(1));
-            cursor = matcher.end();
+        try {
+            content.writeTo(builder);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // StringBuilder does not throw
         }
-        builder.append(applyInlineMarkupToText(line.substring(cursor)));
         return builder.toString();
     }
 
-    private static String applyInlineMarkupToText(String text) {
-        String formatted = replaceInlinePattern(text, BOLD_PATTERN, "strong");
-        formatted = replaceInlinePattern(formatted, ITALIC_PATTERN, "em");
-        formatted = replaceInlinePattern(formatted, STRIKE_PATTERN, "del");
-        return formatted;
-    }
-
-    private static String replaceInlinePattern(String input, Pattern pattern, String tagName) {
-        Matcher matcher = pattern.matcher(input);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            String inner = matcher.group(1);
-            matcher.appendReplacement(buffer, "<" + tagName + ">"
-                    + Matcher.quoteReplacement(inner) + "</" + tagName + ">");
-        }
-        matcher.appendTail(buffer);
-        return buffer.toString();
-    }
-
-    private static ListType switchToList(StringBuilder builder, ListType current,
-            ListType target) {
-        if (current == target) {
-            return current;
-        }
-        if (current != ListType.NONE) {
-            closeList(builder, current);
-        }
-        if (target == ListType.UNORDERED) {
-            builder.append("<ul class=\"archive-list\">\n");
-        } else if (target == ListType.ORDERED) {
-            builder.append("<ol class=\"archive-list archive-list-numbered\">\n");
-        }
-        return target;
-    }
-
-    private static void closeList(StringBuilder builder, ListType type) {
-        if (type == ListType.UNORDERED) {
-            builder.append("</ul>\n");
-        } else if (type == ListType.ORDERED) {
-            builder.append("</ol>\n");
-        }
-    }
-
-    private static String formatTimeCell(Row row) {
-        String label = escapeHtml(normalize(row.timeAbbrev()));
+    // text is scratch space for the message markup, reused across rows.
+    private static void writeMessageRow(Appendable out, Row row, StringBuilder text)
+            throws IOException {
+        (row.isReply() ? REPLY_START : MESSAGE_START).render(out);
         if (row.permalink() == null || row.permalink().isBlank()) {
-            return "<span class=\"archive-time\">" + label + "</span>";
+            TIME.render(out, row.timeAbbrev());
+        } else {
+            TIME_LINK.render(out, row.permalink(), row.rfcDatetime(), row.timeAbbrev());
         }
-        String href = escapeHtmlAttribute(normalize(row.permalink()));
-        String title = escapeHtmlAttribute(normalize(row.rfcDatetime()));
-        return "<a class=\"archive-time archive-time-link\" href=\"" + href + "\" title=\""
-                + title + "\">" + label + "</a>";
+        text.setLength(0);
+        MessageMarkup.appendHtml(row.message(), text);
+        MESSAGE_BODY.render(out, row.user(), text);
+        if (row.reactions() != null && !row.reactions().isEmpty()) {
+            REACTIONS_START.render(out);
+            for (String reaction : row.reactions()) {
+                REACTION.render(out, reaction);
+            }
+            REACTIONS_END.render(out);
+        }
+        MESSAGE_END.render(out);
     }
 
     private static String normalize(String value) {
@@ -375,16 +340,6 @@ final class HtmlRenderer {
                 .replace("'", "&#39;");
     }
 
-    private static String escapeHtmlAttribute(String value) {
-        return escapeHtml(value);
-    }
-
-    private enum ListType {
-        NONE,
-        UNORDERED,
-        ORDERED
-    }
-
     record Row(boolean isReply, String timeAbbrev, String rfcDatetime, String user, String message, String permalink,
             List<String> reactions) {
     }
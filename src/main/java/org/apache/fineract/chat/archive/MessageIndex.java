@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// In-memory full-text index of stored channel history and thread replies for serve mode, ranked
+// with BM25. Term positions are kept for phrase queries. History and replies are indexed a month
+// segment at a time; replacing a segment drops its old messages, and the postings are rebuilt
+// once dropped messages outnumber the live ones by more than 1024.
+final class MessageIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int SNIPPET_LENGTH = 200;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Segment, int[]> segments = new HashMap<>();
+    private List<Doc> docs = new ArrayList<>();
+    private long liveLength;
+    private int liveCount;
+    private volatile Map<String, String> userNames = Map.of();
+
+    // Display names by user id, for the user filter and the results.
+    void userNames(Map<String, String> names) {
+        this.userNames = Map.copyOf(names);
+    }
+
+    void replace(String channel, YearMonth month, List<SlackMessage> messages) {
+        replace(new Segment(channel, month, false), messages);
+    }
+
+    // Thread replies are segmented by the month of their parent, apart from the history.
+    void replaceReplies(String channel, YearMonth month, List<SlackMessage> replies) {
+        replace(new Segment(channel, month, true), replies);
+    }
+
+    private void replace(Segment segment, List<SlackMessage> messages) {
+        lock.writeLock().lock();
+        try {
+            int[] previous = segments.remove(segment);
+            if (previous != null) {
+                for (int id : previous) {
+                    remove(id);
+                }
+            }
+            List<Integer> added = new ArrayList<>(messages.size());
+            for (SlackMessage message : messages) {
+                if (message.ts() != null) {
+                    added.add(add(segment.channel(), message));
+                }
+            }
+            if (!added.isEmpty()) {
+                segments.put(segment, added.stream().mapToInt(Integer::intValue).toArray());
+            }
+            if (docs.size() > 2 * liveCount + 1024) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Messages with every term of the query, phrases in order, best first.
+    Results search(Query query, int limit) {
+        lock.readLock().lock();
+        try {
+            List<String> terms = query.terms();
+            if (terms.isEmpty() || liveCount == 0) {
+                return new Results(0, List.of());
+            }
+            Postings[] lists = new Postings[terms.size()];
+            for (int index = 0; index < lists.length; index++) {
+                lists[index] = postings.get(terms.get(index));
+                if (lists[index] == null || lists[index].live == 0) {
+                    return new Results(0, List.of());
+                }
+            }
+            Integer[] order = new Integer[lists.length];
+            for (int index = 0; index < order.length; index++) {
+                order[index] = index;
+            }
+            Arrays.sort(order, Comparator.comparingInt(index -> lists[index].size));
+            Postings rarest = lists[order[0]];
+            double averageLength = (double) liveLength / liveCount;
+            PriorityQueue<Hit> best = new PriorityQueue<>(Hit.RANKING.reversed());
+            int total = 0;
+            int[] slots = new int[lists.length];
+            for (int slot = 0; slot < rarest.size; slot++) {
+                int id = rarest.docs[slot];
+                Doc doc = docs.get(id);
+                if (doc == null || !query.accepts(doc, userNames)) {
+                    continue;
+                }
+                if (!locate(lists, id, slots) || !phrasesMatch(query, terms, lists, slots)) {
+                    continue;
+                }
+                double score = 0;
+                for (int index = 0; index < lists.length; index++) {
+                    int frequency = lists[index].positions[slots[index]].length;
+                    score += idf(lists[index].live) * frequency * (K1 + 1)
+                            / (frequency + K1 * (1 - B + B * doc.length() / averageLength));
+                }
+                total++;
+                best.add(new Hit(doc.channel(), doc.ts(), doc.date(), displayName(doc.userId()),
+                        doc.snippet(), score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(Hit.RANKING);
+            return new Results(total, hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Slack markup reduced to what a reader sees: labels of links, names of mentioned users and
+    // channels, and the three entities Slack escapes.
+    static String plainText(String text, Function<String, String> userNames) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder plain = new StringBuilder(text.length());
+        int index = 0;
+        while (index < text.length()) {
+            int open = text.indexOf('<', index);
+            int close = open < 0 ? -1 : text.indexOf('>', open);
+            if (close < 0) {
+                plain.append(text, index, text.length());
+                break;
+            }
+            plain.append(text, index, open);
+            String token = text.substring(open + 1, close);
+            int pipe = token.indexOf('|');
+            String target = pipe < 0 ? token : token.substring(0, pipe);
+            String label = pipe < 0 ? null : token.substring(pipe + 1);
+            if (target.startsWith("@")) {
+                String name = userNames.apply(target.substring(1));
+                plain.append('@').append(label != null ? label : name != null ? name
+                        : target.substring(1));
+            } else if (target.startsWith("#") || target.startsWith("!")) {
+                plain.append(target.charAt(0) == '#' ? "#" : "@")
+                        .append(label != null ? label : target.substring(1));
+            } else {
+                plain.append(label != null ? label + " (" + target + ")" : target);
+            }
+            index = close + 1;
+        }
+        return plain.toString().replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+    }
+
+    private int add(String channel, SlackMessage message) {
+        int id = docs.size();
+        String text = plainText(message.text(), userNames::get);
+        Map<String, List<Integer>> termPositions = new HashMap<>();
+        int[] length = new int[1];
+        SearchIndex.tokenize(text, term -> termPositions
+                .computeIfAbsent(term, key -> new ArrayList<>()).add(length[0]++));
+        for (Map.Entry<String, List<Integer>> entry : termPositions.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), key -> new Postings())
+                    .add(id, entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        String userId = message.user() != null ? message.user()
+                : message.botId() != null ? "bot:" + message.botId() : "unknown";
+        String snippet = text.length() > SNIPPET_LENGTH
+                ? text.substring(0, SNIPPET_LENGTH) + "…" : text;
+        docs.add(new Doc(channel, message.ts(), pageDate(message), userId, snippet,
+                termPositions.keySet().toArray(String[]::new), length[0]));
+        liveLength += length[0];
+        liveCount++;
+        return id;
+    }
+
+    private void remove(int id) {
+        Doc doc = docs.get(id);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.terms()) {
+            postings.get(term).live--;
+        }
+        docs.set(id, null);
+        liveLength -= doc.length();
+        liveCount--;
+    }
+
+    // Renumbers the live messages, dropping the postings of removed ones.
+    private void compact() {
+        List<Doc> live = docs;
+        Map<Segment, int[]> renumbered = new HashMap<>();
+        int[] ids = new int[live.size()];
+        int next = 0;
+        for (int id = 0; id < live.size(); id++) {
+            ids[id] = live.get(id) == null ? -1 : next++;
+        }
+        for (Map.Entry<Segment, int[]> segment : segments.entrySet()) {
+            renumbered.put(segment.getKey(), Arrays.stream(segment.getValue())
+                    .map(id -> ids[id]).toArray());
+        }
+        for (Postings list : postings.values()) {
+            list.renumber(ids);
+        }
+        postings.values().removeIf(list -> list.size == 0);
+        docs = new ArrayList<>(next);
+        for (Doc doc : live) {
+            if (doc != null) {
+                docs.add(doc);
+            }
+        }
+        segments.clear();
+        segments.putAll(renumbered);
+    }
+
+    // Finds id in every list; lists hold ids in ascending order.
+    private static boolean locate(Postings[] lists, int id, int[] slots) {
+        for (int index = 0; index < lists.length; index++) {
+            int slot = Arrays.binarySearch(lists[index].docs, 0, lists[index].size, id);
+            if (slot < 0) {
+                return false;
+            }
+            slots[index] = slot;
+        }
+        return true;
+    }
+
+    private static boolean phrasesMatch(Query query, List<String> terms, Postings[] lists,
+            int[] slots) {
+        for (List<String> phrase : query.phrases()) {
+            if (phrase.size() < 2) {
+                continue;
+            }
+            int[] first = lists[terms.indexOf(phrase.get(0))].positions[slots[terms.indexOf(
+                    phrase.get(0))]];
+            boolean found = false;
+            for (int start : first) {
+                boolean matches = true;
+                for (int offset = 1; offset < phrase.size() && matches; offset++) {
+                    int index = terms.indexOf(phrase.get(offset));
+                    matches = Arrays.binarySearch(lists[index].positions[slots[index]],
+                            start + offset) >= 0;
+                }
+                if (matches) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private String displayName(String userId) {
+        return userNames.getOrDefault(userId, userId);
+    }
+
+    // Replies are shown on the page of their thread's parent.
+    private static LocalDate pageDate(SlackMessage message) {
+        String ts = message.threadTs() != null ? message.threadTs() : message.ts();
+        return DirtyDateTracker.dateOf(ts);
+    }
+
+    // Words outside quotes are phrases of one term. Null filters match everything.
+    record Query(List<List<String>> phrases, String channel, String user, LocalDate from,
+            LocalDate to) {
+
+        static Query parse(String text, String channel, String user, LocalDate from,
+                LocalDate to) {
+            List<List<String>> phrases = new ArrayList<>();
+            String[] parts = (text == null ? "" : text).split("\"", -1);
+            for (int index = 0; index < parts.length; index++) {
+                List<String> terms = new ArrayList<>();
+                SearchIndex.tokenize(parts[index], terms::add);
+                if (index % 2 == 1 && !terms.isEmpty()) {
+                    phrases.add(List.copyOf(terms));
+                } else {
+                    terms.forEach(term -> phrases.add(List.of(term)));
+                }
+            }
+            return new Query(List.copyOf(phrases), channel, user, from, to);
+        }
+
+        List<String> terms() {
+            Set<String> terms = new LinkedHashSet<>();
+            phrases.forEach(terms::addAll);
+            return List.copyOf(terms);
+        }
+
+        private boolean accepts(Doc doc, Map<String, String> userNames) {
+            if (channel != null && !channel.equals(doc.channel())) {
+                return false;
+            }
+            if (user != null && !user.equalsIgnoreCase(doc.userId())) {
+                String name = userNames.get(doc.userId());
+                if (name == null || !user.toLowerCase(Locale.ROOT)
+                        .equals(name.toLowerCase(Locale.ROOT))) {
+                    return false;
+                }
+            }
+            return (from == null || !doc.date().isBefore(from))
+                    && (to == null || !doc.date().isAfter(to));
+        }
+    }
+
+    record Hit(String channel, String ts, LocalDate date, String user, String snippet,
+            double score) {
+
+        // Best score first, newer messages first among equals.
+        static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparing(hit -> SlackTimestamp.pack(hit.ts()), Comparator.reverseOrder());
+    }
+
+    record Results(int total, List<Hit> hits) {
+    }
+
+    private record Segment(String channel, YearMonth month, boolean replies) {
+    }
+
+    // terms are the distinct terms of the message, to update document frequencies on removal.
+    private record Doc(String channel, String ts, LocalDate date, String userId, String snippet,
+            String[] terms, int length) {
+    }
+
+    // Ids ascend as messages are added; removed ones stay until compact() and only leave live.
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[][] positions = new int[4][];
+        private int size;
+        private int live;
+
+        void add(int id, int[] termPositions) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            docs[size] = id;
+            positions[size] = termPositions;
+            size++;
+            live++;
+        }
+
+        void renumber(int[] ids) {
+            int kept = 0;
+            for (int slot = 0; slot < size; slot++) {
+                int id = ids[docs[slot]];
+                if (id >= 0) {
+                    docs[kept] = id;
+                    positions[kept] = positions[slot];
+                    kept++;
+                }
+            }
+            Arrays.fill(positions, kept, size, null);
+            size = kept;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+// Turns formatted message text (see SlackTextFormatter) into HTML lines, lists and inline
+// *bold*, _italic_ and ~strike~ markup, writing straight into the page builder.
+//
+// The rules are those of the regular expressions this replaced, and MessageMarkupDifferentialTest
+// keeps the two in step:
+//   list item   ^\s*(?:[-*]|•)\s+(.+)$  or  ^\s*\d+\.\s+(.+)$
+//   anchor      <a\b[^>]*>.*?</a>  (case-insensitive), copied verbatim
+//   inline      (?<!\w)M(\S(?:.*?\S)?)M(?!\w)  for M in * _ ~, applied in that order
+final class MessageMarkup {
+
+    private static final byte NONE = 0;
+    private static final String[] OPEN_TAGS = {null, "<strong>", "<em>", "<del>"};
+    private static final String[] CLOSE_TAGS = {null, "</strong>", "</em>", "</del>"};
+    private static final byte BOLD = 1;
+    private static final byte ITALIC = 2;
+    private static final byte STRIKE = 3;
+    private static final byte CLOSING = 4;
+
+    private MessageMarkup() {}
+
+    static void appendHtml(String value, StringBuilder out) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        int length = value.length();
+        ListType listType = ListType.NONE;
+        int lineStart = 0;
+        while (true) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && value.charAt(lineEnd) != '\n' && value.charAt(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            boolean lastLine = lineEnd == length;
+
+            ListType itemType = ListType.UNORDERED;
+            int itemStart = listItemStart(value, lineStart, lineEnd, false);
+            if (itemStart < 0) {
+                itemType = ListType.ORDERED;
+                itemStart = listItemStart(value, lineStart, lineEnd, true);
+            }
+            if (itemStart >= 0) {
+                listType = switchToList(out, listType, itemType);
+                int itemEnd = lineEnd;
+                while (itemStart < itemEnd && value.charAt(itemStart) <= ' ') {
+                    itemStart++;
+                }
+                while (itemEnd > itemStart && value.charAt(itemEnd - 1) <= ' ') {
+                    itemEnd--;
+                }
+                out.append("<li>");
+                appendInline(value, itemStart, itemEnd, out);
+                out.append("</li>\n");
+            } else {
+                if (listType != ListType.NONE) {
+                    closeList(out, listType);
+                    listType = ListType.NONE;
+                }
+                if (isBlank(value, lineStart, lineEnd)) {
+                    out.append("<br>\n");
+                } else {
+                    out.append("<span class=\"archive-line\">");
+                    appendInline(value, lineStart, lineEnd, out);
+                    out.append("</span>\n");
+                    if (!lastLine) {
+                        out.append("<br>");
+                    }
+                }
+            }
+
+            if (lastLine) {
+                break;
+            }
+            // \r\n, \r and \n all end a line.
+            lineStart = lineEnd + 1;
+            if (value.charAt(lineEnd) == '\r' && lineStart < length && value.charAt(lineStart) == '\n') {
+                lineStart++;
+            }
+        }
+        if (listType != ListType.NONE) {
+            closeList(out, listType);
+        }
+    }
+
+    // Start of the item text after the list marker, or -1 if the line is not a list item.
+    private static int listItemStart(String value, int start, int end, boolean ordered) {
+        int index = start;
+        while (index < end && isSpace(value.charAt(index))) {
+            index++;
+        }
+        if (ordered) {
+            int digits = index;
+            while (index < end && value.charAt(index) >= '0' && value.charAt(index) <= '9') {
+                index++;
+            }
+            if (index == digits || index == end || value.charAt(index) != '.') {
+                return -1;
+            }
+        } else if (index == end || (value.charAt(index) != '-' && value.charAt(index) != '*'
+                && value.charAt(index) != '•')) {
+            return -1;
+        }
+        index++;
+        // At least one space, then at least one character, none of them a line terminator.
+        if (end - index < 2 || !isSpace(value.charAt(index))) {
+            return -1;
+        }
+        for (int rest = index + 1; rest < end; rest++) {
+            if (isLineTerminator(value.charAt(rest))) {
+                return -1;
+            }
+        }
+        return index;
+    }
+
+    private static void appendInline(String value, int start, int end, StringBuilder out) {
+        int cursor = start;
+        int index = start;
+        while (index < end) {
+            int anchorEnd = value.charAt(index) == '<' ? anchorEnd(value, index, end) : -1;
+            if (anchorEnd < 0) {
+                index++;
+                continue;
+            }
+            appendMarkedText(value, cursor, index, out);
+            out.append(value, index, anchorEnd);
+            cursor = anchorEnd;
+            index = anchorEnd;
+        }
+        appendMarkedText(value, cursor, end, out);
+    }
+
+    // End of the <a ...>...</a> element starting at start, or -1.
+    private static int anchorEnd(String value, int start, int end) {
+        if (start + 1 >= end || (value.charAt(start + 1) != 'a' && value.charAt(start + 1) != 'A')
+                || (start + 2 < end && isWord(value.charAt(start + 2)))) {
+            return -1;
+        }
+        int tagEnd = value.indexOf('>', start + 2);
+        if (tagEnd < 0 || tagEnd >= end) {
+            return -1;
+        }
+        for (int index = tagEnd + 1; index < end; index++) {
+            if (value.regionMatches(true, index, "</a>", 0, 4) && index + 4 <= end) {
+                return index + 4;
+            }
+            if (isLineTerminator(value.charAt(index))) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static void appendMarkedText(String value, int start, int end, StringBuilder out) {
+        byte[] marks = null;
+        for (int index = start; index < end && marks == null; index++) {
+            char c = value.charAt(index);
+            if (c == '*' || c == '_' || c == '~') {
+                marks = new byte[end - start];
+            }
+        }
+        if (marks == null) {
+            out.append(value, start, end);
+            return;
+        }
+        mark(value, start, end, '*', BOLD, marks);
+        mark(value, start, end, '_', ITALIC, marks);
+        mark(value, start, end, '~', STRIKE, marks);
+        for (int index = start; index < end; index++) {
+            byte mark = marks[index - start];
+            if (mark == NONE) {
+                out.append(value.charAt(index));
+            } else if (mark < CLOSING) {
+                out.append(OPEN_TAGS[mark]);
+            } else {
+                out.append(CLOSE_TAGS[mark - CLOSING]);
+            }
+        }
+    }
+
+    // Records every marker pair a left-to-right regex find would replace. The passes ran one
+    // after another, so underscores already turned into <em> tags no longer count as word
+    // characters for ~strike~.
+    private static void mark(String value, int start, int end, char marker, byte type,
+            byte[] marks) {
+        int index = start;
+        while (index < end) {
+            int close = value.charAt(index) == marker
+                    ? closingMarker(value, start, end, index, marker, type, marks) : -1;
+            if (close < 0) {
+                index++;
+                continue;
+            }
+            marks[index - start] = type;
+            marks[close - start] = (byte) (type + CLOSING);
+            index = close + 1;
+        }
+    }
+
+    private static int closingMarker(String value, int start, int end, int open, char marker,
+            byte type, byte[] marks) {
+        if (isWordAt(value, start, end, open - 1, type, marks) || open + 1 >= end
+                || isSpace(value.charAt(open + 1))) {
+            return -1;
+        }
+        // (?:.*?\S)? is tried first, so the shortest span of two or more code points wins and a
+        // single code point is the fallback. A marker already replaced by an earlier pass stands
+        // for a whole tag, which is long enough on its own.
+        int firstEnd = open + Character.charCount(value.codePointAt(open + 1)) + 1;
+        int firstClose = isEarlierMark(marks[open + 1 - start], type) ? firstEnd : firstEnd + 1;
+        for (int close = firstClose; close < end; close++) {
+            if (close - 2 >= firstEnd && isLineTerminator(value.charAt(close - 2))) {
+                break;
+            }
+            if (value.charAt(close) == marker && !isSpace(value.charAt(close - 1))
+                    && !isWordAt(value, start, end, close + 1, type, marks)) {
+                return close;
+            }
+        }
+        int close = firstEnd;
+        if (close < end && value.charAt(close) == marker
+                && !isWordAt(value, start, end, close + 1, type, marks)) {
+            return close;
+        }
+        return -1;
+    }
+
+    private static boolean isWordAt(String value, int start, int end, int index, byte type,
+            byte[] marks) {
+        if (index < start || index >= end) {
+            return false;
+        }
+        return !isEarlierMark(marks[index - start], type) && isWord(value.charAt(index));
+    }
+
+    private static boolean isEarlierMark(byte mark, byte type) {
+        return mark != NONE && (mark < CLOSING ? mark : mark - CLOSING) < type;
+    }
+
+    private static boolean isWord(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_';
+    }
+
+    // \s without UNICODE_CHARACTER_CLASS
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // characters . does not match
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isBlank(String value, int start, int end) {
+        for (int index = start; index < end; index++) {
+            if (!Character.isWhitespace(value.charAt(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ListType switchToList(StringBuilder builder, ListType current,
+            ListType target) {
+        if (current == target) {
+            return current;
+        }
+        if (current != ListType.NONE) {
+            closeList(builder, current);
+        }
+        if (target == ListType.UNORDERED) {
+            builder.append("<ul class=\"archive-list\">\n");
+        } else if (target == ListType.ORDERED) {
+            builder.append("<ol class=\"archive-list archive-list-numbered\">\n");
+        }
+        return target;
+    }
+
+    private static void closeList(StringBuilder builder, ListType type) {
+        if (type == ListType.UNORDERED) {
+            builder.append("</ul>\n");
+        } else if (type == ListType.ORDERED) {
+            builder.append("</ol>\n");
+        }
+    }
+
+    private enum ListType {
+        NONE,
+        UNORDERED,
+        ORDERED
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// SHA-256 and size of every file written to the output dir, so an unchanged page is recognised
+// by hashing the new content instead of reading the old file back. A file that is missing from
+// the manifest or no longer has the recorded size is read and hashed instead. Either way only
+// changed pages are written to disk, and those are rendered twice. Modification times are not
+// recorded: CI checks the output out fresh on every run.
+final class OutputManifest {
+
+    private static final String MANIFEST_FILE_NAME = "output-manifest.json";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path manifestFile;
+    private final Path outputDir;
+    private final ArchiveConfig.ManifestMode mode;
+    private final OutputTransaction transaction;
+    private final Precompressor precompressor;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final AtomicLong trusted = new AtomicLong();
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong mismatched = new AtomicLong();
+
+    OutputManifest(Path stateDir, Path outputDir, ArchiveConfig.ManifestMode mode,
+            OutputTransaction transaction, Precompressor precompressor) {
+        this.manifestFile = stateDir.resolve(MANIFEST_FILE_NAME);
+        this.outputDir = outputDir;
+        this.mode = mode;
+        this.transaction = transaction;
+        this.precompressor = precompressor;
+        this.objectMapper = new ObjectMapper()
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    void load() throws IOException {
+        if (!Files.exists(manifestFile)) {
+            return;
+        }
+        ManifestState state = objectMapper.readValue(manifestFile.toFile(), ManifestState.class);
+        if (state.files() != null) {
+            entries.putAll(state.files());
+        }
+    }
+
+    // Entries describe staged content, so save only after the transaction committed.
+    void save() throws IOException {
+        if (!changed.get()) {
+            return;
+        }
+        ManifestState state = new ManifestState(new TreeMap<>(entries));
+        FileWriterUtil.replaceAtomically(manifestFile,
+                temp -> objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(),
+                        state));
+        changed.set(false);
+    }
+
+    boolean writeIfChanged(Path path, String content) throws IOException {
+        return writeIfChanged(path, out -> out.append(content));
+    }
+
+    // Content is rendered straight into a sink, so even a large page is never held in memory as
+    // a whole. A page that may be unchanged is first only hashed and compared, so it costs no
+    // disk write; a changed page is rendered a second time, into a staged file.
+    boolean writeIfChanged(Path path, Content content) throws IOException {
+        String key = key(path);
+        Entry entry = entries.get(key);
+        Path current = transaction.current(path);
+        long size = current == null ? -1 : sizeOf(current);
+        if (size >= 0) {
+            HashingUtf8Sink hash = HashingUtf8Sink.hashOnly();
+            try (hash) {
+                content.writeTo(hash);
+            }
+            String sha256 = hash.sha256();
+            boolean known = entry != null && entry.size() == size;
+            if (known && mode == ArchiveConfig.ManifestMode.TRUST) {
+                trusted.incrementAndGet();
+                if (entry.sha256().equals(sha256)) {
+                    precompressor.ensure(path, current);
+                    return false;
+                }
+            } else {
+                read.incrementAndGet();
+                String currentSha256 = sha256(current);
+                if (known && !entry.sha256().equals(currentSha256)) {
+                    mismatched.incrementAndGet();
+                }
+                if (currentSha256.equals(sha256)) {
+                    String changedAt = known && entry.sha256().equals(sha256)
+                            ? entry.changed() : null;
+                    record(key, new Entry(sha256, hash.size(), changedAt));
+                    precompressor.ensure(path, current);
+                    return false;
+                }
+            }
+        }
+        Path staged = transaction.newStagedFile();
+        HashingUtf8Sink sink = new HashingUtf8Sink(staged);
+        try (sink) {
+            content.writeTo(sink);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(staged);
+            throw ex;
+        }
+        transaction.write(path, staged);
+        precompressor.compress(path, staged);
+        record(key, new Entry(sink.sha256(), sink.size(),
+                Instant.now().truncatedTo(ChronoUnit.SECONDS).toString()));
+        return true;
+    }
+
+    boolean deleteIfExists(Path path) throws IOException {
+        if (entries.remove(key(path)) != null) {
+            changed.set(true);
+        }
+        precompressor.delete(path);
+        Path current = transaction.current(path);
+        if (current == null || !Files.exists(current)) {
+            return false;
+        }
+        transaction.delete(path);
+        return true;
+    }
+
+    // When the content of the file last changed, as an ISO-8601 instant; null if unknown.
+    String changedAt(Path path) {
+        Entry entry = entries.get(key(path));
+        return entry == null ? null : entry.changed();
+    }
+
+    String summary() {
+        return trusted.get() + " file(s) checked against the manifest, " + read.get()
+                + " read back, " + mismatched.get() + " stale manifest hash(es)";
+    }
+
+    private void record(String key, Entry entry) {
+        if (!entry.equals(entries.put(key, entry))) {
+            changed.set(true);
+        }
+    }
+
+    private String key(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        Path root = outputDir.toAbsolutePath().normalize();
+        Path relative = absolute.startsWith(root) ? root.relativize(absolute) : absolute;
+        return relative.toString().replace('\\', '/');
+    }
+
+    private static long sizeOf(Path path) throws IOException {
+        try {
+            return Files.size(path);
+        } catch (NoSuchFileException ex) {
+            return -1;
+        }
+    }
+
+    private static String sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available.", ex);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HEX.formatHex(digest.digest());
+    }
+
+    interface Content {
+        void writeTo(Appendable out) throws IOException;
+    }
+
+    // changed is null for files recorded before change times were tracked.
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Entry(String sha256, long size, String changed) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ManifestState(Map<String, Entry> files) {
+    }
+}
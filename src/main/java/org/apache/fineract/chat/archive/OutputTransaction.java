@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Batches the output files of a run. Writes are staged under STATE_DIR/staging and synced; only
+// commit() moves them into place. commit() first writes a journal of the moves, so a run that
+// dies halfway through the moves is finished by recover() on the next run, and one that dies
+// before commit() leaves the previous output untouched.
+final class OutputTransaction {
+
+    private static final Logger LOG = Logger.getLogger(OutputTransaction.class.getName());
+    private static final String STAGING_DIR_NAME = "staging";
+    private static final String JOURNAL_FILE_NAME = "journal.json";
+    private static final TypeReference<List<Change>> CHANGE_LIST = new TypeReference<>() {};
+
+    private final Path stagingDir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Path, Change> changes = new ConcurrentHashMap<>();
+    private final Queue<Path> discarded = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    OutputTransaction(Path stateDir) {
+        this.stagingDir = stateDir.resolve(STAGING_DIR_NAME);
+    }
+
+    // Completes a journaled commit of an earlier run and drops anything it staged but never
+    // committed.
+    void recover() throws IOException {
+        Path journal = stagingDir.resolve(JOURNAL_FILE_NAME);
+        if (Files.exists(journal)) {
+            List<Change> journaled = objectMapper.readValue(journal.toFile(), CHANGE_LIST);
+            apply(journaled);
+            LOG.info("Completed interrupted commit of " + journaled.size() + " output file(s).");
+        }
+        if (Files.isDirectory(stagingDir)) {
+            try (Stream<Path> files = Files.list(stagingDir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    void write(Path target, byte[] content) throws IOException {
+        Path staged = newStagedFile();
+        Files.write(staged, content);
+        write(target, staged);
+    }
+
+    // A fresh path under the staging dir, for content that is written before it is known
+    // whether it changed. Hand it to write(Path, Path) or delete it.
+    Path newStagedFile() throws IOException {
+        Files.createDirectories(stagingDir);
+        return stagingDir.resolve(sequence.incrementAndGet() + ".tmp").toAbsolutePath();
+    }
+
+    void write(Path target, Path staged) throws IOException {
+        FileWriterUtil.force(staged);
+        Path key = key(target);
+        discard(changes.put(key, new Change(key.toString(), staged.toAbsolutePath().toString())));
+    }
+
+    void delete(Path target) throws IOException {
+        Path key = key(target);
+        discard(changes.put(key, new Change(key.toString(), null)));
+    }
+
+    // Where the content of target can be read within this batch; null once it is deleted. The
+    // file stays readable until commit(), even if target is written again.
+    Path current(Path target) {
+        Change change = changes.get(key(target));
+        if (change == null) {
+            return target;
+        }
+        return change.staged() == null ? null : Path.of(change.staged());
+    }
+
+    int pending() {
+        return changes.size();
+    }
+
+    // Moves every staged file into place and returns how many files changed.
+    int commit() throws IOException {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        List<Change> batch = new ArrayList<>(changes.values());
+        batch.sort(Comparator.comparing(Change::target));
+        Path journal = stagingDir.resolve(JOURNAL_FILE_NAME);
+        FileWriterUtil.replaceAtomically(journal,
+                temp -> objectMapper.writeValue(temp.toFile(), batch));
+        FileWriterUtil.forceDirectory(stagingDir);
+        apply(batch);
+        Files.delete(journal);
+        changes.clear();
+        Path superseded;
+        while ((superseded = discarded.poll()) != null) {
+            Files.deleteIfExists(superseded);
+        }
+        return batch.size();
+    }
+
+    // Safe to repeat: moves whose staged file is gone already happened.
+    private static void apply(List<Change> batch) throws IOException {
+        Set<Path> directories = new TreeSet<>();
+        for (Change change : batch) {
+            Path target = Path.of(change.target());
+            if (change.staged() == null) {
+                FileWriterUtil.deleteIfExists(target);
+                continue;
+            }
+            Path staged = Path.of(change.staged());
+            if (Files.exists(staged)) {
+                Files.createDirectories(target.getParent());
+                FileWriterUtil.move(staged, target);
+                directories.add(target.getParent());
+            }
+        }
+        for (Path directory : directories) {
+            FileWriterUtil.forceDirectory(directory);
+        }
+    }
+
+    private void discard(Change previous) {
+        if (previous != null && previous.staged() != null) {
+            discarded.add(Path.of(previous.staged()));
+        }
+    }
+
+    private static Path key(Path target) {
+        return target.toAbsolutePath().normalize();
+    }
+
+    // staged is null for a deletion.
+    record Change(String target, String staged) {
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// A page layout compiled once into literal segments, stored UTF-8 encoded, and typed slots in
+// between. Slots are written as {{kind:name}}:
+//   text  CharSequence, HTML-escaped with line breaks normalized to \n
+//   html  CharSequence, written as is
+//   int   Integer
+//   2d    Integer, zero-padded to two digits
+// render() takes one value per distinct name, in the order the names first appear. Writing into a
+// HashingUtf8Sink copies the encoded segments; any other Appendable gets them as strings.
+final class PageTemplate {
+
+    private final String[] texts;
+    private final byte[][] segments;
+    private final Kind[] kinds;
+    private final int[] valueIndexes;
+    private final int valueCount;
+
+    private PageTemplate(List<String> texts, List<Kind> kinds, List<Integer> valueIndexes,
+            int valueCount) {
+        this.texts = texts.toArray(String[]::new);
+        this.segments = new byte[this.texts.length][];
+        for (int index = 0; index < this.texts.length; index++) {
+            segments[index] = this.texts[index].getBytes(StandardCharsets.UTF_8);
+        }
+        this.kinds = kinds.toArray(Kind[]::new);
+        this.valueIndexes = valueIndexes.stream().mapToInt(Integer::intValue).toArray();
+        this.valueCount = valueCount;
+    }
+
+    static PageTemplate compile(String source) {
+        List<String> texts = new ArrayList<>();
+        List<Kind> kinds = new ArrayList<>();
+        List<Integer> valueIndexes = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open);
+            int colon = source.indexOf(':', open);
+            if (close < 0 || colon < 0 || colon > close) {
+                throw new IllegalArgumentException("Malformed slot at " + open + " in template.");
+            }
+            texts.add(source.substring(position, open));
+            kinds.add(Kind.parse(source.substring(open + 2, colon)));
+            String name = source.substring(colon + 1, close);
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+            valueIndexes.add(names.indexOf(name));
+            position = close + 2;
+        }
+        texts.add(source.substring(position));
+        return new PageTemplate(texts, kinds, valueIndexes, names.size());
+    }
+
+    void render(Appendable out, Object... values) throws IOException {
+        if (values.length != valueCount) {
+            throw new IllegalArgumentException("Expected " + valueCount + " value(s), got "
+                    + values.length + ".");
+        }
+        HashingUtf8Sink sink = out instanceof HashingUtf8Sink hashing ? hashing : null;
+        for (int index = 0; index < kinds.length; index++) {
+            writeSegment(out, sink, index);
+            Object value = values[valueIndexes[index]];
+            switch (kinds[index]) {
+                case TEXT -> appendEscaped(out, (CharSequence) value);
+                case HTML -> out.append((CharSequence) value);
+                case INT -> out.append(Integer.toString((Integer) value));
+                case TWO_DIGITS -> appendTwoDigits(out, (Integer) value);
+            }
+        }
+        writeSegment(out, sink, kinds.length);
+    }
+
+    // Same as escaping after replacing \r\n and \r by \n, without the intermediate strings.
+    static void appendEscaped(Appendable out, CharSequence value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        for (int index = 0; index < length; index++) {
+            char c = value.charAt(index);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                case '\r' -> {
+                    out.append('\n');
+                    if (index + 1 < length && value.charAt(index + 1) == '\n') {
+                        index++;
+                    }
+                }
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private void writeSegment(Appendable out, HashingUtf8Sink sink, int index)
+            throws IOException {
+        if (sink != null) {
+            sink.write(segments[index]);
+        } else {
+            out.append(texts[index]);
+        }
+    }
+
+    private static void appendTwoDigits(Appendable out, int value) throws IOException {
+        if (value < 0 || value > 99) {
+            out.append(Integer.toString(value));
+            return;
+        }
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private enum Kind {
+        TEXT, HTML, INT, TWO_DIGITS;
+
+        static Kind parse(String value) {
+            return switch (value) {
+                case "text" -> TEXT;
+                case "html" -> HTML;
+                case "int" -> INT;
+                case "2d" -> TWO_DIGITS;
+                default -> throw new IllegalArgumentException("Unknown slot kind " + value + ".");
+            };
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+final class PermalinkResolver {
+
+    private static final Logger LOG = Logger.getLogger(PermalinkResolver.class.getName());
+
+    private final ArchiveConfig.PermalinkMode mode;
+    private final String workspaceUrl;
+    private final SlackApiClient slackApiClient;
+    private final String token;
+    private final Map<String, String> cache;
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger verifySamplesLeft;
+    private final AtomicInteger verifiedMatches = new AtomicInteger();
+    private final AtomicInteger verifiedMismatches = new AtomicInteger();
+
+    // cache must be safe for concurrent use; failed lookups are kept out of it
+    PermalinkResolver(ArchiveConfig.PermalinkMode mode, String workspaceUrl, int verifySamples,
+            SlackApiClient slackApiClient, String token, Map<String, String> cache) {
+        boolean canSynthesize = workspaceUrl != null && !workspaceUrl.isBlank();
+        if (mode != ArchiveConfig.PermalinkMode.API && !canSynthesize) {
+            LOG.warning("Slack auth.test returned no workspace URL. Falling back to chat.getPermalink.");
+            mode = ArchiveConfig.PermalinkMode.API;
+        }
+        this.mode = mode;
+        this.workspaceUrl = canSynthesize ? stripTrailingSlash(workspaceUrl.trim()) : "";
+        this.slackApiClient = slackApiClient;
+        this.token = token;
+        this.cache = cache;
+        this.verifySamplesLeft = new AtomicInteger(verifySamples);
+    }
+
+    String resolve(String channelId, SlackMessage message) {
+        String messageTs = message.ts();
+        if (messageTs == null || messageTs.isBlank()) {
+            return null;
+        }
+        String cacheKey = PermalinkStore.key(channelId, messageTs);
+        String cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        return switch (mode) {
+            case API -> fetch(channelId, messageTs, cacheKey);
+            case SYNTHESIZE -> synthesize(workspaceUrl, channelId, messageTs, message.threadTs());
+            case VERIFY -> verify(channelId, message, cacheKey);
+        };
+    }
+
+    void logVerificationSummary() {
+        if (mode != ArchiveConfig.PermalinkMode.VERIFY) {
+            return;
+        }
+        String summary = "Permalink verification: " + verifiedMatches.get() + " matched, "
+                + verifiedMismatches.get() + " mismatched.";
+        if (verifiedMismatches.get() > 0) {
+            LOG.warning(summary + " Synthesized permalinks differ from chat.getPermalink;"
+                    + " keep PERMALINK_MODE=api.");
+        } else {
+            LOG.info(summary);
+        }
+    }
+
+    static String synthesize(String workspaceUrl, String channelId, String messageTs,
+            String threadTs) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(stripTrailingSlash(workspaceUrl))
+                .append("/archives/").append(channelId)
+                .append("/p").append(messageTs.replace(".", ""));
+        if (threadTs != null && !threadTs.equals(messageTs)) {
+            builder.append("?thread_ts=")
+                    .append(URLEncoder.encode(threadTs, StandardCharsets.UTF_8))
+                    .append("&cid=")
+                    .append(URLEncoder.encode(channelId, StandardCharsets.UTF_8));
+        }
+        return builder.toString();
+    }
+
+    private String verify(String channelId, SlackMessage message, String cacheKey) {
+        String synthesized = synthesize(workspaceUrl, channelId, message.ts(), message.threadTs());
+        if (verifySamplesLeft.getAndDecrement() <= 0) {
+            return synthesized;
+        }
+        String fetched = fetch(channelId, message.ts(), cacheKey);
+        if (fetched == null) {
+            return synthesized;
+        }
+        if (Objects.equals(fetched, synthesized)) {
+            verifiedMatches.incrementAndGet();
+        } else {
+            verifiedMismatches.incrementAndGet();
+            LOG.warning("Synthesized permalink " + synthesized + " does not match "
+                    + fetched + ".");
+        }
+        return fetched;
+    }
+
+    private String fetch(String channelId, String messageTs, String cacheKey) {
+        if (failed.contains(cacheKey)) {
+            return null;
+        }
+        SlackApiClient.PermalinkResponse response;
+        try {
+            response = slackApiClient.getPermalink(token, channelId, messageTs);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Slack chat.getPermalink call failed.", ex);
+            failed.add(cacheKey);
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.WARNING, "Slack chat.getPermalink call interrupted.", ex);
+            failed.add(cacheKey);
+            return null;
+        }
+        if (!response.ok()) {
+            LOG.warning("Slack chat.getPermalink not ok: " + response.error());
+            failed.add(cacheKey);
+            return null;
+        }
+        if (response.permalink() == null) {
+            failed.add(cacheKey);
+            return null;
+        }
+        cache.put(cacheKey, response.permalink());
+        return response.permalink();
+    }
+
+    private static String stripTrailingSlash(String value) {
+        String normalized = value;
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+}
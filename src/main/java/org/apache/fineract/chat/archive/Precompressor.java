@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Stages a gzip copy next to every output file that changes, for hosts that serve precompressed
+// files. Compression runs on its own pool while rendering goes on; await() before committing.
+final class Precompressor implements AutoCloseable {
+
+    static final String GZIP_SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ArchiveConfig.Precompression mode;
+    private final OutputTransaction transaction;
+    private final ExecutorService pool;
+    private final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+
+    Precompressor(ArchiveConfig.Precompression mode, int parallelism,
+            OutputTransaction transaction) {
+        this.mode = mode;
+        this.transaction = transaction;
+        this.pool = mode == ArchiveConfig.Precompression.NONE ? null
+                : Executors.newFixedThreadPool(parallelism);
+    }
+
+    // source holds the new content of path and must stay in place until await() returns. With
+    // precompression off, a copy of the old content is removed instead.
+    void compress(Path path, Path source) throws IOException {
+        if (pool == null) {
+            delete(path);
+            return;
+        }
+        pending.add(pool.submit(() -> {
+            try {
+                Path staged = transaction.newStagedFile();
+                gzip(source, staged);
+                transaction.write(sibling(path), staged);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }));
+    }
+
+    // For unchanged files, so turning precompression on fills in the missing copies.
+    void ensure(Path path, Path source) throws IOException {
+        if (pool != null && !exists(sibling(path))) {
+            compress(path, source);
+        }
+    }
+
+    // Removes the copy even with precompression off, so it never outlives its file.
+    void delete(Path path) throws IOException {
+        Path sibling = sibling(path);
+        if (exists(sibling)) {
+            transaction.delete(sibling);
+        }
+    }
+
+    void await() throws IOException, InterruptedException {
+        Future<?> next;
+        while ((next = pending.poll()) != null) {
+            try {
+                next.get();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                throw new IOException("Failed to compress output.", ex.getCause());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    // Maximum compression: each file is compressed once and then served many times. The header
+    // carries no timestamp, so unchanged content compresses to the same bytes.
+    static void gzip(Path source, Path target) throws IOException {
+        try (OutputStream file = Files.newOutputStream(target);
+                GZIPOutputStream out = new GZIPOutputStream(file, BUFFER_SIZE) {
+                    {
+                        def.setLevel(Deflater.BEST_COMPRESSION);
+                    }
+                }) {
+            Files.copy(source, out);
+        }
+    }
+
+    private boolean exists(Path path) {
+        Path current = transaction.current(path);
+        return current != null && Files.exists(current);
+    }
+
+    private static Path sibling(Path path) {
+        return path.resolveSibling(path.getFileName() + GZIP_SUFFIX);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class RateLimiter {
+
+    static final int MAX_ATTEMPTS = 5;
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(60);
+
+    private final Map<SlackMethod, Bucket> buckets = new EnumMap<>(SlackMethod.class);
+    private final Map<SlackMethod, Counters> counters = new EnumMap<>(SlackMethod.class);
+    private final boolean pacing;
+
+    RateLimiter() {
+        this(true);
+    }
+
+    // Without pacing only 429s slow callers down, e.g. against a local stand-in for Slack.
+    RateLimiter(boolean pacing) {
+        this.pacing = pacing;
+        for (SlackMethod method : SlackMethod.values()) {
+            buckets.put(method, new Bucket(method.burst(), method.requestsPerMinute(),
+                    System.nanoTime()));
+            counters.put(method, new Counters());
+        }
+    }
+
+    void acquire(SlackMethod method) throws InterruptedException {
+        counters.get(method).requests.incrementAndGet();
+        Bucket bucket = buckets.get(method);
+        long waitNanos = pacing ? bucket.reserve(System.nanoTime())
+                : bucket.pausedFor(System.nanoTime());
+        if (waitNanos > 0) {
+            counters.get(method).paced.incrementAndGet();
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    // Slack said slow down: hold every caller of this method back for the delay.
+    Duration throttled(SlackMethod method, int attempt, Optional<Duration> retryAfter) {
+        counters.get(method).throttled.incrementAndGet();
+        Duration delay = backoffDelay(attempt, retryAfter,
+                ThreadLocalRandom.current().nextDouble());
+        buckets.get(method).pauseUntil(System.nanoTime() + delay.toNanos());
+        return delay;
+    }
+
+    Duration retrying(SlackMethod method, int attempt) {
+        counters.get(method).retried.incrementAndGet();
+        return backoffDelay(attempt, Optional.empty(), ThreadLocalRandom.current().nextDouble());
+    }
+
+    void gaveUp(SlackMethod method) {
+        counters.get(method).failed.incrementAndGet();
+    }
+
+    Map<SlackMethod, Stats> stats() {
+        Map<SlackMethod, Stats> stats = new EnumMap<>(SlackMethod.class);
+        for (Map.Entry<SlackMethod, Counters> entry : counters.entrySet()) {
+            Counters value = entry.getValue();
+            stats.put(entry.getKey(), new Stats(value.requests.get(), value.paced.get(),
+                    value.throttled.get(), value.retried.get(), value.failed.get()));
+        }
+        return stats;
+    }
+
+    List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<SlackMethod, Stats> entry : stats().entrySet()) {
+            Stats stats = entry.getValue();
+            if (stats.requests() == 0) {
+                continue;
+            }
+            lines.add(entry.getKey().apiName() + ": " + stats.requests() + " request(s), "
+                    + stats.paced() + " paced, " + stats.throttled() + " throttled, "
+                    + stats.retried() + " retried, " + stats.failed() + " failed");
+        }
+        return lines;
+    }
+
+    // Exponential backoff with full jitter; a Retry-After from Slack is a lower bound.
+    static Duration backoffDelay(int attempt, Optional<Duration> retryAfter, double jitter) {
+        long ceilingMillis = Math.min(MAX_BACKOFF.toMillis(),
+                BASE_BACKOFF.toMillis() << Math.min(attempt, 16));
+        long jitteredMillis = (long) (ceilingMillis * jitter);
+        if (retryAfter.isPresent()) {
+            long retryAfterMillis = Math.min(retryAfter.get().toMillis(), MAX_BACKOFF.toMillis());
+            return Duration.ofMillis(retryAfterMillis + jitteredMillis / 4);
+        }
+        return Duration.ofMillis(Math.max(BASE_BACKOFF.toMillis() / 2, jitteredMillis));
+    }
+
+    record Stats(long requests, long paced, long throttled, long retried, long failed) {
+    }
+
+    private static final class Counters {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong paced = new AtomicLong();
+        private final AtomicLong throttled = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+    }
+
+    static final class Bucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        Bucket(int capacity, int perMinute, long now) {
+            this.capacity = capacity;
+            this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        // Takes a token, going into debt if needed; returns how long the caller must wait.
+        synchronized long reserve(long now) {
+            refill(now);
+            tokens -= 1;
+            long paused = Math.max(0, lastRefill - now);
+            if (tokens >= 0) {
+                return paused;
+            }
+            return paused + (long) Math.ceil(-tokens / tokensPerNano);
+        }
+
+        synchronized long pausedFor(long now) {
+            return Math.max(0, lastRefill - now);
+        }
+
+        synchronized void pauseUntil(long until) {
+            refill(until);
+            if (tokens > 0) {
+                tokens = 0;
+            }
+            lastRefill = Math.max(lastRefill, until);
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+                lastRefill = now;
+            }
+        }
+    }
+}
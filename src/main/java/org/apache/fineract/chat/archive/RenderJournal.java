@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// The days of one channel a run has to render, and the parents whose replies may have moved,
+// kept in STATE_DIR/pending/<channel>.json. Saved before the history that made them dirty and
+// cleared once their pages are committed: a run that dies or fails to commit in between leaves
+// them to the next one, which would otherwise find its fetch matching the stored history.
+final class RenderJournal {
+
+    private static final String PENDING_DIR_NAME = "pending";
+
+    private final Path journalFile;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    RenderJournal(Path stateDir, String channelName) {
+        this.journalFile = stateDir.resolve(PENDING_DIR_NAME).resolve(channelName + ".json");
+    }
+
+    Pending load() throws IOException {
+        if (!Files.exists(journalFile)) {
+            return Pending.empty();
+        }
+        return objectMapper.readValue(journalFile.toFile(), Pending.class);
+    }
+
+    void save(Set<LocalDate> dates, Set<String> parents) throws IOException {
+        List<String> values = new ArrayList<>();
+        for (LocalDate date : new TreeSet<>(dates)) {
+            values.add(date.toString());
+        }
+        Pending pending = new Pending(values, List.copyOf(new TreeSet<>(parents)));
+        FileWriterUtil.replaceAtomically(journalFile,
+                temp -> objectMapper.writeValue(temp.toFile(), pending));
+    }
+
+    void clear() throws IOException {
+        Files.deleteIfExists(journalFile);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Pending(List<String> dates, List<String> parents) {
+
+        Pending {
+            dates = dates == null ? List.of() : dates;
+            parents = parents == null ? List.of() : parents;
+        }
+
+        static Pending empty() {
+            return new Pending(List.of(), List.of());
+        }
+
+        Set<LocalDate> days() {
+            Set<LocalDate> days = new TreeSet<>();
+            for (String date : dates) {
+                days.add(LocalDate.parse(date));
+            }
+            return days;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Renders and writes daily pages on a fixed number of cores. Pages arrive fully resolved, so
+// nothing here talks to Slack or touches channel state; all channels share one pool.
+final class RenderStage implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(RenderStage.class.getName());
+
+    private final ForkJoinPool pool;
+    private final OutputManifest manifest;
+    private final DateIndex dateIndex;
+    private final SearchIndex searchIndex;
+
+    RenderStage(int parallelism, OutputManifest manifest, DateIndex dateIndex,
+            SearchIndex searchIndex) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.manifest = manifest;
+        this.dateIndex = dateIndex;
+        this.searchIndex = searchIndex;
+    }
+
+    // Returns whether any page was written or deleted.
+    boolean render(Path dailyRoot, List<DayPage> pages) throws InterruptedException {
+        List<Callable<Boolean>> tasks = new ArrayList<>(pages.size());
+        for (DayPage page : pages) {
+            tasks.add(() -> write(dailyRoot, page));
+        }
+        boolean anyChanged = false;
+        for (Future<Boolean> result : pool.invokeAll(tasks)) {
+            try {
+                anyChanged = result.get() || anyChanged;
+            } catch (ExecutionException ex) {
+                LOG.log(Level.SEVERE, "Failed to render archive page.", ex.getCause());
+            }
+        }
+        return anyChanged;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    static Path pagePath(Path dailyRoot, String channelName, LocalDate date) {
+        String datePath = String.format("%d/%02d/%02d", date.getYear(), date.getMonthValue(),
+                date.getDayOfMonth());
+        return dailyRoot.resolve(channelName).resolve(datePath).resolve("index.html");
+    }
+
+    private boolean write(Path dailyRoot, DayPage page) {
+        Path pagePath = pagePath(dailyRoot, page.channelName(), page.date());
+        try {
+            if (page.rows() == null) {
+                boolean deleted = manifest.deleteIfExists(pagePath);
+                dateIndex.remove(page.channelName(), page.date());
+                searchIndex.remove(page.channelName(), page.date());
+                return deleted;
+            }
+            boolean written = manifest.writeIfChanged(pagePath,
+                    out -> HtmlRenderer.writeDailyPage(out, page.channelName(), page.date(),
+                            page.rows()));
+            dateIndex.add(page.channelName(), page.date());
+            searchIndex.add(page.channelName(), page.date(), page.text());
+            if (written) {
+                dateIndex.changed(page.channelName(), page.date());
+            }
+            return written;
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Failed to write archive for channel " + page.channelName()
+                    + " on " + page.date() + ".", ex);
+            return false;
+        }
+    }
+
+    // Everything a daily page shows, and the plain text of its messages for the search index;
+    // null rows mean the day no longer has messages.
+    record DayPage(String channelName, LocalDate date, List<HtmlRenderer.Row> rows,
+            List<String> text) {
+
+        DayPage {
+            rows = rows == null ? null : List.copyOf(rows);
+            text = text == null ? null : List.copyOf(text);
+        }
+
+        static DayPage empty(String channelName, LocalDate date) {
+            return new DayPage(channelName, date, null, null);
+        }
+    }
+}
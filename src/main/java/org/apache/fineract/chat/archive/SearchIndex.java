@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Inverted index of message text for the static search page, one shard per channel and month
+// under OUTPUT_DIR/search/<channel>/<yyyy-MM>.json mapping each term to the days of the month
+// that mention it. Days are collected as their pages are rendered; write() merges them into the
+// shards they belong to, so a run only reads and writes the months it rendered.
+final class SearchIndex {
+
+    private static final Logger LOG = Logger.getLogger(SearchIndex.class.getName());
+    private static final String SEARCH_DIR_NAME = "search";
+    private static final String CLIENT_RESOURCE = "chat-archive-search.js";
+    private static final DateTimeFormatter SHARD_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final TypeReference<TreeMap<String, TreeSet<Integer>>> POSTINGS =
+            new TypeReference<>() {};
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 32;
+
+    private final Path searchDir;
+    private final Path clientScript;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Shard, Map<Integer, Set<String>>> pending = new ConcurrentHashMap<>();
+
+    SearchIndex(Path outputDir) {
+        this.searchDir = outputDir.resolve(SEARCH_DIR_NAME);
+        this.clientScript = outputDir.resolve("assets").resolve(CLIENT_RESOURCE);
+    }
+
+    // Takes the plain text of the day's messages; the rendered HTML would add its tags and
+    // entities as terms.
+    void add(String channel, LocalDate date, List<String> text) {
+        Set<String> terms = new TreeSet<>();
+        for (String message : text) {
+            addTerms(message, terms);
+        }
+        day(channel, date).put(date.getDayOfMonth(), terms);
+    }
+
+    void remove(String channel, LocalDate date) {
+        day(channel, date).put(date.getDayOfMonth(), Set.of());
+    }
+
+    // Merges the collected days into their shards, then refreshes the shard list, the search
+    // page and its script. Returns whether any file changed.
+    boolean write(OutputManifest manifest, DateIndex dateIndex) throws IOException {
+        if (pending.isEmpty()) {
+            return false;
+        }
+        boolean changed = false;
+        for (Map.Entry<Shard, Map<Integer, Set<String>>> entry : new TreeMap<>(pending).entrySet()) {
+            changed = writeShard(manifest, entry.getKey(), entry.getValue()) || changed;
+        }
+        pending.clear();
+
+        Map<String, List<String>> shards = new LinkedHashMap<>();
+        for (String channel : dateIndex.channels()) {
+            Set<String> months = new TreeSet<>(Comparator.reverseOrder());
+            for (LocalDate date : dateIndex.dates(channel)) {
+                months.add(SHARD_FORMAT.format(date));
+            }
+            shards.put(channel, new ArrayList<>(months));
+        }
+        changed = manifest.writeIfChanged(searchDir.resolve("index.json"),
+                objectMapper.writeValueAsString(shards)) || changed;
+        changed = manifest.writeIfChanged(searchDir.resolve("index.html"),
+                HtmlRenderer::writeSearchPage) || changed;
+        return manifest.writeIfChanged(clientScript, clientScript()) || changed;
+    }
+
+    static void addTerms(String text, Set<String> terms) {
+        tokenize(text, terms::add);
+    }
+
+    // Lower-cased runs of letters and digits in order; very short and very long runs are left
+    // out. The static search page splits queries the same way.
+    static void tokenize(String text, Consumer<String> terms) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int index = 0; index <= text.length(); index++) {
+            boolean wordChar = index < text.length()
+                    && Character.isLetterOrDigit(text.codePointAt(index));
+            if (wordChar && start < 0) {
+                start = index;
+            } else if (!wordChar && start >= 0) {
+                int length = text.codePointCount(start, index);
+                if (length >= MIN_TERM_LENGTH && length <= MAX_TERM_LENGTH) {
+                    terms.accept(text.substring(start, index).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+            if (index < text.length() && Character.isHighSurrogate(text.charAt(index))) {
+                index++;
+            }
+        }
+    }
+
+    private boolean writeShard(OutputManifest manifest, Shard shard, Map<Integer, Set<String>> days)
+            throws IOException {
+        Path path = searchDir.resolve(shard.channel()).resolve(SHARD_FORMAT.format(shard.month())
+                + ".json");
+        TreeMap<String, TreeSet<Integer>> postings = read(path);
+        postings.values().forEach(postedDays -> postedDays.removeAll(days.keySet()));
+        for (Map.Entry<Integer, Set<String>> day : days.entrySet()) {
+            for (String term : day.getValue()) {
+                postings.computeIfAbsent(term, key -> new TreeSet<>()).add(day.getKey());
+            }
+        }
+        postings.values().removeIf(Set::isEmpty);
+        if (postings.isEmpty()) {
+            return manifest.deleteIfExists(path);
+        }
+        return manifest.writeIfChanged(path, objectMapper.writeValueAsString(postings));
+    }
+
+    // An unreadable shard is rebuilt from the days at hand; FULL_REBUILD restores the rest.
+    private TreeMap<String, TreeSet<Integer>> read(Path path) {
+        if (!Files.exists(path)) {
+            return new TreeMap<>();
+        }
+        try {
+            return objectMapper.readValue(path.toFile(), POSTINGS);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Could not read search index shard " + path + ".", ex);
+            return new TreeMap<>();
+        }
+    }
+
+    private Map<Integer, Set<String>> day(String channel, LocalDate date) {
+        return pending.computeIfAbsent(new Shard(channel, YearMonth.from(date)),
+                key -> new ConcurrentHashMap<>());
+    }
+
+    private static String clientScript() {
+        try (InputStream in = SearchIndex.class.getResourceAsStream(CLIENT_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + CLIENT_RESOURCE + ".");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Shard(String channel, YearMonth month) implements Comparable<Shard> {
+
+        @Override
+        public int compareTo(Shard other) {
+            int byChannel = channel.compareTo(other.channel);
+            return byChannel != 0 ? byChannel : month.compareTo(other.month);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Answers GET /search?q=&channel=&user=&from=&to=&limit= on the loopback interface from a
+// MessageIndex of the stored history and thread replies, with links to the daily pages. refresh()
+// re-reads only the history and replies segments that were rewritten since the last refresh.
+final class SearchServer implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(SearchServer.class.getName());
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final ArchiveConfig config;
+    private final MessageIndex index = new MessageIndex();
+    private final Map<Segment, String> versions = new HashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    SearchServer(ArchiveConfig config) {
+        this.config = config;
+    }
+
+    // Returns how many segments were (re)indexed or dropped.
+    int refresh() throws IOException {
+        index.userNames(new UserStore(config.stateDir()).load()
+                .orElseGet(UserStore.UserState::empty).users());
+        Set<Segment> stored = new HashSet<>();
+        int updated = 0;
+        for (String channel : HistoryStore.channels(config.stateDir())) {
+            HistoryStore history = new HistoryStore(config.stateDir(), channel,
+                    config.historyFormat());
+            boolean historyChanged = false;
+            for (YearMonth month : history.months()) {
+                Segment segment = new Segment(channel, month, false);
+                String version = history.segmentVersion(month);
+                stored.add(segment);
+                if (version != null && !version.equals(versions.get(segment))) {
+                    index.replace(channel, month, history.month(month));
+                    history.release();
+                    versions.put(segment, version);
+                    historyChanged = true;
+                    updated++;
+                }
+            }
+            ThreadRepliesStore threadReplies = new ThreadRepliesStore(config.stateDir(), channel);
+            for (YearMonth month : threadReplies.months()) {
+                Segment segment = new Segment(channel, month, true);
+                String version = threadReplies.segmentVersion(month);
+                stored.add(segment);
+                if (version != null && (historyChanged || !version.equals(versions.get(segment)))) {
+                    // Replies also sent to the channel are indexed with the history, so the
+                    // replies are filtered again whenever the history changed.
+                    List<SlackMessage> replies = new ArrayList<>();
+                    for (SlackMessage reply : threadReplies.replies(month)) {
+                        if (!history.contains(reply.ts())) {
+                            replies.add(reply);
+                        }
+                    }
+                    index.replaceReplies(channel, month, replies);
+                    threadReplies.release();
+                    history.release();
+                    versions.put(segment, version);
+                    updated++;
+                }
+            }
+        }
+        for (Segment segment : new ArrayList<>(versions.keySet())) {
+            if (!stored.contains(segment)) {
+                if (segment.replies()) {
+                    index.replaceReplies(segment.channel(), segment.month(), List.of());
+                } else {
+                    index.replace(segment.channel(), segment.month(), List.of());
+                }
+                versions.remove(segment);
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    int indexedMessages() {
+        return index.size();
+    }
+
+    void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/search", this::handle);
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, Map.of("error", "Only GET is supported."));
+                return;
+            }
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            MessageIndex.Query query;
+            int limit;
+            try {
+                query = MessageIndex.Query.parse(params.get("q"), blankToNull(params.get("channel")),
+                        blankToNull(params.get("user")), parseDate(params.get("from")),
+                        parseDate(params.get("to")));
+                limit = parseLimit(params.get("limit"));
+            } catch (DateTimeParseException | NumberFormatException ex) {
+                respond(exchange, 400, Map.of("error", "Invalid parameter: " + ex.getMessage()));
+                return;
+            }
+            long started = System.nanoTime();
+            MessageIndex.Results results = index.search(query, limit);
+            List<Map<String, Object>> hits = new ArrayList<>(results.hits().size());
+            for (MessageIndex.Hit hit : results.hits()) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("url", pageUrl(hit.channel(), hit.date()));
+                result.put("channel", hit.channel());
+                result.put("date", hit.date().toString());
+                result.put("ts", hit.ts());
+                result.put("user", hit.user());
+                result.put("score", hit.score());
+                result.put("snippet", hit.snippet());
+                hits.add(result);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("total", results.total());
+            body.put("tookMs", (System.nanoTime() - started) / 1_000_000.0);
+            body.put("results", hits);
+            respond(exchange, 200, body);
+        } catch (RuntimeException ex) {
+            LOG.log(Level.WARNING, "Search request failed.", ex);
+            throw ex;
+        }
+    }
+
+    private String pageUrl(String channel, LocalDate date) {
+        return config.siteBaseUrl() + "/" + SiteMetadataRenderer.dailyPagePath(channel, date);
+    }
+
+    private void respond(HttpExchange exchange, int status, Map<String, Object> body)
+            throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        return value == null || value.isBlank() ? null : LocalDate.parse(value.trim());
+    }
+
+    private static int parseLimit(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(MAX_LIMIT, Math.max(1, Integer.parseInt(value.trim())));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private record Segment(String channel, YearMonth month, boolean replies) {
+    }
+}
@@ -18,10 +18,12 @@
  */
 package org.apache.fineract.chat.archive;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.io.IOException;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.Map;
 
 final class SiteMetadataRenderer {
 
@@ -37,34 +39,111 @@ final class SiteMetadataRenderer {
         return builder.toString();
     }
 
-    static String renderSitemapXml(String siteBaseUrl, Map<String, List<LocalDate>> datesByChannel) {
-        List<String> paths = new ArrayList<>();
-        paths.add("");
-        for (Map.Entry<String, List<LocalDate>> entry : datesByChannel.entrySet()) {
-            String channel = entry.getKey();
-            paths.add("daily/" + channel + "/");
-            for (LocalDate date : entry.getValue()) {
-                String datePath = String.format("%d/%02d/%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
-                paths.add("daily/" + channel + "/" + datePath + "/");
-            }
-        }
-
-        StringBuilder builder = new StringBuilder();
+    // One <url> per page; lastmod is omitted where the change time is unknown.
+    static String renderUrlSet(String siteBaseUrl, List<SitemapEntry> urls) {
+        StringBuilder builder = new StringBuilder(128 + urls.size() * 128);
         builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
         builder.append("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
-        for (String path : paths) {
-            builder.append("  <url><loc>")
-                    .append(joinSitePath(siteBaseUrl, path))
-                    .append("</loc></url>\n");
+        for (SitemapEntry url : urls) {
+            appendEntry(builder, "url", siteBaseUrl, url);
         }
         builder.append("</urlset>\n");
         return builder.toString();
     }
 
+    static String renderSitemapIndex(String siteBaseUrl, List<SitemapEntry> sitemaps) {
+        StringBuilder builder = new StringBuilder(128 + sitemaps.size() * 128);
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        for (SitemapEntry sitemap : sitemaps) {
+            appendEntry(builder, "sitemap", siteBaseUrl, sitemap);
+        }
+        builder.append("</sitemapindex>\n");
+        return builder.toString();
+    }
+
+    // Atom 1.0 feed of the given entries, newest first. Entry ids are the message's daily page
+    // with its ts as fragment, so they stay stable however often the feed is regenerated.
+    static void writeAtomFeed(Appendable out, String siteBaseUrl, String feedPath, String title,
+            String pagePath, List<FeedEntry> entries) throws IOException {
+        String feedUrl = joinSitePath(siteBaseUrl, feedPath);
+        out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.append("<feed xmlns=\"http://www.w3.org/2005/Atom\">\n");
+        out.append("  <id>");
+        PageTemplate.appendEscaped(out, feedUrl);
+        out.append("</id>\n  <title>");
+        PageTemplate.appendEscaped(out, title);
+        out.append("</title>\n  <link rel=\"self\" href=\"");
+        PageTemplate.appendEscaped(out, feedUrl);
+        out.append("\"/>\n  <link href=\"");
+        PageTemplate.appendEscaped(out, joinSitePath(siteBaseUrl, pagePath));
+        out.append("\"/>\n  <updated>")
+                .append(entries.isEmpty() ? "1970-01-01T00:00:00Z" : atomTime(entries.get(0).ts()))
+                .append("</updated>\n");
+        for (FeedEntry entry : entries) {
+            String pageUrl = joinSitePath(siteBaseUrl, entry.path());
+            out.append("  <entry>\n    <id>");
+            PageTemplate.appendEscaped(out, pageUrl + "#" + entry.ts());
+            out.append("</id>\n    <title>");
+            PageTemplate.appendEscaped(out, entry.title());
+            out.append("</title>\n    <link href=\"");
+            PageTemplate.appendEscaped(out, pageUrl);
+            out.append("\"/>\n    <author><name>");
+            PageTemplate.appendEscaped(out, entry.user());
+            out.append("</name></author>\n    <updated>").append(atomTime(entry.ts()))
+                    .append("</updated>\n    <content type=\"html\">");
+            PageTemplate.appendEscaped(out, entry.html());
+            out.append("</content>\n  </entry>\n");
+        }
+        out.append("</feed>\n");
+    }
+
+    static String dailyPagePath(String channel, LocalDate date) {
+        StringBuilder builder = new StringBuilder(channel.length() + 18);
+        builder.append("daily/").append(channel).append('/').append(date.getYear()).append('/');
+        appendTwoDigits(builder, date.getMonthValue());
+        builder.append('/');
+        appendTwoDigits(builder, date.getDayOfMonth());
+        return builder.append('/').toString();
+    }
+
+    private static void appendEntry(StringBuilder builder, String element, String siteBaseUrl,
+            SitemapEntry entry) {
+        builder.append("  <").append(element).append("><loc>")
+                .append(joinSitePath(siteBaseUrl, entry.path()))
+                .append("</loc>");
+        if (entry.lastmod() != null) {
+            builder.append("<lastmod>").append(entry.lastmod()).append("</lastmod>");
+        }
+        builder.append("</").append(element).append(">\n");
+    }
+
+    private static String atomTime(String ts) {
+        return DateTimeFormatter.ISO_INSTANT.format(
+                SlackTimestamp.toInstant(ts).truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private static void appendTwoDigits(StringBuilder builder, int value) {
+        if (value < 10) {
+            builder.append('0');
+        }
+        builder.append(value);
+    }
+
     private static String joinSitePath(String siteBaseUrl, String path) {
         if (path == null || path.isBlank()) {
             return siteBaseUrl + "/";
         }
         return siteBaseUrl + "/" + path;
     }
+
+    // path is relative to the site root; lastmod is an ISO-8601 instant or null.
+    record SitemapEntry(String path, String lastmod) {
+    }
+
+    // html is the message as rendered on its page; path is that page, relative to the site root.
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record FeedEntry(String channel, String ts, String user, String title, String html,
+            String path) {
+    }
 }
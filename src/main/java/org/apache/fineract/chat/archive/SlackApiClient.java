@@ -20,8 +20,12 @@ package org.apache.fineract.chat.archive;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -30,40 +34,50 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 class SlackApiClient {
 
-    private static final URI AUTH_TEST_URI = URI.create("https://slack.com/api/auth.test");
-    private static final String CONVERSATIONS_LIST_URL = "https://slack.com/api/conversations.list";
-    private static final String CONVERSATIONS_HISTORY_URL =
-            "https://slack.com/api/conversations.history";
-    private static final String CONVERSATIONS_REPLIES_URL =
-            "https://slack.com/api/conversations.replies";
-    private static final String CHAT_PERMALINK_URL = "https://slack.com/api/chat.getPermalink";
-    private static final String USERS_INFO_URL = "https://slack.com/api/users.info";
     private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
     private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(20);
     private static final int CONVERSATIONS_PAGE_SIZE = 200;
     private static final int HISTORY_PAGE_SIZE = 200;
+    private static final int USERS_PAGE_SIZE = 200;
 
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final Map<SlackMethod, Semaphore> inFlight = new EnumMap<>(SlackMethod.class);
+    private final String baseUrl;
+    private final RateLimiter rateLimiter;
 
     SlackApiClient() {
+        this(ArchiveConfig.DEFAULT_SLACK_API_BASE_URL, new RateLimiter());
+    }
+
+    SlackApiClient(String baseUrl, RateLimiter rateLimiter) {
+        this.baseUrl = baseUrl;
+        this.rateLimiter = rateLimiter;
         this.httpClient = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
         this.objectMapper = new ObjectMapper();
+        for (SlackMethod method : SlackMethod.values()) {
+            inFlight.put(method, new Semaphore(method.maxConcurrentCalls(), true));
+        }
     }
 
     AuthTestResponse authTest(String token) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder(AUTH_TEST_URI)
+        HttpRequest request = HttpRequest.newBuilder(methodUri(SlackMethod.AUTH_TEST, ""))
                 .timeout(REQUEST_TIMEOUT)
                 .header("Authorization", "Bearer " + token)
                 .GET()
                 .build();
 
-        HttpResponse<String> response = sendWithRetry(request);
+        HttpResponse<String> response = sendWithRetry(SlackMethod.AUTH_TEST, request);
         if (response.statusCode() != 200) {
             return AuthTestResponse.httpError(response.statusCode());
         }
@@ -74,99 +88,37 @@ class SlackApiClient {
     ConversationsListResponse listPublicChannels(String token)
             throws IOException, InterruptedException {
         List<SlackChannel> channels = new ArrayList<>();
-        String cursor = null;
-
-        do {
-            URI uri = buildConversationsListUri(cursor);
-            HttpRequest request = HttpRequest.newBuilder(uri)
-                    .timeout(REQUEST_TIMEOUT)
-                    .header("Authorization", "Bearer " + token)
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = sendWithRetry(request);
-            if (response.statusCode() != 200) {
-                return ConversationsListResponse.httpError(response.statusCode());
-            }
-
-            ConversationsListResponse payload = objectMapper.readValue(response.body(),
-                    ConversationsListResponse.class);
-            if (!payload.ok()) {
-                return new ConversationsListResponse(false, payload.error(), List.of(), null);
-            }
-
-            if (payload.channels() != null) {
-                channels.addAll(payload.channels());
-            }
-            cursor = payload.nextCursor();
-        } while (cursor != null && !cursor.isBlank());
-
+        PageStatus status = streamPages(SlackMethod.CONVERSATIONS_LIST, token,
+                this::buildConversationsListUri, "channels", SlackChannel.class,
+                channels::add, () -> {});
+        if (!status.ok()) {
+            return new ConversationsListResponse(false, status.error(), List.of(), null);
+        }
         return new ConversationsListResponse(true, null, List.copyOf(channels), null);
     }
 
-    ConversationsHistoryResponse listChannelMessages(String token, String channelId,
-            String oldestTs) throws IOException, InterruptedException {
-        List<SlackMessage> messages = new ArrayList<>();
-        String cursor = null;
-
-        do {
-            URI uri = buildConversationsHistoryUri(channelId, oldestTs, cursor);
-            HttpRequest request = HttpRequest.newBuilder(uri)
-                    .timeout(REQUEST_TIMEOUT)
-                    .header("Authorization", "Bearer " + token)
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = sendWithRetry(request);
-            if (response.statusCode() != 200) {
-                return ConversationsHistoryResponse.httpError(response.statusCode());
-            }
-
-            ConversationsHistoryResponse payload = objectMapper.readValue(response.body(),
-                    ConversationsHistoryResponse.class);
-            if (!payload.ok()) {
-                return new ConversationsHistoryResponse(false, payload.error(), List.of(), null);
-            }
-
-            if (payload.messages() != null) {
-                messages.addAll(payload.messages());
-            }
-            cursor = payload.nextCursor();
-        } while (cursor != null && !cursor.isBlank());
-
-        return new ConversationsHistoryResponse(true, null, List.copyOf(messages), null);
+    // Decodes messages straight off the response stream and hands them over a page at a time,
+    // so a long fetch is merged as it goes instead of being collected first.
+    PageStatus streamChannelMessages(String token, String channelId, String oldestTs,
+            Consumer<List<SlackMessage>> pages) throws IOException, InterruptedException {
+        List<SlackMessage> page = new ArrayList<>();
+        return streamPages(SlackMethod.CONVERSATIONS_HISTORY, token,
+                cursor -> buildConversationsHistoryUri(channelId, oldestTs, cursor), "messages",
+                SlackMessage.class, page::add, () -> {
+                    pages.accept(List.copyOf(page));
+                    page.clear();
+                });
     }
 
     ConversationsRepliesResponse listThreadReplies(String token, String channelId, String threadTs)
             throws IOException, InterruptedException {
         List<SlackMessage> messages = new ArrayList<>();
-        String cursor = null;
-
-        do {
-            URI uri = buildConversationsRepliesUri(channelId, threadTs, cursor);
-            HttpRequest request = HttpRequest.newBuilder(uri)
-                    .timeout(REQUEST_TIMEOUT)
-                    .header("Authorization", "Bearer " + token)
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = sendWithRetry(request);
-            if (response.statusCode() != 200) {
-                return ConversationsRepliesResponse.httpError(response.statusCode());
-            }
-
-            ConversationsRepliesResponse payload = objectMapper.readValue(response.body(),
-                    ConversationsRepliesResponse.class);
-            if (!payload.ok()) {
-                return new ConversationsRepliesResponse(false, payload.error(), List.of(), null);
-            }
-
-            if (payload.messages() != null) {
-                messages.addAll(payload.messages());
-            }
-            cursor = payload.nextCursor();
-        } while (cursor != null && !cursor.isBlank());
-
+        PageStatus status = streamPages(SlackMethod.CONVERSATIONS_REPLIES, token,
+                cursor -> buildConversationsRepliesUri(channelId, threadTs, cursor), "messages",
+                SlackMessage.class, messages::add, () -> {});
+        if (!status.ok()) {
+            return new ConversationsRepliesResponse(false, status.error(), List.of(), null);
+        }
         return new ConversationsRepliesResponse(true, null, List.copyOf(messages), null);
     }
 
@@ -179,7 +131,7 @@ class SlackApiClient {
                 .GET()
                 .build();
 
-        HttpResponse<String> response = sendWithRetry(request);
+        HttpResponse<String> response = sendWithRetry(SlackMethod.CHAT_GET_PERMALINK, request);
         if (response.statusCode() != 200) {
             return PermalinkResponse.httpError(response.statusCode());
         }
@@ -195,29 +147,169 @@ class SlackApiClient {
                 .GET()
                 .build();
 
-        HttpResponse<String> response = sendWithRetry(request);
+        HttpResponse<String> response = sendWithRetry(SlackMethod.USERS_INFO, request);
         if (response.statusCode() != 200) {
             return UserInfoResponse.httpError(response.statusCode());
         }
         return objectMapper.readValue(response.body(), UserInfoResponse.class);
     }
 
-    private HttpResponse<String> sendWithRetry(HttpRequest request)
-            throws IOException, InterruptedException {
-        HttpResponse<String> response = httpClient.send(request,
-                HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 429) {
-            return response;
+    UsersListResponse listUsers(String token) throws IOException, InterruptedException {
+        List<SlackUser> members = new ArrayList<>();
+        PageStatus status = streamPages(SlackMethod.USERS_LIST, token,
+                this::buildUsersListUri, "members", SlackUser.class, members::add, () -> {});
+        if (!status.ok()) {
+            return new UsersListResponse(false, status.error(), List.of());
         }
-        Optional<Duration> retryAfter = parseRetryAfter(response);
-        if (retryAfter.isEmpty()) {
-            return response;
+        return new UsersListResponse(true, null, List.copyOf(members));
+    }
+
+    private <T> PageStatus streamPages(SlackMethod method, String token,
+            Function<String, URI> uriForCursor, String itemsField, Class<T> itemType,
+            Consumer<T> consumer, Runnable pageDone) throws IOException, InterruptedException {
+        String cursor = null;
+
+        do {
+            HttpRequest request = HttpRequest.newBuilder(uriForCursor.apply(cursor))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build();
+
+            HttpResponse<InputStream> response = sendWithRetry(method, request,
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    return PageStatus.httpError(response.statusCode());
+                }
+                PageStatus page = readPage(body, itemsField, itemType, consumer);
+                if (!page.ok()) {
+                    return page;
+                }
+                pageDone.run();
+                cursor = page.nextCursor();
+            } finally {
+                inFlight.get(method).release();
+            }
+        } while (cursor != null && !cursor.isBlank());
+
+        return new PageStatus(true, null, null);
+    }
+
+    // Slack puts "ok" and "error" ahead of the payload, so items of a failed call never reach
+    // the consumer.
+    <T> PageStatus readPage(InputStream body, String itemsField, Class<T> itemType,
+            Consumer<T> consumer) throws IOException {
+        boolean ok = false;
+        String error = null;
+        String nextCursor = null;
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new PageStatus(false, "invalid_response", null);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("ok")) {
+                    ok = value == JsonToken.VALUE_TRUE;
+                } else if (field.equals("error")) {
+                    error = parser.getValueAsString();
+                } else if (field.equals(itemsField) && value == JsonToken.START_ARRAY) {
+                    if (!readItems(parser, itemType, consumer)) {
+                        return new PageStatus(false, "invalid_response", null);
+                    }
+                } else if (field.equals("response_metadata") && value == JsonToken.START_OBJECT) {
+                    ResponseMetadata metadata = objectMapper.readValue(parser,
+                            ResponseMetadata.class);
+                    nextCursor = metadata.nextCursor();
+                } else {
+                    parser.skipChildren();
+                }
+            }
         }
-        Thread.sleep(retryAfter.get().toMillis());
-        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        return new PageStatus(ok, ok ? null : error, nextCursor);
+    }
+
+    // Skips elements that are not objects, such as nulls; false if the array never closes.
+    private <T> boolean readItems(JsonParser parser, Class<T> itemType, Consumer<T> consumer)
+            throws IOException {
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    return false;
+                }
+                if (token == JsonToken.START_OBJECT) {
+                    consumer.accept(objectMapper.readValue(parser, itemType));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return true;
+        } catch (JsonEOFException ex) {
+            return false;
+        }
+    }
+
+    private HttpResponse<String> sendWithRetry(SlackMethod method, HttpRequest request)
+            throws IOException, InterruptedException {
+        return sendWithRetry(method, request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // A streamed body is read after send() returns, so its response keeps the in-flight permit
+    // and the caller releases it once the body is closed.
+    private <T> HttpResponse<T> sendWithRetry(SlackMethod method, HttpRequest request,
+            HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            boolean lastAttempt = attempt >= RateLimiter.MAX_ATTEMPTS;
+            rateLimiter.acquire(method);
+            HttpResponse<T> response;
+            Semaphore permits = inFlight.get(method);
+            permits.acquire();
+            boolean release = true;
+            try {
+                response = httpClient.send(request, bodyHandler);
+                release = !(response.body() instanceof InputStream);
+            } catch (IOException ex) {
+                if (lastAttempt) {
+                    rateLimiter.gaveUp(method);
+                    throw ex;
+                }
+                Thread.sleep(rateLimiter.retrying(method, attempt).toMillis());
+                continue;
+            } finally {
+                if (release) {
+                    permits.release();
+                }
+            }
+
+            int status = response.statusCode();
+            if (status != 429 && status < 500) {
+                return response;
+            }
+            if (lastAttempt) {
+                rateLimiter.gaveUp(method);
+                return response;
+            }
+            Duration delay = status == 429
+                    ? rateLimiter.throttled(method, attempt, parseRetryAfter(response))
+                    : rateLimiter.retrying(method, attempt);
+            if (response.body() instanceof InputStream body) {
+                try {
+                    body.close();
+                } finally {
+                    permits.release();
+                }
+            }
+            Thread.sleep(delay.toMillis());
+        }
+    }
+
+    RateLimiter rateLimiter() {
+        return rateLimiter;
     }
 
-    private Optional<Duration> parseRetryAfter(HttpResponse<String> response) {
+    private Optional<Duration> parseRetryAfter(HttpResponse<?> response) {
         Optional<String> header = response.headers().firstValue("Retry-After");
         if (header.isEmpty()) {
             return Optional.empty();
@@ -230,7 +322,7 @@ class SlackApiClient {
         }
     }
 
-    private static URI buildConversationsListUri(String cursor) {
+    private URI buildConversationsListUri(String cursor) {
         StringBuilder query = new StringBuilder();
         query.append("limit=").append(CONVERSATIONS_PAGE_SIZE);
         query.append("&exclude_archived=true");
@@ -239,10 +331,10 @@ class SlackApiClient {
             query.append("&cursor=")
                     .append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
         }
-        return URI.create(CONVERSATIONS_LIST_URL + "?" + query);
+        return methodUri(SlackMethod.CONVERSATIONS_LIST, query);
     }
 
-    private static URI buildConversationsHistoryUri(String channelId, String oldestTs,
+    private URI buildConversationsHistoryUri(String channelId, String oldestTs,
             String cursor) {
         StringBuilder query = new StringBuilder();
         query.append("channel=")
@@ -257,25 +349,35 @@ class SlackApiClient {
             query.append("&cursor=")
                     .append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
         }
-        return URI.create(CONVERSATIONS_HISTORY_URL + "?" + query);
+        return methodUri(SlackMethod.CONVERSATIONS_HISTORY, query);
     }
 
-    private static URI buildPermalinkUri(String channelId, String messageTs) {
+    private URI buildPermalinkUri(String channelId, String messageTs) {
         StringBuilder query = new StringBuilder();
         query.append("channel=")
                 .append(URLEncoder.encode(channelId, StandardCharsets.UTF_8));
         query.append("&message_ts=")
                 .append(URLEncoder.encode(messageTs, StandardCharsets.UTF_8));
-        return URI.create(CHAT_PERMALINK_URL + "?" + query);
+        return methodUri(SlackMethod.CHAT_GET_PERMALINK, query);
     }
 
-    private static URI buildUsersInfoUri(String userId) {
+    private URI buildUsersInfoUri(String userId) {
         StringBuilder query = new StringBuilder();
         query.append("user=").append(URLEncoder.encode(userId, StandardCharsets.UTF_8));
-        return URI.create(USERS_INFO_URL + "?" + query);
+        return methodUri(SlackMethod.USERS_INFO, query);
     }
 
-    private static URI buildConversationsRepliesUri(String channelId, String threadTs,
+    private URI buildUsersListUri(String cursor) {
+        StringBuilder query = new StringBuilder();
+        query.append("limit=").append(USERS_PAGE_SIZE);
+        if (cursor != null && !cursor.isBlank()) {
+            query.append("&cursor=")
+                    .append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+        }
+        return methodUri(SlackMethod.USERS_LIST, query);
+    }
+
+    private URI buildConversationsRepliesUri(String channelId, String threadTs,
             String cursor) {
         StringBuilder query = new StringBuilder();
         query.append("channel=")
@@ -287,13 +389,24 @@ class SlackApiClient {
             query.append("&cursor=")
                     .append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
         }
-        return URI.create(CONVERSATIONS_REPLIES_URL + "?" + query);
+        return methodUri(SlackMethod.CONVERSATIONS_REPLIES, query);
+    }
+
+    private URI methodUri(SlackMethod method, CharSequence query) {
+        String uri = baseUrl + "/" + method.apiName();
+        return URI.create(query.isEmpty() ? uri : uri + "?" + query);
+    }
+
+    record PageStatus(boolean ok, String error, String nextCursor) {
+        static PageStatus httpError(int statusCode) {
+            return new PageStatus(false, "http_status_" + statusCode, null);
+        }
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
-    record AuthTestResponse(boolean ok, String error, String team, String user) {
+    record AuthTestResponse(boolean ok, String error, String team, String user, String url) {
         static AuthTestResponse httpError(int statusCode) {
-            return new AuthTestResponse(false, "http_status_" + statusCode, null, null);
+            return new AuthTestResponse(false, "http_status_" + statusCode, null, null, null);
         }
     }
 
@@ -321,22 +434,6 @@ class SlackApiClient {
     record SlackChannel(String id, String name) {
     }
 
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    record ConversationsHistoryResponse(boolean ok, String error, List<SlackMessage> messages,
-            @JsonProperty("response_metadata") ResponseMetadata responseMetadata) {
-        static ConversationsHistoryResponse httpError(int statusCode) {
-            return new ConversationsHistoryResponse(false, "http_status_" + statusCode, List.of(),
-                    null);
-        }
-
-        String nextCursor() {
-            if (responseMetadata == null) {
-                return null;
-            }
-            return responseMetadata.nextCursor();
-        }
-    }
-
     @JsonIgnoreProperties(ignoreUnknown = true)
     record ConversationsRepliesResponse(boolean ok, String error, List<SlackMessage> messages,
             @JsonProperty("response_metadata") ResponseMetadata responseMetadata) {
@@ -367,6 +464,10 @@ class SlackApiClient {
         }
     }
 
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record UsersListResponse(boolean ok, String error, List<SlackUser> members) {
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     record SlackUser(String id, String name, SlackProfile profile) {
     }
@@ -25,7 +25,13 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 record SlackMessage(String ts, String user, @JsonProperty("bot_id") String botId, String text,
         String subtype, @JsonProperty("thread_ts") String threadTs, Edited edited,
-        List<Reaction> reactions) {
+        List<Reaction> reactions, @JsonProperty("reply_count") Integer replyCount,
+        @JsonProperty("latest_reply") String latestReply) {
+
+    SlackMessage(String ts, String user, String botId, String text, String subtype,
+            String threadTs, Edited edited, List<Reaction> reactions) {
+        this(ts, user, botId, text, subtype, threadTs, edited, reactions, null, null);
+    }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     record Edited(String ts) {
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+// Slack Web API methods used by the archiver, with their published rate limit tier.
+enum SlackMethod {
+    AUTH_TEST("auth.test", 4),
+    CONVERSATIONS_LIST("conversations.list", 2),
+    CONVERSATIONS_HISTORY("conversations.history", 3),
+    CONVERSATIONS_REPLIES("conversations.replies", 3),
+    CHAT_GET_PERMALINK("chat.getPermalink", 4),
+    USERS_INFO("users.info", 4),
+    USERS_LIST("users.list", 2);
+
+    private final String apiName;
+    private final int tier;
+
+    SlackMethod(String apiName, int tier) {
+        this.apiName = apiName;
+        this.tier = tier;
+    }
+
+    String apiName() {
+        return apiName;
+    }
+
+    int tier() {
+        return tier;
+    }
+
+    // Slack documents tiers as "N+ per minute"; stay at the floor of each tier.
+    int requestsPerMinute() {
+        return switch (tier) {
+            case 1 -> 1;
+            case 2 -> 20;
+            case 3 -> 50;
+            default -> 100;
+        };
+    }
+
+    // Slack tolerates short bursts above the per-minute rate.
+    int burst() {
+        return Math.max(1, requestsPerMinute() / 10);
+    }
+
+    int maxConcurrentCalls() {
+        return switch (tier) {
+            case 1, 2 -> 1;
+            case 3 -> 2;
+            default -> 4;
+        };
+    }
+}
@@ -21,13 +21,9 @@ package org.apache.fineract.chat.archive;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 final class SlackTextFormatter {
 
-    private static final Pattern TOKEN_PATTERN = Pattern.compile("<([^>]+)>");
-    private static final Pattern EMOJI_PATTERN = Pattern.compile(":([a-zA-Z0-9_+\\-]+):");
     private static final Map<String, String> EMOJI_MAP = Map.ofEntries(
             Map.entry("wave", "👋"),
             Map.entry("thumbsup", "👍"),
@@ -60,12 +56,33 @@ final class SlackTextFormatter {
 
     private SlackTextFormatter() {}
 
+    // One scan over the text: <...> tokens are resolved, everything else is escaped, and emoji
+    // codes are replaced as they are completed in the output.
     static String format(String text, Function<String, String> userResolver) {
         if (text == null || text.isBlank()) {
             return "";
         }
-        String withTokens = replaceTokens(text, userResolver);
-        return replaceEmoji(withTokens);
+        Output out = new Output(text.length() + 16);
+        int length = text.length();
+        int index = 0;
+        while (index < length) {
+            char c = text.charAt(index);
+            if (c == '<') {
+                int close = text.indexOf('>', index + 1);
+                if (close < 0) {
+                    out.appendEscaped(text, index, length);
+                    break;
+                }
+                if (close > index + 1) {
+                    formatToken(text.substring(index + 1, close), userResolver, out);
+                    index = close + 1;
+                    continue;
+                }
+            }
+            out.appendEscaped(c);
+            index++;
+        }
+        return out.toString();
     }
 
     static String resolveEmoji(String code) {
@@ -75,37 +92,24 @@ final class SlackTextFormatter {
         return EMOJI_MAP.get(code);
     }
 
-    private static String replaceTokens(String text, Function<String, String> userResolver) {
-        Matcher matcher = TOKEN_PATTERN.matcher(text);
-        StringBuilder builder = new StringBuilder();
-        int cursor = 0;
-        while (matcher.find()) {
-            builder.append(escapeHtml(text.substring(cursor, matcher.start())));
-            String token = matcher.group(1);
-            builder.append(formatToken(token, userResolver));
-            cursor = matcher.end();
-        }
-        builder.append(escapeHtml(text.substring(cursor)));
-        return builder.toString();
-    }
-
-    private static String formatToken(String token, Function<String, String> userResolver) {
+    private static void formatToken(String token, Function<String, String> userResolver,
+            Output out) {
         if (token.startsWith("@")) {
-            return formatUser(token.substring(1), userResolver);
+            formatUser(token.substring(1), userResolver, out);
+        } else if (token.startsWith("#")) {
+            formatPrefixedLabel(token.substring(1), '#', out);
+        } else if (token.startsWith("!")) {
+            formatPrefixedLabel(token.substring(1), '@', out);
+        } else {
+            formatLink(token, out);
         }
-        if (token.startsWith("#")) {
-            return formatChannel(token.substring(1));
-        }
-        if (token.startsWith("!")) {
-            return formatSpecial(token.substring(1));
-        }
-        return formatLink(token);
     }
 
-    private static String formatUser(String token, Function<String, String> userResolver) {
-        String[] parts = token.split("\\|", 2);
-        String userId = parts[0];
-        String label = parts.length > 1 ? parts[1] : null;
+    private static void formatUser(String token, Function<String, String> userResolver,
+            Output out) {
+        int pipe = token.indexOf('|');
+        String userId = pipe < 0 ? token : token.substring(0, pipe);
+        String label = pipe < 0 ? null : token.substring(pipe + 1);
         if (label == null || label.isBlank()) {
             label = userResolver.apply(userId);
         }
@@ -113,41 +117,37 @@ final class SlackTextFormatter {
             label = userId;
         }
         if (!label.startsWith("@")) {
-            label = "@" + label;
-        }
-        return escapeHtml(label);
-    }
-
-    private static String formatChannel(String token) {
-        String[] parts = token.split("\\|", 2);
-        String label = parts.length > 1 ? parts[1] : parts[0];
-        if (!label.startsWith("#")) {
-            label = "#" + label;
+            out.appendEscaped('@');
         }
-        return escapeHtml(label);
+        out.appendEscaped(label, 0, label.length());
     }
 
-    private static String formatSpecial(String token) {
-        String[] parts = token.split("\\|", 2);
-        String label = parts.length > 1 ? parts[1] : parts[0];
-        if (!label.startsWith("@")) {
-            label = "@" + label;
+    // Channels (#) and special mentions (@) show the label if there is one, else the id.
+    private static void formatPrefixedLabel(String token, char prefix, Output out) {
+        int pipe = token.indexOf('|');
+        int labelStart = pipe < 0 ? 0 : pipe + 1;
+        if (labelStart == token.length() || token.charAt(labelStart) != prefix) {
+            out.appendEscaped(prefix);
         }
-        return escapeHtml(label);
+        out.appendEscaped(token, labelStart, token.length());
     }
 
-    private static String formatLink(String token) {
-        String[] parts = token.split("\\|", 2);
-        String url = parts[0].trim();
-        String label = parts.length > 1 ? parts[1] : parts[0];
-        if (label == null || label.isBlank()) {
+    private static void formatLink(String token, Output out) {
+        int pipe = token.indexOf('|');
+        String url = (pipe < 0 ? token : token.substring(0, pipe)).trim();
+        String label = pipe < 0 ? token : token.substring(pipe + 1);
+        if (label.isBlank()) {
             label = url;
         }
         if (!isSupportedHref(url)) {
-            return escapeHtml(label);
+            out.appendEscaped(label, 0, label.length());
+            return;
         }
-        return "<a class=\"archive-link\" href=\"" + escapeHtmlAttribute(url) + "\">"
-                + escapeHtml(label) + "</a>";
+        out.appendMarkup("<a class=\"archive-link\" href=\"");
+        out.appendEscaped(url, 0, url.length());
+        out.appendMarkup("\">");
+        out.appendEscaped(label, 0, label.length());
+        out.appendMarkup("</a>");
     }
 
     private static boolean isSupportedHref(String href) {
@@ -160,32 +160,66 @@ final class SlackTextFormatter {
                 || normalized.startsWith("mailto:");
     }
 
-    private static String replaceEmoji(String text) {
-        Matcher matcher = EMOJI_PATTERN.matcher(text);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            String code = matcher.group(1);
-            String emoji = EMOJI_MAP.get(code);
-            if (emoji == null) {
-                matcher.appendReplacement(buffer, Matcher.quoteReplacement(matcher.group(0)));
-            } else {
-                matcher.appendReplacement(buffer, Matcher.quoteReplacement(emoji));
+    private static boolean isEmojiCodeChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '+' || c == '-';
+    }
+
+    // Output buffer that replaces :code: with its emoji as soon as the closing colon is written.
+    // A code can start at any colon of the output, including inside generated markup.
+    private static final class Output {
+        private final StringBuilder builder;
+        private int pendingColon = -1;
+
+        Output(int capacity) {
+            this.builder = new StringBuilder(capacity);
+        }
+
+        void appendMarkup(String markup) {
+            for (int index = 0; index < markup.length(); index++) {
+                append(markup.charAt(index));
             }
         }
-        matcher.appendTail(buffer);
-        return buffer.toString();
-    }
 
-    private static String escapeHtml(String value) {
-        return value
-                .replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#39;");
-    }
+        void appendEscaped(String value, int start, int end) {
+            for (int index = start; index < end; index++) {
+                appendEscaped(value.charAt(index));
+            }
+        }
 
-    private static String escapeHtmlAttribute(String value) {
-        return escapeHtml(value);
+        void appendEscaped(char c) {
+            switch (c) {
+                case '&' -> appendMarkup("&amp;");
+                case '<' -> appendMarkup("&lt;");
+                case '>' -> appendMarkup("&gt;");
+                case '"' -> appendMarkup("&quot;");
+                case '\'' -> appendMarkup("&#39;");
+                default -> append(c);
+            }
+        }
+
+        private void append(char c) {
+            builder.append(c);
+            if (c == ':') {
+                int colon = builder.length() - 1;
+                if (pendingColon >= 0 && colon > pendingColon + 1) {
+                    String emoji = EMOJI_MAP.get(builder.substring(pendingColon + 1, colon));
+                    if (emoji != null) {
+                        builder.setLength(pendingColon);
+                        builder.append(emoji);
+                    }
+                    pendingColon = -1;
+                } else {
+                    pendingColon = colon;
+                }
+            } else if (pendingColon >= 0 && !isEmojiCodeChar(c)) {
+                pendingColon = -1;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
     }
 }
@@ -18,24 +18,66 @@
  */
 package org.apache.fineract.chat.archive;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
-import java.util.Locale;
 
+// Slack timestamps are "<epoch seconds>.<micros>" strings. They are parsed into a single long of
+// microseconds since the epoch, which sorts correctly whatever the number of digits.
 final class SlackTimestamp {
 
+    static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final int FRACTION_DIGITS = 6;
+
     private SlackTimestamp() {}
 
-    static Instant toInstant(String ts) {
+    static long pack(String ts) {
         if (ts == null || ts.isBlank()) {
-            return Instant.EPOCH;
+            return 0L;
+        }
+        int length = ts.length();
+        int index = 0;
+        long seconds = 0;
+        int digits = 0;
+        for (; index < length && ts.charAt(index) != '.'; index++) {
+            seconds = Math.addExact(Math.multiplyExact(seconds, 10), digit(ts, index));
+            digits++;
+        }
+        long micros = 0;
+        int fractionDigits = 0;
+        for (index++; index < length; index++) {
+            int digit = digit(ts, index);
+            digits++;
+            // Anything below a microsecond is dropped, as Slack never sends it.
+            if (fractionDigits < FRACTION_DIGITS) {
+                micros = micros * 10 + digit;
+                fractionDigits++;
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid Slack timestamp: " + ts);
         }
-        BigDecimal value = new BigDecimal(ts);
-        long seconds = value.longValue();
-        BigDecimal fractional = value.subtract(BigDecimal.valueOf(seconds));
-        int nanos = fractional.movePointRight(9).setScale(0, RoundingMode.DOWN).intValue();
-        return Instant.ofEpochSecond(seconds, nanos);
+        for (; fractionDigits < FRACTION_DIGITS; fractionDigits++) {
+            micros *= 10;
+        }
+        return Math.addExact(Math.multiplyExact(seconds, MICROS_PER_SECOND), micros);
+    }
+
+    static String format(long packed) {
+        String micros = Long.toString(packed % MICROS_PER_SECOND);
+        return packed / MICROS_PER_SECOND + "." + "0".repeat(FRACTION_DIGITS - micros.length())
+                + micros;
+    }
+
+    static Instant toInstant(String ts) {
+        return toInstant(pack(ts));
+    }
+
+    static Instant toInstant(long packed) {
+        return Instant.ofEpochSecond(packed / MICROS_PER_SECOND,
+                packed % MICROS_PER_SECOND * 1_000L);
+    }
+
+    static long fromInstant(Instant instant) {
+        return instant.getEpochSecond() * MICROS_PER_SECOND + instant.getNano() / 1_000L;
     }
 
     static int compare(String first, String second) {
@@ -45,10 +87,18 @@ final class SlackTimestamp {
         if (second == null) {
             return 1;
         }
-        return new BigDecimal(first).compareTo(new BigDecimal(second));
+        return Long.compare(pack(first), pack(second));
     }
 
     static String formatEpochSecond(long epochSecond) {
-        return String.format(Locale.ROOT, "%d.000000", epochSecond);
+        return format(epochSecond * MICROS_PER_SECOND);
+    }
+
+    private static int digit(String ts, int index) {
+        char c = ts.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Invalid Slack timestamp: " + ts);
+        }
+        return c - '0';
     }
 }
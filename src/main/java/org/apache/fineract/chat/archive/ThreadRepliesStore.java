@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Thread replies of one channel as last fetched via conversations.replies, one file per UTC month
+// of the parent message. Rendering runs threads concurrently, hence the synchronization.
+// active.json lists the parents with replies and their latest_reply, so recently active threads
+// can be polled without reading the months they started in.
+final class ThreadRepliesStore {
+
+    private static final Logger LOG = Logger.getLogger(ThreadRepliesStore.class.getName());
+    private static final String REPLIES_DIR_NAME = "replies";
+    private static final String ACTIVE_FILE_NAME = "active.json";
+    private static final DateTimeFormatter SEGMENT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final TypeReference<TreeMap<String, ThreadReplies>> THREAD_MAP =
+            new TypeReference<>() {};
+    private static final TypeReference<TreeMap<String, String>> ACTIVE_MAP =
+            new TypeReference<>() {};
+
+    private final String channelName;
+    private final Path channelDir;
+    private final ObjectMapper objectMapper;
+    private final Map<YearMonth, TreeMap<String, ThreadReplies>> segments = new HashMap<>();
+    private final Set<YearMonth> dirty = new HashSet<>();
+    private final Set<YearMonth> unreadable = new HashSet<>();
+    // Parent ts to latest_reply; loaded on first use.
+    private TreeMap<String, String> active;
+    private boolean activeDirty;
+    private boolean activeUnreadable;
+
+    ThreadRepliesStore(Path stateDir, String channelName) {
+        this.channelName = channelName;
+        this.channelDir = stateDir.resolve(REPLIES_DIR_NAME).resolve(channelName);
+        this.objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    synchronized ThreadReplies get(String threadTs) {
+        return segment(monthOf(threadTs)).get(threadTs);
+    }
+
+    synchronized void put(String threadTs, ThreadReplies replies) {
+        YearMonth month = monthOf(threadTs);
+        if (!replies.equals(segment(month).put(threadTs, replies))) {
+            dirty.add(month);
+        }
+    }
+
+    // Whether active threads were ever recorded; if not, the stored parents have to be tracked.
+    synchronized boolean tracksActiveThreads() {
+        return active != null || Files.exists(channelDir.resolve(ACTIVE_FILE_NAME));
+    }
+
+    // Remembers a parent with replies; returns false for anything else.
+    synchronized boolean track(SlackMessage parent) {
+        if (parent.ts() == null || parent.latestReply() == null || parent.replyCount() == null
+                || parent.replyCount() <= 0) {
+            return false;
+        }
+        if (!parent.latestReply().equals(active().put(parent.ts(), parent.latestReply()))) {
+            activeDirty = true;
+        }
+        return true;
+    }
+
+    synchronized void untrack(String threadTs) {
+        if (active().remove(threadTs) != null) {
+            activeDirty = true;
+        }
+    }
+
+    // Parents whose latest reply is at or after since. Older ones are forgotten.
+    synchronized List<String> activeThreads(Instant since) {
+        long cutoff = SlackTimestamp.fromInstant(since);
+        if (active().values().removeIf(latest -> SlackTimestamp.pack(latest) < cutoff)) {
+            activeDirty = true;
+        }
+        return List.copyOf(active().keySet());
+    }
+
+    // Months with stored replies, by the month of the parent, oldest first.
+    synchronized List<YearMonth> months() {
+        Set<YearMonth> months = new TreeSet<>();
+        if (Files.isDirectory(channelDir)) {
+            try (Stream<Path> files = Files.list(channelDir)) {
+                files.map(path -> parseMonth(path.getFileName().toString()))
+                        .filter(month -> month != null)
+                        .forEach(months::add);
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Could not list thread replies of channel " + channelName
+                        + ".", ex);
+            }
+        }
+        return new ArrayList<>(months);
+    }
+
+    // Size and modification time of the stored segment, to notice it was rewritten; null if the
+    // month has no segment.
+    synchronized String segmentVersion(YearMonth month) {
+        Path path = segmentPath(month);
+        try {
+            return Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    // The replies of every thread that started in the month.
+    synchronized List<SlackMessage> replies(YearMonth month) {
+        List<SlackMessage> replies = new ArrayList<>();
+        for (ThreadReplies thread : segment(month).values()) {
+            if (thread.replies() != null) {
+                replies.addAll(thread.replies());
+            }
+        }
+        return replies;
+    }
+
+    // Drops segments without pending changes from memory.
+    synchronized void release() {
+        segments.keySet().removeIf(month -> !dirty.contains(month));
+    }
+
+    synchronized void flush() throws IOException {
+        for (YearMonth month : new TreeSet<>(dirty)) {
+            Path path = segmentPath(month);
+            if (unreadable.contains(month)) {
+                LOG.warning("Not overwriting unreadable thread replies " + path + ".");
+                continue;
+            }
+            TreeMap<String, ThreadReplies> segment = segments.get(month);
+            FileWriterUtil.replaceAtomically(path,
+                    temp -> objectMapper.writeValue(temp.toFile(), segment));
+        }
+        dirty.clear();
+        if (activeDirty && activeUnreadable) {
+            LOG.warning("Not overwriting unreadable active threads of channel " + channelName
+                    + ".");
+        } else if (activeDirty) {
+            TreeMap<String, String> snapshot = active;
+            FileWriterUtil.replaceAtomically(channelDir.resolve(ACTIVE_FILE_NAME),
+                    temp -> objectMapper.writeValue(temp.toFile(), snapshot));
+        }
+        activeDirty = false;
+    }
+
+    private TreeMap<String, String> active() {
+        if (active == null) {
+            Path path = channelDir.resolve(ACTIVE_FILE_NAME);
+            active = new TreeMap<>();
+            activeDirty = !Files.exists(path);
+            if (!activeDirty) {
+                try {
+                    active = objectMapper.readValue(path.toFile(), ACTIVE_MAP);
+                } catch (IOException ex) {
+                    LOG.log(Level.WARNING, "Could not read active threads of channel "
+                            + channelName + " from " + path + ".", ex);
+                    activeUnreadable = true;
+                }
+            }
+        }
+        return active;
+    }
+
+    private TreeMap<String, ThreadReplies> segment(YearMonth month) {
+        TreeMap<String, ThreadReplies> segment = segments.get(month);
+        if (segment == null) {
+            segment = load(month);
+            segments.put(month, segment);
+        }
+        return segment;
+    }
+
+    private TreeMap<String, ThreadReplies> load(YearMonth month) {
+        Path path = segmentPath(month);
+        if (!Files.exists(path)) {
+            return new TreeMap<>();
+        }
+        try {
+            return objectMapper.readValue(path.toFile(), THREAD_MAP);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Could not read thread replies of channel " + channelName
+                    + " from " + path + ".", ex);
+            unreadable.add(month);
+            return new TreeMap<>();
+        }
+    }
+
+    private Path segmentPath(YearMonth month) {
+        return channelDir.resolve(SEGMENT_FORMAT.format(month) + ".json");
+    }
+
+    private static YearMonth parseMonth(String fileName) {
+        if (!fileName.endsWith(".json")) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(fileName.substring(0, fileName.length() - ".json".length()),
+                    SEGMENT_FORMAT);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private static YearMonth monthOf(String ts) {
+        return YearMonth.from(SlackTimestamp.toInstant(ts).atZone(ZoneOffset.UTC));
+    }
+
+    // latestReply is the parent's latest_reply when the replies were fetched.
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ThreadReplies(@JsonProperty("latest_reply") String latestReply,
+            List<SlackMessage> replies) {
+
+        // A parent without latest_reply was stored before it was tracked; trust what we have.
+        boolean isCurrent(SlackMessage parent) {
+            return parent.latestReply() == null
+                    || SlackTimestamp.compare(parent.latestReply(), latestReply) <= 0;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+final class UserDirectory {
+
+    private static final Logger LOG = Logger.getLogger(UserDirectory.class.getName());
+
+    private final SlackApiClient slackApiClient;
+    private final String token;
+    private final Map<String, String> names;
+    private final Map<String, CompletableFuture<String>> lookups = new ConcurrentHashMap<>();
+    private volatile long listedAt;
+    private volatile boolean changed;
+
+    UserDirectory(UserStore.UserState state, SlackApiClient slackApiClient, String token) {
+        this.slackApiClient = slackApiClient;
+        this.token = token;
+        this.names = new ConcurrentHashMap<>(state.users() == null ? Map.of() : state.users());
+        this.listedAt = state.listedAt();
+    }
+
+    void refreshIfStale(Instant now, Duration refreshInterval) {
+        Instant lastListed = Instant.ofEpochSecond(listedAt);
+        if (lastListed.plus(refreshInterval).isAfter(now)) {
+            LOG.info("Using " + names.size() + " cached user name(s) listed at " + lastListed + ".");
+            return;
+        }
+        SlackApiClient.UsersListResponse response;
+        try {
+            response = slackApiClient.listUsers(token);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Slack users.list call failed. Using cached user names.", ex);
+            return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.WARNING, "Slack users.list call interrupted. Using cached user names.", ex);
+            return;
+        }
+        if (!response.ok()) {
+            LOG.warning("Slack users.list not ok: " + response.error() + ". Using cached user names.");
+            return;
+        }
+        for (SlackApiClient.SlackUser user : response.members()) {
+            if (user != null && user.id() != null && !user.id().isBlank()) {
+                names.put(user.id(), UserDisplayNameResolver.resolve(user));
+            }
+        }
+        listedAt = now.getEpochSecond();
+        changed = true;
+        LOG.info("Listed " + response.members().size() + " user(s) via users.list.");
+    }
+
+    // Channels and threads are fetched concurrently, so callers meeting the same unknown id wait
+    // on one users.info lookup. Failed lookups resolve to the id and are not retried.
+    String resolve(String userId) {
+        String name = names.get(userId);
+        if (name != null) {
+            return name;
+        }
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+        CompletableFuture<String> running = lookups.putIfAbsent(userId, lookup);
+        if (running != null) {
+            return running.join();
+        }
+        String resolved = userId;
+        try {
+            resolved = lookUp(userId);
+        } finally {
+            lookup.complete(resolved);
+        }
+        return resolved;
+    }
+
+    private String lookUp(String userId) {
+        SlackApiClient.UserInfoResponse response;
+        try {
+            response = slackApiClient.getUserInfo(token, userId);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Slack users.info call failed.", ex);
+            return userId;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.WARNING, "Slack users.info call interrupted.", ex);
+            return userId;
+        }
+
+        if (!response.ok() || response.user() == null) {
+            return userId;
+        }
+
+        String displayName = UserDisplayNameResolver.resolve(response.user());
+        names.put(userId, displayName);
+        changed = true;
+        return displayName;
+    }
+
+    boolean changed() {
+        return changed;
+    }
+
+    UserStore.UserState state() {
+        return new UserStore.UserState(listedAt, Map.copyOf(names));
+    }
+}
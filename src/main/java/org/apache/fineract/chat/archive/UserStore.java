@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+final class UserStore {
+
+    private static final String USER_FILE_NAME = "users.json";
+
+    private final Path userFile;
+    private final ObjectMapper objectMapper;
+
+    UserStore(Path stateDir) {
+        this.userFile = stateDir.resolve(USER_FILE_NAME);
+        this.objectMapper = new ObjectMapper()
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    Optional<UserState> load() throws IOException {
+        if (!Files.exists(userFile)) {
+            return Optional.empty();
+        }
+        return Optional.of(objectMapper.readValue(userFile.toFile(), UserState.class));
+    }
+
+    void save(UserState state) throws IOException {
+        FileWriterUtil.replaceAtomically(userFile,
+                temp -> objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(),
+                        state));
+    }
+
+    // listedAt is the epoch second of the last complete users.list refresh
+    record UserState(long listedAt, Map<String, String> users) {
+        static UserState empty() {
+            return new UserState(0, Map.of());
+        }
+    }
+}
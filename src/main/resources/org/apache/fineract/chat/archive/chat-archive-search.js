@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+// Client of the search index written by SearchIndex.java. search/index.json lists the monthly
+// shards of every channel, newest first; shards are fetched newest first, a few at a time, until
+// a page of results is found. Every query word must occur on a day, as a whole term or as the
+// start of one.
+(function () {
+  'use strict';
+
+  var SHARDS_PER_BATCH = 6;
+  var RESULTS_PER_PAGE = 50;
+  var MIN_TERM_LENGTH = 2;
+
+  var form = document.getElementById('archive-search-form');
+  var queryInput = document.getElementById('archive-search-query');
+  var channelSelect = document.getElementById('archive-search-channel');
+  var status = document.getElementById('archive-search-status');
+  var results = document.getElementById('archive-search-results');
+  var more = document.getElementById('archive-search-more');
+
+  var shardList = {};
+  var shardCache = {};
+  var search = null;
+
+  function terms(text) {
+    return text.toLowerCase().split(/[^\p{L}\p{N}]+/u).filter(function (term) {
+      return term.length >= MIN_TERM_LENGTH;
+    });
+  }
+
+  function fetchJson(url) {
+    return fetch(url).then(function (response) {
+      if (!response.ok) {
+        throw new Error(url + ': ' + response.status);
+      }
+      return response.json();
+    });
+  }
+
+  function loadShard(shard) {
+    var key = shard.channel + '/' + shard.month;
+    if (!shardCache[key]) {
+      shardCache[key] = fetchJson(encodeURIComponent(shard.channel) + '/' + shard.month + '.json')
+          .catch(function () {
+            return {};
+          });
+    }
+    return shardCache[key];
+  }
+
+  // Days of the month that have every query term, as a term or a term prefix.
+  function matchingDays(postings, queryTerms) {
+    var days = null;
+    queryTerms.forEach(function (queryTerm) {
+      var found = {};
+      Object.keys(postings).forEach(function (term) {
+        if (term.lastIndexOf(queryTerm, 0) === 0) {
+          postings[term].forEach(function (day) {
+            found[day] = true;
+          });
+        }
+      });
+      days = days === null ? found : Object.keys(days).reduce(function (both, day) {
+        if (found[day]) {
+          both[day] = true;
+        }
+        return both;
+      }, {});
+    });
+    return Object.keys(days || {}).map(Number).sort(function (a, b) {
+      return b - a;
+    });
+  }
+
+  function shardsFor(channel) {
+    var shards = [];
+    Object.keys(shardList).forEach(function (name) {
+      if (channel && channel !== name) {
+        return;
+      }
+      shardList[name].forEach(function (month) {
+        shards.push({channel: name, month: month});
+      });
+    });
+    return shards.sort(function (a, b) {
+      return a.month === b.month ? a.channel.localeCompare(b.channel)
+          : (a.month < b.month ? 1 : -1);
+    });
+  }
+
+  function addResult(shard, day) {
+    var date = shard.month + '-' + (day < 10 ? '0' : '') + day;
+    var link = document.createElement('a');
+    link.href = '../daily/' + encodeURIComponent(shard.channel) + '/'
+        + date.replace(/-/g, '/') + '/';
+    link.textContent = '#' + shard.channel + ' ' + date;
+    var item = document.createElement('li');
+    item.appendChild(link);
+    results.appendChild(item);
+  }
+
+  function next() {
+    var current = search;
+    var batch = current.shards.splice(0, SHARDS_PER_BATCH);
+    status.textContent = 'Searching…';
+    more.hidden = true;
+    return Promise.all(batch.map(loadShard)).then(function (shards) {
+      if (current !== search) {
+        return;
+      }
+      shards.forEach(function (postings, index) {
+        matchingDays(postings, current.terms).forEach(function (day) {
+          addResult(batch[index], day);
+          current.found++;
+        });
+      });
+      if (current.shards.length > 0 && current.found < current.wanted) {
+        return next();
+      }
+      status.textContent = current.found === 0 ? 'No matching days.'
+          : current.found + ' matching day(s)' + (current.shards.length > 0 ? ' so far.' : '.');
+      more.hidden = current.shards.length === 0;
+    });
+  }
+
+  function start(query, channel) {
+    results.textContent = '';
+    var queryTerms = terms(query);
+    if (queryTerms.length === 0) {
+      status.textContent = 'Enter at least one word of ' + MIN_TERM_LENGTH + ' or more characters.';
+      more.hidden = true;
+      search = null;
+      return;
+    }
+    search = {terms: queryTerms, shards: shardsFor(channel), found: 0, wanted: RESULTS_PER_PAGE};
+    next();
+  }
+
+  form.addEventListener('submit', function (event) {
+    event.preventDefault();
+    var params = new URLSearchParams();
+    params.set('q', queryInput.value);
+    if (channelSelect.value) {
+      params.set('channel', channelSelect.value);
+    }
+    history.replaceState(null, '', '?' + params.toString());
+    start(queryInput.value, channelSelect.value);
+  });
+
+  more.addEventListener('click', function () {
+    if (search) {
+      search.wanted = search.found + RESULTS_PER_PAGE;
+      next();
+    }
+  });
+
+  fetchJson('index.json').then(function (list) {
+    shardList = list;
+    Object.keys(list).forEach(function (channel) {
+      var option = document.createElement('option');
+      option.value = channel;
+      option.textContent = '#' + channel;
+      channelSelect.appendChild(option);
+    });
+    var params = new URLSearchParams(location.search);
+    if (params.has('channel')) {
+      channelSelect.value = params.get('channel');
+    }
+    if (params.has('q')) {
+      queryInput.value = params.get('q');
+      start(queryInput.value, channelSelect.value);
+    }
+  }).catch(function () {
+    status.textContent = 'The search index is not available.';
+  });
+}());
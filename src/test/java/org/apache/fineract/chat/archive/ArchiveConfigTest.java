@@ -19,9 +19,12 @@
 package org.apache.fineract.chat.archive;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 class ArchiveConfigTest {
@@ -69,6 +72,20 @@ class ArchiveConfigTest {
         assertEquals(Path.of(ArchiveConfig.DEFAULT_STATE_DIR), config.stateDir());
         assertEquals(ArchiveConfig.DEFAULT_LOOKBACK_DAYS, config.lookbackDays());
         assertEquals("", config.siteBaseUrl());
+        assertEquals(ArchiveConfig.DEFAULT_FETCH_CONCURRENCY, config.fetchConcurrency());
+        assertEquals(ArchiveConfig.HistoryFormat.JSON, config.historyFormat());
+        assertEquals(ArchiveConfig.DEFAULT_SLACK_API_BASE_URL, config.slackApiBaseUrl());
+        assertTrue(config.slackPacing());
+    }
+
+    @Test
+    void fromEnvParsesSlackApiSettings() {
+        ArchiveConfig config = ArchiveConfig.fromEnv(Map.of(
+                ArchiveConfig.SLACK_API_BASE_URL_ENV, " http://localhost:8080/api/ ",
+                ArchiveConfig.SLACK_PACING_ENV, "false"));
+
+        assertEquals("http://localhost:8080/api", config.slackApiBaseUrl());
+        assertFalse(config.slackPacing());
     }
 
     @Test
@@ -78,4 +95,62 @@ class ArchiveConfigTest {
 
         assertEquals("https://example.com/archive", config.siteBaseUrl());
     }
+
+    @Test
+    void fromEnvParsesFullRebuildFlag() {
+        ArchiveConfig enabled = ArchiveConfig.fromEnv(Map.of(ArchiveConfig.FULL_REBUILD_ENV, "true"));
+        ArchiveConfig disabled = ArchiveConfig.fromEnv(Map.of());
+
+        assertTrue(enabled.fullRebuild());
+        assertFalse(disabled.fullRebuild());
+    }
+
+    @Test
+    void fromEnvParsesPermalinkMode() {
+        ArchiveConfig config = ArchiveConfig.fromEnv(Map.of(ArchiveConfig.PERMALINK_MODE_ENV, "Verify",
+                ArchiveConfig.PERMALINK_VERIFY_SAMPLES_ENV, "3"));
+        ArchiveConfig fallback = ArchiveConfig.fromEnv(Map.of(ArchiveConfig.PERMALINK_MODE_ENV, "bogus"));
+
+        assertEquals(ArchiveConfig.PermalinkMode.VERIFY, config.permalinkMode());
+        assertEquals(3, config.permalinkVerifySamples());
+        assertEquals(ArchiveConfig.PermalinkMode.API, fallback.permalinkMode());
+    }
+
+    @Test
+    void fromEnvParsesUserListRefreshInterval() {
+        ArchiveConfig config = ArchiveConfig.fromEnv(Map.of(ArchiveConfig.USER_LIST_REFRESH_HOURS_ENV, "6"));
+        ArchiveConfig fallback = ArchiveConfig.fromEnv(Map.of());
+
+        assertEquals(Duration.ofHours(6), config.userListRefreshInterval());
+        assertEquals(Duration.ofHours(ArchiveConfig.DEFAULT_USER_LIST_REFRESH_HOURS),
+                fallback.userListRefreshInterval());
+    }
+
+    @Test
+    void fromEnvParsesServeSettings() {
+        ArchiveConfig config = ArchiveConfig.fromEnv(Map.of(ArchiveConfig.SERVE_PORT_ENV, "9090",
+                ArchiveConfig.SERVE_UPDATE_MINUTES_ENV, "5"));
+        ArchiveConfig fallback = ArchiveConfig.fromEnv(Map.of());
+
+        assertEquals(9090, config.servePort());
+        assertEquals(Duration.ofMinutes(5), config.serveUpdateInterval());
+        assertEquals(ArchiveConfig.DEFAULT_SERVE_PORT, fallback.servePort());
+        assertEquals(Duration.ofMinutes(ArchiveConfig.DEFAULT_SERVE_UPDATE_MINUTES),
+                fallback.serveUpdateInterval());
+    }
+
+    @Test
+    void fromEnvParsesFeedSize() {
+        assertEquals(10, ArchiveConfig.fromEnv(Map.of(ArchiveConfig.FEED_SIZE_ENV, "10")).feedSize());
+        assertEquals(ArchiveConfig.DEFAULT_FEED_SIZE,
+                ArchiveConfig.fromEnv(Map.of(ArchiveConfig.FEED_SIZE_ENV, "0")).feedSize());
+    }
+
+    @Test
+    void fromEnvParsesThreadPollDays() {
+        assertEquals(Duration.ofDays(3), ArchiveConfig.fromEnv(
+                Map.of(ArchiveConfig.THREAD_POLL_DAYS_ENV, "3")).threadPollAge());
+        assertEquals(Duration.ofDays(ArchiveConfig.DEFAULT_THREAD_POLL_DAYS),
+                ArchiveConfig.fromEnv(Map.of()).threadPollAge());
+    }
 }
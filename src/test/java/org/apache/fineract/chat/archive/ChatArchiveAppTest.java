@@ -20,8 +20,18 @@
 package org.apache.fineract.chat.archive;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class ChatArchiveAppTest {
 
@@ -41,4 +51,158 @@ class ChatArchiveAppTest {
 
         assertEquals(1, historyMap.size(), "If this is 2, then msg1.ts() is NOT equal to the string we passed in.");
     }
+
+    @Test
+    void archivesFakeWorkspaceAndSkipsCurrentThreadsOnRerun(@TempDir Path tempDir)
+            throws Exception {
+        FakeSlackServer.Workspace workspace = FakeSlackServer.Workspace.of(2, 60, 30);
+        try (FakeSlackServer server = FakeSlackServer.start(workspace,
+                FakeSlackServer.Faults.none())) {
+            ArchiveConfig config = ArchiveConfig.fromEnv(Map.of(
+                    ArchiveConfig.SLACK_TOKEN_ENV, FakeSlackServer.TOKEN,
+                    ArchiveConfig.CHANNELS_ALLOWLIST_ENV, "channel-000,channel-001",
+                    ArchiveConfig.OUTPUT_DIR_ENV, tempDir.resolve("docs").toString(),
+                    ArchiveConfig.STATE_DIR_ENV, tempDir.resolve("state").toString(),
+                    ArchiveConfig.LOOKBACK_DAYS_ENV, "5",
+                    ArchiveConfig.SLACK_API_BASE_URL_ENV, server.baseUrl(),
+                    ArchiveConfig.SLACK_PACING_ENV, "false",
+                    ArchiveConfig.PERMALINK_MODE_ENV, "synthesize",
+                    ArchiveConfig.SITE_BASE_URL_ENV, "https://example.org"));
+
+            assertEquals(0, ChatArchiveApp.run(config));
+            long repliesCalls = server.calls(SlackMethod.CONVERSATIONS_REPLIES);
+            assertTrue(repliesCalls > 0);
+            for (LocalDate day = workspace.firstDay(); !day.isAfter(workspace.lastDay());
+                    day = day.plusDays(1)) {
+                Path page = tempDir.resolve("docs").resolve("daily").resolve("channel-001")
+                        .resolve(String.format(Locale.ROOT, "%d/%02d/%02d", day.getYear(),
+                                day.getMonthValue(), day.getDayOfMonth()))
+                        .resolve("index.html");
+                assertTrue(Files.exists(page), page.toString());
+            }
+            Path shard = tempDir.resolve("docs").resolve("sitemaps").resolve("channel-001")
+                    .resolve(workspace.lastDay().getYear() + ".xml");
+            assertTrue(Files.readString(shard).contains("<lastmod>"));
+            assertTrue(Files.readString(tempDir.resolve("docs").resolve("sitemap.xml"))
+                    .contains("https://example.org/sitemaps/channel-001/"));
+            Path feed = tempDir.resolve("docs").resolve("feeds").resolve("channel-001.xml");
+            String feedXml = Files.readString(feed);
+            assertTrue(feedXml.contains("<entry>"));
+            assertTrue(Files.readString(tempDir.resolve("docs").resolve("feed.xml"))
+                    .contains("<link rel=\"self\" href=\"https://example.org/feed.xml\"/>"));
+
+            assertEquals(0, ChatArchiveApp.run(config));
+            assertEquals(repliesCalls, server.calls(SlackMethod.CONVERSATIONS_REPLIES));
+            assertEquals(feedXml, Files.readString(feed));
+
+            // history was stored, but the feed state of a failed run was not
+            Files.delete(tempDir.resolve("state").resolve("feeds.json"));
+            Files.delete(feed);
+            assertEquals(0, ChatArchiveApp.run(config));
+            assertEquals(feedXml, Files.readString(feed));
+        }
+    }
+
+    @Test
+    void pollsThreadsOfParentsOlderThanTheFetch(@TempDir Path tempDir) throws Exception {
+        FakeSlackServer.Workspace workspace = FakeSlackServer.Workspace.of(1, 60, 10);
+        try (FakeSlackServer server = FakeSlackServer.start(workspace,
+                FakeSlackServer.Faults.none())) {
+            Map<String, String> env = new HashMap<>(Map.of(
+                    ArchiveConfig.SLACK_TOKEN_ENV, FakeSlackServer.TOKEN,
+                    ArchiveConfig.CHANNELS_ALLOWLIST_ENV, "channel-000",
+                    ArchiveConfig.OUTPUT_DIR_ENV, tempDir.resolve("docs").toString(),
+                    ArchiveConfig.STATE_DIR_ENV, tempDir.resolve("state").toString(),
+                    ArchiveConfig.LOOKBACK_DAYS_ENV, "10",
+                    ArchiveConfig.SLACK_API_BASE_URL_ENV, server.baseUrl(),
+                    ArchiveConfig.SLACK_PACING_ENV, "false",
+                    ArchiveConfig.PERMALINK_MODE_ENV, "synthesize"));
+            assertEquals(0, ChatArchiveApp.run(ArchiveConfig.fromEnv(env)));
+
+            SlackMessage parent = olderParent(tempDir, workspace);
+            server.reply(FakeSlackServer.channelId(0), parent.ts(), new SlackMessage(
+                    SlackTimestamp.formatEpochSecond(Instant.now().getEpochSecond()), "U1", null,
+                    "late reply", null, parent.ts(), null, null));
+
+            env.put(ArchiveConfig.LOOKBACK_DAYS_ENV, "1");
+            long threadCalls = server.threadCalls(parent.ts());
+            assertEquals(0, ChatArchiveApp.run(ArchiveConfig.fromEnv(env)));
+            // the poll's replies are rendered as they are
+            assertEquals(threadCalls + 1, server.threadCalls(parent.ts()));
+            Path page = dailyPage(tempDir, DirtyDateTracker.dateOf(parent.ts()));
+            assertTrue(Files.readString(page).contains("late reply"));
+        }
+    }
+
+    @Test
+    void rendersTheDaysOfAFailedCommitOnTheNextRun(@TempDir Path tempDir) throws Exception {
+        FakeSlackServer.Workspace workspace = FakeSlackServer.Workspace.of(1, 60, 10);
+        try (FakeSlackServer server = FakeSlackServer.start(workspace,
+                FakeSlackServer.Faults.none())) {
+            Map<String, String> env = new HashMap<>(Map.of(
+                    ArchiveConfig.SLACK_TOKEN_ENV, FakeSlackServer.TOKEN,
+                    ArchiveConfig.CHANNELS_ALLOWLIST_ENV, "channel-000",
+                    ArchiveConfig.OUTPUT_DIR_ENV, tempDir.resolve("docs").toString(),
+                    ArchiveConfig.STATE_DIR_ENV, tempDir.resolve("state").toString(),
+                    ArchiveConfig.LOOKBACK_DAYS_ENV, "10",
+                    ArchiveConfig.SLACK_API_BASE_URL_ENV, server.baseUrl(),
+                    ArchiveConfig.SLACK_PACING_ENV, "false",
+                    ArchiveConfig.PERMALINK_MODE_ENV, "synthesize"));
+            assertEquals(0, ChatArchiveApp.run(ArchiveConfig.fromEnv(env)));
+
+            SlackMessage parent = olderParent(tempDir, workspace);
+            server.reply(FakeSlackServer.channelId(0), parent.ts(), new SlackMessage(
+                    SlackTimestamp.formatEpochSecond(Instant.now().getEpochSecond()), "U1", null,
+                    "late reply", null, parent.ts(), null, null));
+            // taken once the run is underway, so committing the daily pages fails
+            Path journal = tempDir.resolve("state").resolve("staging").resolve("journal.json");
+            server.onCall(SlackMethod.CONVERSATIONS_REPLIES, () -> {
+                try {
+                    Files.createDirectories(journal.resolve("taken"));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+
+            ThreadRepliesStore.ThreadReplies stored = new ThreadRepliesStore(
+                    tempDir.resolve("state"), "channel-000").get(parent.ts());
+
+            env.put(ArchiveConfig.LOOKBACK_DAYS_ENV, "1");
+            assertEquals(1, ChatArchiveApp.run(ArchiveConfig.fromEnv(env)));
+            Path page = dailyPage(tempDir, DirtyDateTracker.dateOf(parent.ts()));
+            assertFalse(Files.readString(page).contains("late reply"));
+            // the polled replies are not recorded as current before they are published
+            assertEquals(stored, new ThreadRepliesStore(tempDir.resolve("state"), "channel-000")
+                    .get(parent.ts()));
+            long threadCalls = server.threadCalls(parent.ts());
+
+            server.onCall(SlackMethod.CONVERSATIONS_REPLIES, () -> {});
+            Files.delete(journal.resolve("taken"));
+            Files.delete(journal);
+            assertEquals(0, ChatArchiveApp.run(ArchiveConfig.fromEnv(env)));
+            assertTrue(Files.readString(page).contains("late reply"));
+            assertEquals(threadCalls + 1, server.threadCalls(parent.ts()));
+        }
+    }
+
+    // A parent with replies, days before what a one-day lookback fetches.
+    private static SlackMessage olderParent(Path tempDir, FakeSlackServer.Workspace workspace) {
+        HistoryStore history = new HistoryStore(tempDir.resolve("state"), "channel-000");
+        for (LocalDate day = workspace.firstDay();
+                day.isBefore(workspace.lastDay().minusDays(2)); day = day.plusDays(1)) {
+            for (SlackMessage message : history.messagesOn(day)) {
+                if (message.replyCount() != null && message.replyCount() > 0) {
+                    return message;
+                }
+            }
+        }
+        throw new AssertionError("No thread before the lookback.");
+    }
+
+    private static Path dailyPage(Path tempDir, LocalDate day) {
+        return tempDir.resolve("docs").resolve("daily").resolve("channel-000")
+                .resolve(String.format(Locale.ROOT, "%d/%02d/%02d", day.getYear(),
+                        day.getMonthValue(), day.getDayOfMonth()))
+                .resolve("index.html");
+    }
 }
\ No newline at end of file
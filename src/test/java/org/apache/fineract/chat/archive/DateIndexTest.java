@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DateIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void firstLoadWalksOutputAndTouchesEverything() throws IOException {
+        Path dailyRoot = tempDir.resolve("docs").resolve("daily");
+        Files.createDirectories(dailyRoot.resolve("fineract/2026/02/06"));
+        Files.createDirectories(dailyRoot.resolve("fineract/2026/03/01"));
+        Files.createDirectories(dailyRoot.resolve("Dev/2025/12/31"));
+        DateIndex index = new DateIndex(tempDir.resolve("state"));
+
+        index.load(dailyRoot);
+
+        assertEquals(List.of("Dev", "fineract"), index.channels());
+        assertEquals(List.of(LocalDate.of(2026, 3, 1), LocalDate.of(2026, 2, 6)),
+                index.dates("fineract"));
+        assertEquals(Set.of(YearMonth.of(2026, 2), YearMonth.of(2026, 3)),
+                index.touchedMonths("fineract"));
+    }
+
+    @Test
+    void stagedIndexLoadsWithoutWalkingOrTouching() throws IOException {
+        OutputTransaction transaction = new OutputTransaction(tempDir.resolve("state"));
+        DateIndex index = new DateIndex(tempDir.resolve("state"));
+        index.load(tempDir.resolve("docs").resolve("daily"));
+        index.add("fineract", LocalDate.of(2026, 2, 6));
+        index.add("fineract", LocalDate.of(2026, 2, 7));
+        index.stage(transaction);
+        transaction.commit();
+
+        DateIndex reloaded = new DateIndex(tempDir.resolve("state"));
+        reloaded.load(tempDir.resolve("missing"));
+
+        assertEquals(List.of(LocalDate.of(2026, 2, 7), LocalDate.of(2026, 2, 6)),
+                reloaded.dates("fineract"));
+        assertFalse(reloaded.anyTouched());
+    }
+
+    @Test
+    void onlyChangedMonthsAreTouched() throws IOException {
+        DateIndex index = new DateIndex(tempDir.resolve("state"));
+        Files.createDirectories(tempDir.resolve("state").resolve("dates"));
+        index.load(tempDir.resolve("docs").resolve("daily"));
+
+        index.add("fineract", LocalDate.of(2026, 2, 6));
+        index.remove("fineract", LocalDate.of(2026, 1, 5));
+        index.remove("fineract", LocalDate.of(2026, 2, 6));
+        index.add("fineract", LocalDate.of(2026, 3, 1));
+
+        assertEquals(Set.of(YearMonth.of(2026, 2), YearMonth.of(2026, 3)),
+                index.touchedMonths("fineract"));
+        assertTrue(index.touchedMonths("dev").isEmpty());
+    }
+
+    @Test
+    void changedYearsCoverTouchedMonthsAndRewrittenPages() throws IOException {
+        DateIndex index = new DateIndex(tempDir.resolve("state"));
+        Files.createDirectories(tempDir.resolve("state").resolve("dates"));
+        index.load(tempDir.resolve("docs").resolve("daily"));
+
+        index.add("fineract", LocalDate.of(2026, 2, 6));
+        index.changed("dev", LocalDate.of(2025, 12, 31));
+
+        assertEquals(Set.of(2026), index.changedYears("fineract"));
+        assertEquals(Set.of(2025), index.changedYears("dev"));
+        assertEquals(Set.of("dev", "fineract"), index.changedChannels());
+        assertTrue(index.touchedMonths("dev").isEmpty());
+    }
+}
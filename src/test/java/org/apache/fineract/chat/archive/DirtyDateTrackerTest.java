@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DirtyDateTrackerTest {
+
+    // 2026-02-05T12:00:00Z and 2026-02-06T12:00:00Z
+    private static final String FEB_5 = "1770292800.000100";
+    private static final String FEB_6 = "1770379200.000100";
+    private static final String FEB_6_LATER = "1770382800.000100";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void marksOnlyDatesOfFetchedMessages() {
+        HistoryStore history = new HistoryStore(tempDir, "fineract");
+        history.put(message(FEB_5, null, "old"));
+
+        Set<LocalDate> dirty = merge(history,
+                List.of(message(FEB_6, null, "new")), FEB_6);
+
+        assertEquals(Set.of(LocalDate.parse("2026-02-06")), dirty);
+        assertEquals(2, history.since(FEB_5).size());
+    }
+
+    @Test
+    void replyToOlderParentMarksParentDate() {
+        HistoryStore history = new HistoryStore(tempDir, "fineract");
+        history.put(message(FEB_5, FEB_5, "parent"));
+
+        Set<LocalDate> dirty = merge(history,
+                List.of(message(FEB_6, FEB_5, "broadcast reply")), FEB_6);
+
+        assertEquals(Set.of(LocalDate.parse("2026-02-05")), dirty);
+    }
+
+    @Test
+    void deletedMessagesInsideWindowAreDroppedAndMarked() {
+        HistoryStore history = new HistoryStore(tempDir, "fineract");
+        history.put(message(FEB_5, null, "outside window"));
+        history.put(message(FEB_6, null, "deleted"));
+
+        Set<LocalDate> dirty = merge(history,
+                List.of(message(FEB_6_LATER, null, "kept")), FEB_6);
+
+        assertEquals(Set.of(LocalDate.parse("2026-02-06")), dirty);
+        assertFalse(history.contains(FEB_6));
+        assertTrue(history.contains(FEB_5));
+    }
+
+    @Test
+    void newParentPullsOrphanReplyOffItsOwnPage() {
+        HistoryStore history = new HistoryStore(tempDir, "fineract");
+        history.put(message(FEB_6, FEB_5, "orphan reply"));
+
+        Set<LocalDate> dirty = merge(history,
+                List.of(message(FEB_5, FEB_5, "parent")), FEB_5);
+
+        assertEquals(Set.of(LocalDate.parse("2026-02-05"), LocalDate.parse("2026-02-06")), dirty);
+    }
+
+    @Test
+    void journalCarriesChangesOfARunThatDidNotCommit() throws Exception {
+        HistoryStore history = new HistoryStore(tempDir, "fineract");
+        history.put(message(FEB_6, FEB_5, "orphan reply"));
+        RenderJournal journal = new RenderJournal(tempDir, "fineract");
+        DirtyDateTracker died = new DirtyDateTracker(history, FEB_5);
+        died.add(List.of(message(FEB_5, FEB_5, "parent")));
+        journal.save(died.dirtyDates(), died.changedParents());
+
+        // the parent is stored now, so fetching it again changes nothing by itself
+        DirtyDateTracker next = new DirtyDateTracker(history, FEB_5);
+        next.resume(journal.load());
+        next.add(List.of(message(FEB_5, FEB_5, "parent")));
+
+        assertEquals(Set.of(LocalDate.parse("2026-02-05"), LocalDate.parse("2026-02-06")),
+                next.finish(true));
+        journal.clear();
+        assertEquals(RenderJournal.Pending.empty(), journal.load());
+    }
+
+    @Test
+    void pagesAccountForTheStretchBelowThePagesBeforeThem() {
+        HistoryStore history = new HistoryStore(tempDir, "fineract");
+        history.put(message(FEB_5, null, "deleted"));
+        history.put(message(FEB_6, null, "kept"));
+        history.put(message(FEB_6_LATER, null, "kept later"));
+        DirtyDateTracker tracker = new DirtyDateTracker(history, "1770000000.000000");
+
+        tracker.add(List.of(message(FEB_6_LATER, null, "kept later")));
+        tracker.add(List.of(message(FEB_6, null, "kept")));
+        assertTrue(history.contains(FEB_5));
+        Set<LocalDate> dirty = tracker.finish(true);
+
+        assertEquals(Set.of(LocalDate.parse("2026-02-05"), LocalDate.parse("2026-02-06")), dirty);
+        assertFalse(history.contains(FEB_5));
+        assertTrue(history.contains(FEB_6));
+        assertTrue(history.contains(FEB_6_LATER));
+    }
+
+    @Test
+    void brokenOffFetchKeepsTheStretchBelowItsLastPage() {
+        HistoryStore history = new HistoryStore(tempDir, "fineract");
+        history.put(message(FEB_5, null, "not fetched yet"));
+        DirtyDateTracker tracker = new DirtyDateTracker(history, "1770000000.000000");
+
+        tracker.add(List.of(message(FEB_6, null, "new")));
+
+        assertEquals(Set.of(LocalDate.parse("2026-02-06")), tracker.finish(false));
+        assertTrue(history.contains(FEB_5));
+    }
+
+    @Test
+    void reportsWhenPagesReachAnOlderMonth() {
+        HistoryStore history = new HistoryStore(tempDir, "fineract");
+        DirtyDateTracker tracker = new DirtyDateTracker(history, null);
+
+        assertFalse(tracker.add(List.of(message(FEB_6, null, "february"))));
+        assertFalse(tracker.add(List.of(message(FEB_5, null, "february too"))));
+        // 2026-01-31T12:00:00Z
+        assertTrue(tracker.add(List.of(message("1769860800.000100", null, "january"))));
+    }
+
+    private static Set<LocalDate> merge(HistoryStore history, List<SlackMessage> fetched,
+            String oldestTs) {
+        DirtyDateTracker tracker = new DirtyDateTracker(history, oldestTs);
+        tracker.add(fetched);
+        return tracker.finish(true);
+    }
+
+    private static SlackMessage message(String ts, String threadTs, String text) {
+        return new SlackMessage(ts, "U1", null, text, null, threadTs, null, null);
+    }
+}
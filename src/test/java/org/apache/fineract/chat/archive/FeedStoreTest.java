@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FeedStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void keepsTheNewestEntriesPerChannel() throws IOException {
+        FeedStore feeds = new FeedStore(tempDir, 2);
+        feeds.add("fineract", List.of(entry("fineract", 100), entry("fineract", 300)));
+        feeds.add("fineract", List.of(entry("fineract", 200)));
+        feeds.add("mifos", List.of(entry("mifos", 250)));
+        feeds.add("empty", List.of());
+
+        assertEquals(List.of("300", "200"), timestamps(feeds.entries("fineract")));
+        assertEquals(List.of("300", "250"), timestamps(feeds.latest()));
+        assertEquals(Set.of("fineract", "mifos"), feeds.changedChannels());
+
+        feeds.save();
+        assertTrue(feeds.changedChannels().isEmpty());
+        FeedStore reloaded = new FeedStore(tempDir, 2);
+        reloaded.load();
+        assertEquals(feeds.entries("fineract"), reloaded.entries("fineract"));
+
+        reloaded.add("fineract", List.of(entry("fineract", 100)));
+        assertTrue(reloaded.changedChannels().isEmpty());
+    }
+
+    private static SiteMetadataRenderer.FeedEntry entry(String channel, int second) {
+        return new SiteMetadataRenderer.FeedEntry(channel, second + ".000100", "Alice",
+                "Alice: message " + second, "message " + second, "daily/" + channel + "/1970/01/01/");
+    }
+
+    private static List<String> timestamps(List<SiteMetadataRenderer.FeedEntry> entries) {
+        return entries.stream().map(entry -> entry.ts().substring(0, entry.ts().indexOf('.')))
+                .toList();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HashingUtf8SinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writesSameBytesAndHashAsStringEncoding() throws Exception {
+        String text = "<p>café € 🚀</p>\n".repeat(10_000);
+        Path file = tempDir.resolve("page.html");
+        HashingUtf8Sink sink = new HashingUtf8Sink(file);
+        try (sink) {
+            sink.append(text, 0, 7).append(text.substring(7));
+        }
+
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, Files.readAllBytes(file));
+        assertEquals(expected.length, sink.size());
+        assertEquals(sha256(expected), sink.sha256());
+    }
+
+    @Test
+    void surrogatePairsSurviveSplitAppendsAndLoneOnesBecomeQuestionMarks() throws IOException {
+        String text = "a🚀b\ud83dc\ude80d\ud83d";
+        Path file = tempDir.resolve("page.html");
+        try (HashingUtf8Sink sink = new HashingUtf8Sink(file)) {
+            for (int index = 0; index < text.length(); index++) {
+                sink.append(text.charAt(index));
+            }
+        }
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+    }
+
+    @Test
+    void hashOnlySinkHashesWithoutAFile() throws Exception {
+        String text = "<p>café € 🚀</p>\n".repeat(10_000);
+        HashingUtf8Sink sink = HashingUtf8Sink.hashOnly();
+        try (sink) {
+            sink.append(text);
+        }
+
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, sink.size());
+        assertEquals(sha256(expected), sink.sha256());
+    }
+
+    private static String sha256(byte[] bytes) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsMessages() throws IOException {
+        List<SlackMessage> messages = List.of(
+                new SlackMessage("1770292800.000100", "U1", null, "hello <@U2> ✓", null,
+                        "1770292800.000100", null,
+                        List.of(new SlackMessage.Reaction("thumbsup", 3)), 1,
+                        "1770292900.012345"),
+                new SlackMessage("1770292900.012345", "U1", "B1", "", "bot_message",
+                        "1770292800.000100", new SlackMessage.Edited("1770293000.000000"),
+                        List.of()),
+                new SlackMessage("0001.5", null, null, null, null, "odd ts", null, null));
+        Path path = tempDir.resolve("2026-02.bin");
+
+        HistoryCodec.write(path, messages);
+
+        assertEquals(messages, HistoryCodec.read(path));
+    }
+
+    @Test
+    void sharesRepeatedStrings() throws IOException {
+        Path path = tempDir.resolve("2026-02.bin");
+        HistoryCodec.write(path, List.of(
+                new SlackMessage("1770292800.000100", "U1", null, "a", null, null, null, null),
+                new SlackMessage("1770292900.000100", "U1", null, "b", null, null, null, null)));
+
+        List<SlackMessage> read = HistoryCodec.read(path);
+
+        assertSame(read.get(0).user(), read.get(1).user());
+    }
+
+    @Test
+    void cursorDecodesOnlyTheMessagesAskedFor() throws IOException {
+        Path path = tempDir.resolve("2026-02.bin");
+        SlackMessage second = new SlackMessage("1770292900.000100", "U2", null, "b", null,
+                "1770292800.000100", new SlackMessage.Edited("1770293000.000000"),
+                List.of(new SlackMessage.Reaction("eyes", 1)), 0, null);
+        HistoryCodec.write(path, List.of(
+                new SlackMessage("1770292800.000100", "U1", null, "a", null, null, null, null),
+                second,
+                new SlackMessage(null, "U1", null, "c", null, null, null, null)));
+
+        HistoryCodec.Cursor cursor = HistoryCodec.open(path);
+
+        assertEquals(3, cursor.size());
+        assertTrue(cursor.next());
+        assertEquals(SlackTimestamp.pack("1770292800.000100"), cursor.ts());
+        assertTrue(cursor.next());
+        assertEquals(second, cursor.message());
+        assertTrue(cursor.next());
+        assertEquals(HistoryCodec.Cursor.NO_TS, cursor.ts());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void rejectsTruncatedSegment() throws IOException {
+        Path path = tempDir.resolve("2026-02.bin");
+        HistoryCodec.write(path, List.of(
+                new SlackMessage("1770292800.000100", "U1", null, "text", null, null, null, null)));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> HistoryCodec.read(path));
+    }
+}
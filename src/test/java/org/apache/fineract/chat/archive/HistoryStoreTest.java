@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryStoreTest {
+
+    // 2026-01-31T12:00:00Z, 2026-02-05T12:00:00Z and 2026-02-06T12:00:00Z
+    private static final String JAN_31 = "1769860800.000100";
+    private static final String FEB_5 = "1770292800.000100";
+    private static final String FEB_6 = "1770379200.000100";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void messagesArePartitionedByMonth() throws IOException {
+        HistoryStore store = new HistoryStore(tempDir, "fineract");
+        store.put(message(JAN_31, "january"));
+        store.put(message(FEB_5, "february"));
+        store.flush();
+
+        Path channelDir = tempDir.resolve("history").resolve("fineract");
+        assertTrue(Files.exists(channelDir.resolve("2026-01.json")));
+        assertTrue(Files.exists(channelDir.resolve("2026-02.json")));
+
+        HistoryStore reopened = new HistoryStore(tempDir, "fineract");
+        assertEquals(List.of(YearMonth.of(2026, 1), YearMonth.of(2026, 2)), reopened.months());
+        assertEquals("february", reopened.get(FEB_5).text());
+        assertEquals(List.of(message(FEB_5, "february")),
+                reopened.messagesOn(LocalDate.parse("2026-02-05")));
+    }
+
+    @Test
+    void flushOnlyRewritesChangedSegments() throws IOException {
+        HistoryStore store = new HistoryStore(tempDir, "fineract");
+        store.put(message(JAN_31, "january"));
+        store.put(message(FEB_5, "february"));
+        store.flush();
+        Path january = tempDir.resolve("history").resolve("fineract").resolve("2026-01.json");
+        Files.writeString(january, Files.readString(january) + "\n");
+
+        HistoryStore reopened = new HistoryStore(tempDir, "fineract");
+        reopened.put(message(FEB_5, "february"));
+        reopened.put(message(FEB_6, "new"));
+        reopened.flush();
+
+        assertTrue(Files.readString(january).endsWith("\n"));
+        assertEquals(2, new HistoryStore(tempDir, "fineract").since(FEB_5).size());
+    }
+
+    @Test
+    void removingLastMessageDeletesSegment() throws IOException {
+        HistoryStore store = new HistoryStore(tempDir, "fineract");
+        store.put(message(JAN_31, "january"));
+        store.flush();
+
+        store.remove(JAN_31);
+        store.flush();
+
+        assertFalse(Files.exists(tempDir.resolve("history").resolve("fineract").resolve("2026-01.json")));
+        assertTrue(new HistoryStore(tempDir, "fineract").months().isEmpty());
+    }
+
+    @Test
+    void legacyHistoryFileIsMigrated() throws IOException {
+        Path legacy = tempDir.resolve("fineract_history.json");
+        Files.writeString(legacy, "[{\"ts\": \"" + JAN_31 + "\", \"text\": \"january\"},"
+                + " {\"ts\": \"" + FEB_5 + "\", \"text\": \"february\"}]");
+
+        HistoryStore store = new HistoryStore(tempDir, "fineract");
+        store.migrateLegacy(legacy);
+
+        assertFalse(Files.exists(legacy));
+        assertEquals(2, new HistoryStore(tempDir, "fineract").since(JAN_31).size());
+    }
+
+    @Test
+    void readsOtherFormatAndRewritesChangedMonths() throws IOException {
+        HistoryStore json = new HistoryStore(tempDir, "fineract");
+        json.put(message(JAN_31, "january"));
+        json.put(message(FEB_5, "february"));
+        json.flush();
+
+        HistoryStore binary = new HistoryStore(tempDir, "fineract",
+                ArchiveConfig.HistoryFormat.BINARY);
+        assertEquals("january", binary.get(JAN_31).text());
+        binary.put(message(FEB_6, "new"));
+        binary.flush();
+
+        Path channelDir = tempDir.resolve("history").resolve("fineract");
+        assertTrue(Files.exists(channelDir.resolve("2026-01.json")));
+        assertFalse(Files.exists(channelDir.resolve("2026-02.json")));
+        assertTrue(Files.exists(channelDir.resolve("2026-02.bin")));
+
+        binary.convertAll();
+
+        assertFalse(Files.exists(channelDir.resolve("2026-01.json")));
+        HistoryStore reopened = new HistoryStore(tempDir, "fineract",
+                ArchiveConfig.HistoryFormat.BINARY);
+        assertEquals(List.of(YearMonth.of(2026, 1), YearMonth.of(2026, 2)), reopened.months());
+        assertEquals(3, reopened.since(JAN_31).size());
+    }
+
+    @Test
+    void scansBinaryMonthsOneDayAtATime() throws IOException {
+        HistoryStore store = new HistoryStore(tempDir, "fineract",
+                ArchiveConfig.HistoryFormat.BINARY);
+        store.put(message(JAN_31, "january"));
+        store.put(message(FEB_5, "february"));
+        store.put(message(FEB_6, "new"));
+        store.flush();
+
+        HistoryStore reopened = new HistoryStore(tempDir, "fineract",
+                ArchiveConfig.HistoryFormat.BINARY);
+        Map<LocalDate, List<SlackMessage>> days = new TreeMap<>();
+        List<Boolean> lookups = new ArrayList<>();
+        reopened.forEachDay(YearMonth.of(2026, 2), (date, messages, isStored) -> {
+            days.put(date, messages);
+            lookups.add(isStored.test(FEB_6));
+            lookups.add(isStored.test(JAN_31));
+            lookups.add(isStored.test("1770379200.000200"));
+        });
+
+        assertEquals(Map.of(LocalDate.parse("2026-02-05"), List.of(message(FEB_5, "february")),
+                LocalDate.parse("2026-02-06"), List.of(message(FEB_6, "new"))), days);
+        assertEquals(List.of(true, true, false, true, true, false), lookups);
+    }
+
+    private static SlackMessage message(String ts, String text) {
+        return new SlackMessage(ts, "U1", null, text, null, null, null, null);
+    }
+}
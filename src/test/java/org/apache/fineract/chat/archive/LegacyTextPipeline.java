@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// The regex-based message pipeline that SlackTextFormatter and MessageMarkup replaced, kept as
+// the oracle for MessageMarkupDifferentialTest.
+final class LegacyTextPipeline {
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("<([^>]+)>");
+    private static final Pattern EMOJI_PATTERN = Pattern.compile(":([a-zA-Z0-9_+\\-]+):");
+    private static final Pattern UNORDERED_LIST_PATTERN = Pattern.compile("^\\s*(?:[-*]|\\u2022)\\s+(.+)$");
+    private static final Pattern ORDERED_LIST_PATTERN = Pattern.compile("^\\s*\\d+\\.\\s+(.+)$");
+    private static final Pattern ANCHOR_PATTERN = Pattern.compile("(<a\\b[^>]*>.*?</a>)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern BOLD_PATTERN = Pattern.compile("(?<!\\w)\\*(\\S(?:.*?\\S)?)\\*(?!\\w)");
+    private static final Pattern ITALIC_PATTERN = Pattern.compile("(?<!\\w)_(\\S(?:.*?\\S)?)_(?!\\w)");
+    private static final Pattern STRIKE_PATTERN = Pattern.compile("(?<!\\w)~(\\S(?:.*?\\S)?)~(?!\\w)");
+
+    private LegacyTextPipeline() {}
+
+    static String render(String text, Function<String, String> userResolver) {
+        return formatMessage(formatSlackText(text, userResolver));
+    }
+
+    static String formatSlackText(String text, Function<String, String> userResolver) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        String withTokens = replaceTokens(text, userResolver);
+        return replaceEmoji(withTokens);
+    }
+
+    private static String replaceTokens(String text, Function<String, String> userResolver) {
+        Matcher matcher = TOKEN_PATTERN.matcher(text);
+        StringBuilder builder = new StringBuilder();
+        int cursor = 0;
+        while (matcher.find()) {
+            builder.append(escapeHtml(text.substring(cursor, matcher.start())));
+            String token = matcher.group(1);
+            builder.append(formatToken(token, userResolver));
+            cursor = matcher.end();
+        }
+        builder.append(escapeHtml(text.substring(cursor)));
+        return builder.toString();
+    }
+
+    private static String formatToken(String token, Function<String, String> userResolver) {
+        if (token.startsWith("@")) {
+            return formatUser(token.substring(1), userResolver);
+        }
+        if (token.startsWith("#")) {
+            return formatChannel(token.substring(1));
+        }
+        if (token.startsWith("!")) {
+            return formatSpecial(token.substring(1));
+        }
+        return formatLink(token);
+    }
+
+    private static String formatUser(String token, Function<String, String> userResolver) {
+        String[] parts = token.split("\\|", 2);
+        String userId = parts[0];
+        String label = parts.length > 1 ? parts[1] : null;
+        if (label == null || label.isBlank()) {
+            label = userResolver.apply(userId);
+        }
+        if (label == null || label.isBlank()) {
+            label = userId;
+        }
+        if (!label.startsWith("@")) {
+            label = "@" + label;
+        }
+        return escapeHtml(label);
+    }
+
+    private static String formatChannel(String token) {
+        String[] parts = token.split("\\|", 2);
+        String label = parts.length > 1 ? parts[1] : parts[0];
+        if (!label.startsWith("#")) {
+            label = "#" + label;
+        }
+        return escapeHtml(label);
+    }
+
+    private static String formatSpecial(String token) {
+        String[] parts = token.split("\\|", 2);
+        String label = parts.length > 1 ? parts[1] : parts[0];
+        if (!label.startsWith("@")) {
+            label = "@" + label;
+        }
+        return escapeHtml(label);
+    }
+
+    private static String formatLink(String token) {
+        String[] parts = token.split("\\|", 2);
+        String url = parts[0].trim();
+        String label = parts.length > 1 ? parts[1] : parts[0];
+        if (label == null || label.isBlank()) {
+            label = url;
+        }
+        if (!isSupportedHref(url)) {
+            return escapeHtml(label);
+        }
+        return "<a class=\"archive-link\" href=\"" + escapeHtmlAttribute(url) + "\">"
+                + escapeHtml(label) + "</a>";
+    }
+
+    private static boolean isSupportedHref(String href) {
+        if (href == null || href.isBlank()) {
+            return false;
+        }
+        String normalized = href.toLowerCase(Locale.ROOT);
+        return normalized.startsWith("https://")
+                || normalized.startsWith("http://")
+                || normalized.startsWith("mailto:");
+    }
+
+    private static String replaceEmoji(String text) {
+        Matcher matcher = EMOJI_PATTERN.matcher(text);
+        StringBuffer buffer = new StringBuffer();
+        while (matcher.find()) {
+            String code = matcher.group(1);
+            String emoji = SlackTextFormatter.resolveEmoji(code);
+            if (emoji == null) {
+                matcher.appendReplacement(buffer, Matcher.quoteReplacement(matcher.group(0)));
+            } else {
+                matcher.appendReplacement(buffer, Matcher.quoteReplacement(emoji));
+            }
+        }
+        matcher.appendTail(buffer);
+        return buffer.toString();
+    }
+
+    private static String escapeHtml(String value) {
+        return value
+                .replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&#39;");
+    }
+
+    private static String escapeHtmlAttribute(String value) {
+        return escapeHtml(value);
+    }
+
+    static String formatMessage(String value) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return "";
+        }
+
+        String[] lines = normalized.split("\n", -1);
+        StringBuilder builder = new StringBuilder();
+        ListType listType = ListType.NONE;
+
+        for (int index = 0; index < lines.length; index++) {
+            String line = lines[index];
+            Matcher unorderedMatcher = UNORDERED_LIST_PATTERN.matcher(line);
+            Matcher orderedMatcher = ORDERED_LIST_PATTERN.matcher(line);
+            if (unorderedMatcher.matches()) {
+                listType = switchToList(builder, listType, ListType.UNORDERED);
+                builder.append("<li>")
+                        .append(applyInlineMarkup(unorderedMatcher.group(1).trim()))
+                        .append("</li>\n");
+                continue;
+            }
+            if (orderedMatcher.matches()) {
+                listType = switchToList(builder, listType, ListType.ORDERED);
+                builder.append("<li>")
+                        .append(applyInlineMarkup(orderedMatcher.group(1).trim()))
+                        .append("</li>\n");
+                continue;
+            }
+
+            if (listType != ListType.NONE) {
+                closeList(builder, listType);
+                listType = ListType.NONE;
+            }
+
+            if (line.isBlank()) {
+                builder.append("<br>\n");
+                continue;
+            }
+
+            builder.append("<span class=\"archive-line\">")
+                    .append(applyInlineMarkup(line))
+                    .append("</span>\n");
+            if (index < lines.length - 1) {
+                builder.append("<br>");
+            }
+        }
+
+        if (listType != ListType.NONE) {
+            closeList(builder, listType);
+        }
+        return builder.toString();
+    }
+
+    private static String applyInlineMarkup(String line) {
+        Matcher matcher = ANCHOR_PATTERN.matcher(line);
+        StringBuilder builder = new StringBuilder();
+        int cursor = 0;
+        while (matcher.find()) {
+            builder.append(applyInlineMarkupToText(line.substring(cursor, matcher.start())));
+            builder.append(matcher.group(1));
+            cursor = matcher.end();
+        }
+        builder.append(applyInlineMarkupToText(line.substring(cursor)));
+        return builder.toString();
+    }
+
+    private static String applyInlineMarkupToText(String text) {
+        String formatted = replaceInlinePattern(text, BOLD_PATTERN, "strong");
+        formatted = replaceInlinePattern(formatted, ITALIC_PATTERN, "em");
+        formatted = replaceInlinePattern(formatted, STRIKE_PATTERN, "del");
+        return formatted;
+    }
+
+    private static String replaceInlinePattern(String input, Pattern pattern, String tagName) {
+        Matcher matcher = pattern.matcher(input);
+        StringBuffer buffer = new StringBuffer();
+        while (matcher.find()) {
+            String inner = matcher.group(1);
+            matcher.appendReplacement(buffer, "<" + tagName + ">"
+                    + Matcher.quoteReplacement(inner) + "</" + tagName + ">");
+        }
+        matcher.appendTail(buffer);
+        return buffer.toString();
+    }
+
+    private static ListType switchToList(StringBuilder builder, ListType current,
+            ListType target) {
+        if (current == target) {
+            return current;
+        }
+        if (current != ListType.NONE) {
+            closeList(builder, current);
+        }
+        if (target == ListType.UNORDERED) {
+            builder.append("<ul class=\"archive-list\">\n");
+        } else if (target == ListType.ORDERED) {
+            builder.append("<ol class=\"archive-list archive-list-numbered\">\n");
+        }
+        return target;
+    }
+
+    private static void closeList(StringBuilder builder, ListType type) {
+        if (type == ListType.UNORDERED) {
+            builder.append("</ul>\n");
+        } else if (type == ListType.ORDERED) {
+            builder.append("</ol>\n");
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\r\n", "\n").replace("\r", "\n");
+    }
+
+    private enum ListType {
+        NONE,
+        UNORDERED,
+        ORDERED
+    }
+}
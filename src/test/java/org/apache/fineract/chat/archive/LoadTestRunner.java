@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Archives a generated workspace served by FakeSlackServer and reports throughput. Sized by
+// system properties, which `./gradlew loadTest -Pload.channels=100
+// -Pload.messagesPerChannel=1000000` passes through.
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {}
+
+    public static void main(String[] args) throws IOException {
+        int channels = Integer.getInteger("load.channels", 10);
+        int messagesPerChannel = Integer.getInteger("load.messagesPerChannel", 10_000);
+        int messagesPerDay = Integer.getInteger("load.messagesPerDay", 200);
+        int runs = Integer.getInteger("load.runs", 2);
+        FakeSlackServer.Faults faults = new FakeSlackServer.Faults(
+                Integer.getInteger("load.throttleEvery", 0),
+                Duration.ofSeconds(Integer.getInteger("load.retryAfterSeconds", 1)),
+                Duration.ofMillis(Integer.getInteger("load.latencyMillis", 0)));
+        String dir = System.getProperty("load.dir");
+        Path root = dir == null ? Files.createTempDirectory("chat-archive-load") : Path.of(dir);
+
+        FakeSlackServer.Workspace workspace = FakeSlackServer.Workspace.of(channels,
+                messagesPerChannel, messagesPerDay);
+        try (FakeSlackServer server = FakeSlackServer.start(workspace, faults)) {
+            ArchiveConfig config = ArchiveConfig.fromEnv(environment(server, root));
+            System.out.printf(Locale.ROOT, "Archiving %d channel(s) x %d message(s) over %d day(s)"
+                    + " into %s%n", channels, messagesPerChannel, workspace.days(), root);
+            for (int run = 1; run <= runs; run++) {
+                long requestsBefore = server.requests();
+                long throttledBefore = server.throttled();
+                long start = System.nanoTime();
+                int status = ChatArchiveApp.run(config);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf(Locale.ROOT, "Run %d: status %d in %.1f s, %.0f message(s)/s,"
+                        + " %d request(s), %d throttled%n", run, status, seconds,
+                        (double) channels * messagesPerChannel / seconds,
+                        server.requests() - requestsBefore, server.throttled() - throttledBefore);
+            }
+        }
+    }
+
+    private static Map<String, String> environment(FakeSlackServer server, Path root) {
+        List<String> names = new ArrayList<>();
+        for (int index = 0; index < server.workspace().channels(); index++) {
+            names.add(FakeSlackServer.channelName(index));
+        }
+        Map<String, String> env = new HashMap<>();
+        env.put(ArchiveConfig.SLACK_TOKEN_ENV, FakeSlackServer.TOKEN);
+        env.put(ArchiveConfig.CHANNELS_ALLOWLIST_ENV, String.join(",", names));
+        env.put(ArchiveConfig.OUTPUT_DIR_ENV, root.resolve("docs").toString());
+        env.put(ArchiveConfig.STATE_DIR_ENV, root.resolve("state").toString());
+        env.put(ArchiveConfig.LOOKBACK_DAYS_ENV, String.valueOf(server.workspace().days() + 1));
+        env.put(ArchiveConfig.SLACK_API_BASE_URL_ENV, server.baseUrl());
+        env.put(ArchiveConfig.SLACK_PACING_ENV, "false");
+        env.put(ArchiveConfig.PERMALINK_MODE_ENV, "synthesize");
+        env.put(ArchiveConfig.FETCH_CONCURRENCY_ENV, System.getProperty("load.fetchConcurrency",
+                String.valueOf(ArchiveConfig.DEFAULT_FETCH_CONCURRENCY)));
+        env.put(ArchiveConfig.HISTORY_FORMAT_ENV, System.getProperty("load.historyFormat", "json"));
+        return env;
+    }
+}
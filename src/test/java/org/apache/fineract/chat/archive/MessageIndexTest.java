@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MessageIndexTest {
+
+    private static final YearMonth FEBRUARY = YearMonth.of(2026, 2);
+
+    @Test
+    void everyTermMustMatchAndDenserMessagesRankFirst() {
+        MessageIndex index = new MessageIndex();
+        index.replace("fineract", FEBRUARY, List.of(
+                message(5, 1, "U1", "loan approved after a long review of the whole application"),
+                message(6, 1, "U2", "loan loan approved"),
+                message(7, 1, "U1", "loan rejected")));
+
+        MessageIndex.Results results = index.search(query("Loan approved"), 10);
+
+        assertEquals(2, results.total());
+        assertEquals(List.of(LocalDate.of(2026, 2, 6), LocalDate.of(2026, 2, 5)),
+                results.hits().stream().map(MessageIndex.Hit::date).toList());
+        assertEquals(0, index.search(query("loan savings"), 10).total());
+    }
+
+    @Test
+    void quotedWordsMustBeAdjacent() {
+        MessageIndex index = new MessageIndex();
+        index.replace("fineract", FEBRUARY, List.of(
+                message(5, 1, "U1", "the interest rate changed"),
+                message(6, 1, "U1", "rate of interest")));
+
+        List<MessageIndex.Hit> hits = index.search(query("\"interest rate\""), 10).hits();
+
+        assertEquals(1, hits.size());
+        assertEquals("the interest rate changed", hits.get(0).snippet());
+        assertEquals(2, index.search(query("interest rate"), 10).total());
+    }
+
+    @Test
+    void filtersByChannelUserAndPageDate() {
+        MessageIndex index = new MessageIndex();
+        index.userNames(Map.of("U1", "Alice", "U2", "Bob"));
+        index.replace("fineract", FEBRUARY, List.of(
+                message(5, 1, "U1", "deploy done"),
+                message(9, 1, "U2", "deploy failed"),
+                new SlackMessage(ts(12, 2), "U2", null, "deploy retried", null, ts(5, 1), null,
+                        null)));
+        index.replace("mifos", FEBRUARY, List.of(message(6, 1, "U1", "deploy started")));
+
+        assertEquals(3, index.search(MessageIndex.Query.parse("deploy", "fineract", null, null,
+                null), 10).total());
+        MessageIndex.Results byName = index.search(MessageIndex.Query.parse("deploy", null,
+                "bob", null, null), 10);
+        assertEquals(2, byName.total());
+        assertEquals("Bob", byName.hits().get(0).user());
+        assertEquals(2, index.search(MessageIndex.Query.parse("deploy", null, "U1", null, null),
+                10).total());
+        // the reply is on the page of its parent, Feb 5
+        assertEquals(List.of("deploy done", "deploy retried"), index.search(
+                MessageIndex.Query.parse("deploy", "fineract", null, null,
+                        LocalDate.of(2026, 2, 5)), 10).hits().stream()
+                .map(MessageIndex.Hit::snippet).sorted().toList());
+    }
+
+    @Test
+    void replacingAMonthDropsItsOldMessages() {
+        MessageIndex index = new MessageIndex();
+        index.replace("fineract", FEBRUARY, List.of(message(5, 1, "U1", "loan approved")));
+        index.replace("fineract", YearMonth.of(2026, 3), List.of(message(35, 1, "U1", "loan paid")));
+        for (int round = 0; round < 5; round++) {
+            List<SlackMessage> messages = new ArrayList<>();
+            for (int second = 0; second < 600; second++) {
+                messages.add(message(6, second, "U1", "savings round r" + round));
+            }
+            index.replace("fineract", FEBRUARY, messages);
+        }
+
+        assertEquals(601, index.size());
+        assertEquals(0, index.search(query("approved"), 10).total());
+        assertEquals(0, index.search(query("round r3"), 10).total());
+        assertEquals(600, index.search(query("savings round r4"), 10).total());
+        assertEquals(601, index.search(query("loan"), 10).total() + index.search(
+                query("savings"), 10).total());
+
+        index.replace("fineract", FEBRUARY, List.of());
+        assertEquals(1, index.size());
+        assertEquals(LocalDate.of(2026, 3, 7), index.search(query("loan"), 10).hits().get(0)
+                .date());
+    }
+
+    @Test
+    void limitKeepsTheBestHitsAndCountsAll() {
+        MessageIndex index = new MessageIndex();
+        List<SlackMessage> messages = new ArrayList<>();
+        for (int day = 1; day <= 20; day++) {
+            messages.add(message(day, 1, "U1", day == 13 ? "fee fee fee" : "fee waived today"));
+        }
+        index.replace("fineract", FEBRUARY, messages);
+
+        MessageIndex.Results results = index.search(query("fee"), 3);
+
+        assertEquals(20, results.total());
+        assertEquals(List.of(13, 20, 19), results.hits().stream()
+                .map(hit -> hit.date().getDayOfMonth()).toList());
+    }
+
+    @Test
+    void plainTextShowsWhatAReaderSees() {
+        assertEquals("@Alice see docs (https://example.org) in #dev & @here <ok>",
+                MessageIndex.plainText("<@U1> see <https://example.org|docs> in <#C1|dev> &amp; "
+                        + "<!here> &lt;ok&gt;", Map.of("U1", "Alice")::get));
+        assertTrue(MessageIndex.plainText("<@U9>", id -> null).contains("U9"));
+    }
+
+    private static MessageIndex.Query query(String text) {
+        return MessageIndex.Query.parse(text, null, null, null, null);
+    }
+
+    private static SlackMessage message(int day, int second, String user, String text) {
+        return new SlackMessage(ts(day, second), user, null, text, null, null, null, null);
+    }
+
+    private static String ts(int day, int second) {
+        long epochSecond = LocalDate.of(2026, 2, 1).plusDays(day - 1)
+                .atStartOfDay(ZoneOffset.UTC).toEpochSecond() + 3600 + second;
+        return epochSecond + ".000100";
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+// SlackTextFormatter + MessageMarkup must render exactly what the regex pipeline did.
+class MessageMarkupDifferentialTest {
+
+    private static final Function<String, String> USERS = Map.of("U1", "alex", "U2", "sam_b",
+            "U3", "")::get;
+
+    private static final List<String> CORPUS = List.of(
+            "",
+            "   ",
+            "plain text",
+            "See <https://example.com|this> and ping <@U1> in <#C1|general>.",
+            "Hi <!here> :wave: :unknown: ::wave:: :wave:wave:",
+            "Ignore <javascript:alert(1)|click> and visit <https://example.com>.",
+            "_Okay_\n*Passed ?*\n~Maybe~\n- Check\n- LFG",
+            "1. one\n2. two\n\n* star item\n• bullet\n-notalist\n3.nope",
+            "*a*b* and *a* b* and **x** and ***",
+            "snake_case_name and _under_score_ and __init__",
+            "~a~_b_ and _x_~y~ and ~~",
+            "*bold _italic ~strike~ inside_ all*",
+            "<@U2> said _hi_ to <@U3> and <@U4|@named>",
+            "<https://a.example/:wave:/path|label *with* stars>",
+            "<http://x|line one\nline two> after",
+            "tags <a href=x>raw</a> <A HREF=y>upper</A> <ab>no</ab>",
+            "quotes \"double\" 'single' & ampersand < > done",
+            "crlf\r\nline\rbreaks\n\r\n",
+            "- item\r\n- item\r\ntext\r\n1. num",
+            "line with \u2028 separator *a b* and _c\u0085_",
+            "<mailto:someone@example.org|mail> <ftp://nope>",
+            "<>, <<@U1>>, <#>, <!>, <@>, <|>, <http://a|>, < https://a >",
+            ":+1: :-1: :star-struck: :thumbsup::thumbsup:",
+            "emoji in code `:smile:` and *:fire:*");
+
+    @Test
+    void corpusMatchesLegacyPipeline() {
+        for (String text : CORPUS) {
+            assertSameOutput(text);
+        }
+    }
+
+    @Test
+    void randomTextMatchesLegacyPipeline() {
+        String[] alphabet = {"a", "b", "_", "*", "~", " ", "\n", "\r", "\t", ":", "wave", "smile",
+                "<", ">", "|", "@", "U1", "U2", "#", "!", "-", "1", ".", "•", "&", "\"", "'",
+                "https://x.io", "</a>", "<a ", " ", "\u0085", "é", "👍"};
+        Random random = new Random(20260216L);
+        for (int round = 0; round < 20_000; round++) {
+            StringBuilder text = new StringBuilder();
+            int tokens = random.nextInt(24);
+            for (int index = 0; index < tokens; index++) {
+                text.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            assertSameOutput(text.toString());
+        }
+    }
+
+    private static void assertSameOutput(String text) {
+        String formatted = SlackTextFormatter.format(text, USERS);
+        assertEquals(LegacyTextPipeline.formatSlackText(text, USERS), formatted,
+                "formatting " + text);
+
+        // Rows can carry any text, so also compare the markup stage on the raw input.
+        for (String message : List.of(formatted, text)) {
+            StringBuilder html = new StringBuilder();
+            MessageMarkup.appendHtml(message, html);
+            assertEquals(LegacyTextPipeline.formatMessage(message), html.toString(),
+                    "markup of " + message);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OutputManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OutputTransaction transaction;
+
+    @Test
+    void unchangedContentIsNotRewritten() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        OutputManifest manifest = manifest(ArchiveConfig.ManifestMode.TRUST);
+
+        assertTrue(manifest.writeIfChanged(page, "<p>one</p>"));
+        assertFalse(manifest.writeIfChanged(page, "<p>one</p>"));
+        assertTrue(manifest.writeIfChanged(page, "<p>two</p>"));
+        transaction.commit();
+
+        assertEquals("<p>two</p>", Files.readString(page, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void savedManifestSkipsReadingMatchingFiles() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("daily").resolve("index.html");
+        OutputManifest first = manifest(ArchiveConfig.ManifestMode.TRUST);
+        first.writeIfChanged(page, "<p>one</p>");
+        transaction.commit();
+        first.save();
+
+        OutputManifest second = manifest(ArchiveConfig.ManifestMode.TRUST);
+        second.load();
+
+        assertFalse(second.writeIfChanged(page, "<p>one</p>"));
+        assertTrue(second.summary().startsWith("1 file(s) checked against the manifest, 0 read"));
+    }
+
+    @Test
+    void filesWithoutEntryOrWithOtherSizeAreReadBack() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        Files.createDirectories(page.getParent());
+        Files.writeString(page, "<p>one</p>", StandardCharsets.UTF_8);
+        OutputManifest manifest = manifest(ArchiveConfig.ManifestMode.TRUST);
+
+        assertFalse(manifest.writeIfChanged(page, "<p>one</p>"));
+        Files.writeString(page, "<p>edited by hand</p>", StandardCharsets.UTF_8);
+        assertTrue(manifest.writeIfChanged(page, "<p>one</p>"));
+        transaction.commit();
+
+        assertEquals("<p>one</p>", Files.readString(page, StandardCharsets.UTF_8));
+        assertTrue(manifest.summary().contains("2 read back"));
+    }
+
+    @Test
+    void verifyModeReadsFilesAndCountsStaleEntries() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        OutputManifest first = manifest(ArchiveConfig.ManifestMode.TRUST);
+        first.writeIfChanged(page, "<p>one</p>");
+        transaction.commit();
+        first.save();
+        Files.writeString(page, "<p>two</p>", StandardCharsets.UTF_8);
+
+        OutputManifest verify = manifest(ArchiveConfig.ManifestMode.VERIFY);
+        verify.load();
+
+        assertTrue(verify.writeIfChanged(page, "<p>one</p>"));
+        assertTrue(verify.summary().endsWith("1 read back, 1 stale manifest hash(es)"));
+    }
+
+    @Test
+    void deleteDropsEntry() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("2026").resolve("index.html");
+        OutputManifest manifest = manifest(ArchiveConfig.ManifestMode.TRUST);
+        manifest.writeIfChanged(page, "<p>one</p>");
+        transaction.commit();
+
+        assertTrue(manifest.deleteIfExists(page));
+        assertTrue(Files.exists(page));
+        transaction.commit();
+
+        assertFalse(Files.exists(page));
+        assertTrue(manifest.writeIfChanged(page, "<p>one</p>"));
+    }
+
+    @Test
+    void changeTimeIsKeptUntilContentChanges() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        Files.createDirectories(page.getParent());
+        Files.writeString(page, "<p>one</p>", StandardCharsets.UTF_8);
+        OutputManifest first = manifest(ArchiveConfig.ManifestMode.TRUST);
+
+        assertFalse(first.writeIfChanged(page, "<p>one</p>"));
+        assertNull(first.changedAt(page));
+        assertTrue(first.writeIfChanged(page, "<p>two</p>"));
+        String changedAt = first.changedAt(page);
+        assertNotNull(changedAt);
+        transaction.commit();
+        first.save();
+
+        OutputManifest second = manifest(ArchiveConfig.ManifestMode.VERIFY);
+        second.load();
+        assertFalse(second.writeIfChanged(page, "<p>two</p>"));
+        assertEquals(changedAt, second.changedAt(page));
+    }
+
+    @Test
+    void streamedContentIsStagedOnlyWhenChanged() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        OutputManifest manifest = manifest(ArchiveConfig.ManifestMode.TRUST);
+
+        assertTrue(manifest.writeIfChanged(page, out -> out.append("<p>").append("one</p>")));
+        assertFalse(manifest.writeIfChanged(page, out -> out.append("<p>one</p>")));
+        assertEquals(1, transaction.pending());
+        transaction.commit();
+
+        assertEquals("<p>one</p>", Files.readString(page, StandardCharsets.UTF_8));
+        try (Stream<Path> staged = Files.list(tempDir.resolve("state").resolve("staging"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void unchangedContentIsOnlyHashed() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        Files.createDirectories(page.getParent());
+        Files.writeString(page, "<p>one</p>", StandardCharsets.UTF_8);
+        OutputManifest manifest = manifest(ArchiveConfig.ManifestMode.TRUST);
+        int[] renders = {0};
+
+        assertFalse(manifest.writeIfChanged(page, out -> {
+            renders[0]++;
+            out.append("<p>one</p>");
+        }));
+        assertEquals(1, renders[0]);
+        assertFalse(Files.exists(tempDir.resolve("state").resolve("staging")));
+
+        // a changed page is hashed first and then rendered into its staged file
+        assertTrue(manifest.writeIfChanged(page, out -> {
+            renders[0]++;
+            out.append("<p>two</p>");
+        }));
+        assertEquals(3, renders[0]);
+        transaction.commit();
+        assertEquals("<p>two</p>", Files.readString(page, StandardCharsets.UTF_8));
+    }
+
+    private OutputManifest manifest(ArchiveConfig.ManifestMode mode) {
+        transaction = new OutputTransaction(tempDir.resolve("state"));
+        return new OutputManifest(tempDir.resolve("state"), tempDir.resolve("docs"), mode,
+                transaction, new Precompressor(ArchiveConfig.Precompression.NONE, 1, transaction));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OutputTransactionTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stagedFilesAppearOnlyOnCommit() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("2026").resolve("index.html");
+        OutputTransaction transaction = new OutputTransaction(tempDir.resolve("state"));
+
+        transaction.write(page, bytes("<p>one</p>"));
+
+        assertFalse(Files.exists(page));
+        assertEquals("<p>one</p>", Files.readString(transaction.current(page)));
+        assertEquals(1, transaction.commit());
+        assertEquals("<p>one</p>", Files.readString(page, StandardCharsets.UTF_8));
+        assertEquals(page, transaction.current(page));
+    }
+
+    @Test
+    void laterChangesToTheSameFileWin() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        OutputTransaction transaction = new OutputTransaction(tempDir.resolve("state"));
+
+        transaction.write(page, bytes("<p>one</p>"));
+        transaction.write(page, bytes("<p>two</p>"));
+        transaction.commit();
+        transaction.delete(page);
+
+        assertNull(transaction.current(page));
+        assertTrue(Files.exists(page));
+        transaction.commit();
+        assertFalse(Files.exists(page));
+        try (var staged = Files.list(tempDir.resolve("state").resolve("staging"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void uncommittedStagingIsDiscarded() throws IOException {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        new OutputTransaction(tempDir.resolve("state")).write(page, bytes("<p>one</p>"));
+
+        new OutputTransaction(tempDir.resolve("state")).recover();
+
+        assertFalse(Files.exists(page));
+        try (var staged = Files.list(tempDir.resolve("state").resolve("staging"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void recoverFinishesJournaledCommit() throws IOException {
+        Path stagingDir = tempDir.resolve("state").resolve("staging");
+        Path moved = tempDir.resolve("docs").resolve("a.html");
+        Path pending = tempDir.resolve("docs").resolve("b.html");
+        Path deleted = tempDir.resolve("docs").resolve("c.html");
+        Files.createDirectories(stagingDir);
+        Files.createDirectories(moved.getParent());
+        Files.writeString(moved, "new a");
+        Files.writeString(stagingDir.resolve("2.tmp"), "new b");
+        Files.writeString(deleted, "old c");
+        List<OutputTransaction.Change> journal = List.of(
+                new OutputTransaction.Change(moved.toString(), staged(stagingDir, 1)),
+                new OutputTransaction.Change(pending.toString(), staged(stagingDir, 2)),
+                new OutputTransaction.Change(deleted.toString(), null));
+        new ObjectMapper().writeValue(stagingDir.resolve("journal.json").toFile(), journal);
+
+        new OutputTransaction(tempDir.resolve("state")).recover();
+
+        assertEquals("new a", Files.readString(moved));
+        assertEquals("new b", Files.readString(pending));
+        assertFalse(Files.exists(deleted));
+        assertFalse(Files.exists(stagingDir.resolve("journal.json")));
+    }
+
+    private static String staged(Path stagingDir, int sequence) {
+        return stagingDir.resolve(sequence + ".tmp").toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PageTemplateTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fillsTypedSlotsByFirstAppearance() throws IOException {
+        PageTemplate template = PageTemplate.compile(
+                "<h1>{{text:name}}</h1>{{html:body}}<p>{{int:year}}-{{2d:month}} {{text:name}}</p>");
+        StringBuilder out = new StringBuilder();
+
+        template.render(out, "a<b>'c'\r\nd\re", "<em>x</em>", 2026, 2);
+
+        assertEquals("<h1>a&lt;b&gt;&#39;c&#39;\nd\ne</h1><em>x</em><p>2026-02 a&lt;b&gt;&#39;c&#39;\nd\ne</p>",
+                out.toString());
+    }
+
+    @Test
+    void rejectsMalformedTemplatesAndMissingValues() {
+        assertThrows(IllegalArgumentException.class, () -> PageTemplate.compile("{{text:name"));
+        assertThrows(IllegalArgumentException.class, () -> PageTemplate.compile("{{date:name}}"));
+        assertThrows(IllegalArgumentException.class,
+                () -> PageTemplate.compile("{{text:a}}{{text:b}}").render(new StringBuilder(), "a"));
+    }
+
+    @Test
+    void pagesWrittenToSinkMatchRenderedStrings() throws IOException {
+        List<HtmlRenderer.Row> rows = List.of(
+                new HtmlRenderer.Row(false, "Thu 09:15", "Thu, 12 Feb 2026 09:15:00 GMT", "alex",
+                        "Hello *there* 🚀", "https://slack.example/p1", List.of("👍 1")),
+                new HtmlRenderer.Row(true, "Thu 09:16", "Thu, 12 Feb 2026 09:16:00 GMT", "sam",
+                        "é & <ok>", null, List.of()));
+        LocalDate date = LocalDate.parse("2026-02-12");
+        Path file = tempDir.resolve("page.html");
+        try (HashingUtf8Sink sink = new HashingUtf8Sink(file)) {
+            HtmlRenderer.writeDailyPage(sink, "fineract", date, rows);
+        }
+
+        assertArrayEquals(HtmlRenderer.renderDailyPage("fineract", date, rows)
+                .getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+    }
+}
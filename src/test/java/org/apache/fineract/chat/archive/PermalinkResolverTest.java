@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+
+class PermalinkResolverTest {
+
+    @Test
+    void synthesizesTopLevelPermalink() {
+        String permalink = PermalinkResolver.synthesize("https://example.slack.com/", "C123",
+                "1770292800.000100", null);
+
+        assertEquals("https://example.slack.com/archives/C123/p1770292800000100", permalink);
+    }
+
+    @Test
+    void synthesizesThreadReplyPermalink() {
+        String permalink = PermalinkResolver.synthesize("https://example.slack.com", "C123",
+                "1770292900.000200", "1770292800.000100");
+
+        assertEquals("https://example.slack.com/archives/C123/p1770292900000200"
+                + "?thread_ts=1770292800.000100&cid=C123", permalink);
+    }
+
+    @Test
+    void synthesizeModePrefersCachedApiPermalinks() {
+        HashMap<String, String> cache = new HashMap<>();
+        cache.put(PermalinkStore.key("C123", "1770292800.000100"), "https://cached.example/p1");
+        PermalinkResolver resolver = new PermalinkResolver(ArchiveConfig.PermalinkMode.SYNTHESIZE,
+                "https://example.slack.com/", 0, null, "token", cache);
+
+        assertEquals("https://cached.example/p1", resolver.resolve("C123",
+                new SlackMessage("1770292800.000100", "U1", null, "hi", null, null, null, null)));
+        assertEquals("https://example.slack.com/archives/C123/p1770292900000200",
+                resolver.resolve("C123",
+                        new SlackMessage("1770292900.000200", "U1", null, "hi", null, null, null, null)));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PermalinkStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void loadReturnsEmptyWhenNothingSaved() throws IOException {
+        PermalinkStore store = new PermalinkStore(tempDir.resolve("state"));
+
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    void savedPermalinksRoundTrip() throws IOException {
+        PermalinkStore store = new PermalinkStore(tempDir.resolve("state"));
+        String key = PermalinkStore.key("C1", "1770292800.000100");
+        store.save(new PermalinkStore.PermalinkState(
+                Map.of(key, "https://example.slack.com/archives/C1/p1770292800000100")));
+
+        PermalinkStore.PermalinkState loaded = new PermalinkStore(tempDir.resolve("state")).load()
+                .orElseThrow();
+
+        assertEquals("https://example.slack.com/archives/C1/p1770292800000100",
+                loaded.permalinks().get(key));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PrecompressorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void changedPagesGetGzipSiblings() throws Exception {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        Path gzip = tempDir.resolve("docs").resolve("index.html.gz");
+        OutputTransaction transaction = new OutputTransaction(tempDir.resolve("state"));
+        try (Precompressor precompressor = new Precompressor(
+                ArchiveConfig.Precompression.GZIP, 2, transaction)) {
+            OutputManifest manifest = manifest(transaction, precompressor);
+
+            assertTrue(manifest.writeIfChanged(page, "<p>hello</p>".repeat(100)));
+            precompressor.await();
+            transaction.commit();
+
+            assertEquals("<p>hello</p>".repeat(100), gunzip(Files.readAllBytes(gzip)));
+            assertTrue(Files.size(gzip) < Files.size(page));
+
+            assertTrue(manifest.deleteIfExists(page));
+            transaction.commit();
+        }
+
+        assertFalse(Files.exists(page));
+        assertFalse(Files.exists(gzip));
+    }
+
+    @Test
+    void changedPagesDropStaleSiblingsWhenOff() throws Exception {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        Path gzip = tempDir.resolve("docs").resolve("index.html.gz");
+        Files.createDirectories(page.getParent());
+        Files.writeString(page, "<p>hello</p>", StandardCharsets.UTF_8);
+        Files.write(gzip, new byte[] {1});
+        OutputTransaction transaction = new OutputTransaction(tempDir.resolve("state"));
+        try (Precompressor precompressor = new Precompressor(
+                ArchiveConfig.Precompression.NONE, 1, transaction)) {
+            OutputManifest manifest = manifest(transaction, precompressor);
+
+            assertFalse(manifest.writeIfChanged(page, "<p>hello</p>"));
+            transaction.commit();
+            assertTrue(Files.exists(gzip));
+
+            assertTrue(manifest.writeIfChanged(page, "<p>bye</p>"));
+            precompressor.await();
+            transaction.commit();
+        }
+
+        assertFalse(Files.exists(gzip));
+    }
+
+    @Test
+    void unchangedPagesWithoutSiblingAreCompressed() throws Exception {
+        Path page = tempDir.resolve("docs").resolve("index.html");
+        Files.createDirectories(page.getParent());
+        Files.writeString(page, "<p>hello</p>", StandardCharsets.UTF_8);
+        OutputTransaction transaction = new OutputTransaction(tempDir.resolve("state"));
+        try (Precompressor precompressor = new Precompressor(
+                ArchiveConfig.Precompression.GZIP, 1, transaction)) {
+
+            assertFalse(manifest(transaction, precompressor).writeIfChanged(page, "<p>hello</p>"));
+            precompressor.await();
+            transaction.commit();
+        }
+
+        assertTrue(Files.exists(tempDir.resolve("docs").resolve("index.html.gz")));
+    }
+
+    @Test
+    void gzipIsDeterministic() throws IOException {
+        Path page = tempDir.resolve("index.html");
+        Files.writeString(page, "<p>same</p>", StandardCharsets.UTF_8);
+        Precompressor.gzip(page, tempDir.resolve("first.gz"));
+        Precompressor.gzip(page, tempDir.resolve("second.gz"));
+
+        assertArrayEquals(Files.readAllBytes(tempDir.resolve("first.gz")),
+                Files.readAllBytes(tempDir.resolve("second.gz")));
+    }
+
+    private OutputManifest manifest(OutputTransaction transaction, Precompressor precompressor) {
+        return new OutputManifest(tempDir.resolve("state"), tempDir.resolve("docs"),
+                ArchiveConfig.ManifestMode.TRUST, transaction, precompressor);
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
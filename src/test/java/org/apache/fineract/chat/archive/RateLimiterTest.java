@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void bucketAllowsBurstThenPaces() {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(2, 60, 0);
+
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(SECOND, bucket.reserve(0));
+        assertEquals(2 * SECOND, bucket.reserve(0));
+    }
+
+    @Test
+    void bucketRefillsOverTime() {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(1, 60, 0);
+
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(SECOND));
+    }
+
+    @Test
+    void pausedBucketHoldsCallersBack() {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(10, 60, 0);
+
+        bucket.pauseUntil(5 * SECOND);
+
+        assertTrue(bucket.reserve(0) >= 5 * SECOND);
+    }
+
+    @Test
+    void backoffHonoursRetryAfterAndCap() {
+        assertEquals(Duration.ofSeconds(3),
+                RateLimiter.backoffDelay(1, Optional.of(Duration.ofSeconds(3)), 0));
+        assertEquals(Duration.ofSeconds(2), RateLimiter.backoffDelay(1, Optional.empty(), 1));
+        assertEquals(Duration.ofSeconds(60), RateLimiter.backoffDelay(10, Optional.empty(), 1));
+        assertEquals(Duration.ofMillis(500), RateLimiter.backoffDelay(1, Optional.empty(), 0));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RenderStageTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2026, 2, 1);
+
+    @Test
+    void rendersPagesLikeTheSerialRenderer(@TempDir Path tempDir) throws Exception {
+        List<RenderStage.DayPage> pages = new ArrayList<>();
+        for (int day = 0; day < 28; day++) {
+            pages.add(new RenderStage.DayPage("fineract", FIRST_DAY.plusDays(day),
+                    List.of(row("message " + day)), List.of("message " + day)));
+        }
+
+        OutputTransaction transaction = new OutputTransaction(tempDir.resolve("state"));
+        DateIndex dateIndex = new DateIndex(tempDir.resolve("state"));
+        try (RenderStage stage = new RenderStage(4, manifest(tempDir, transaction), dateIndex,
+                new SearchIndex(tempDir.resolve("docs")))) {
+            assertTrue(stage.render(tempDir, pages));
+            assertEquals(28, dateIndex.dates("fineract").size());
+            assertEquals(28, transaction.commit());
+            assertFalse(stage.render(tempDir, pages));
+        }
+
+        for (RenderStage.DayPage page : pages) {
+            Path path = RenderStage.pagePath(tempDir, "fineract", page.date());
+            assertEquals(HtmlRenderer.renderDailyPage("fineract", page.date(), page.rows()),
+                    Files.readString(path, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void deletesPagesOfEmptyDays(@TempDir Path tempDir) throws Exception {
+        Path path = RenderStage.pagePath(tempDir, "fineract", FIRST_DAY);
+
+        OutputTransaction transaction = new OutputTransaction(tempDir.resolve("state"));
+        DateIndex dateIndex = new DateIndex(tempDir.resolve("state"));
+        try (RenderStage stage = new RenderStage(2, manifest(tempDir, transaction), dateIndex,
+                new SearchIndex(tempDir.resolve("docs")))) {
+            stage.render(tempDir, List.of(new RenderStage.DayPage("fineract", FIRST_DAY,
+                    List.of(row("hello")), List.of("hello"))));
+            transaction.commit();
+            assertTrue(Files.exists(path));
+
+            assertTrue(stage.render(tempDir, List.of(RenderStage.DayPage.empty("fineract",
+                    FIRST_DAY))));
+            transaction.commit();
+        }
+
+        assertFalse(Files.exists(path));
+        assertFalse(Files.exists(path.getParent()));
+        assertTrue(dateIndex.dates("fineract").isEmpty());
+    }
+
+    private static OutputManifest manifest(Path tempDir, OutputTransaction transaction) {
+        return new OutputManifest(tempDir.resolve("state"), tempDir,
+                ArchiveConfig.ManifestMode.TRUST, transaction,
+                new Precompressor(ArchiveConfig.Precompression.NONE, 1, transaction));
+    }
+
+    private static HtmlRenderer.Row row(String message) {
+        return new HtmlRenderer.Row(false, "Sun 10:00", "Sun, 1 Feb 2026 10:00:00 GMT", "alice",
+                message, null, List.of());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SearchIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OutputTransaction transaction;
+
+    @Test
+    void termsAreLowerCasedWordsOfUsefulLength() {
+        Set<String> terms = new TreeSet<>();
+        SearchIndex.addTerms("Loan-Client a 12 Überweisung 🚀 see https://github.com/x", terms);
+
+        assertEquals(Set.of("loan", "client", "12", "überweisung", "see", "https", "github",
+                "com"), terms);
+    }
+
+    @Test
+    void onlyRenderedDaysOfAShardAreReplaced() throws IOException {
+        Path docs = tempDir.resolve("docs");
+        Path shard = docs.resolve("search").resolve("fineract").resolve("2026-02.json");
+        DateIndex dateIndex = new DateIndex(tempDir.resolve("state"));
+        SearchIndex first = new SearchIndex(docs);
+        first.add("fineract", LocalDate.of(2026, 2, 5), List.of("loan approved"));
+        first.add("fineract", LocalDate.of(2026, 2, 6), List.of("loan rejected"));
+        dateIndex.add("fineract", LocalDate.of(2026, 2, 5));
+        dateIndex.add("fineract", LocalDate.of(2026, 2, 6));
+        dateIndex.add("fineract", LocalDate.of(2026, 1, 30));
+
+        assertTrue(first.write(manifest(docs), dateIndex));
+        transaction.commit();
+        assertEquals("{\"approved\":[5],\"loan\":[5,6],\"rejected\":[6]}",
+                Files.readString(shard, StandardCharsets.UTF_8));
+        assertEquals("{\"fineract\":[\"2026-02\",\"2026-01\"]}",
+                Files.readString(docs.resolve("search").resolve("index.json")));
+        assertTrue(Files.readString(docs.resolve("search").resolve("index.html"))
+                .contains("../assets/chat-archive-search.js"));
+        assertTrue(Files.exists(docs.resolve("assets").resolve("chat-archive-search.js")));
+
+        SearchIndex second = new SearchIndex(docs);
+        second.add("fineract", LocalDate.of(2026, 2, 6), List.of("savings"));
+        assertTrue(second.write(manifest(docs), dateIndex));
+        transaction.commit();
+        assertEquals("{\"approved\":[5],\"loan\":[5],\"savings\":[6]}",
+                Files.readString(shard, StandardCharsets.UTF_8));
+
+        SearchIndex third = new SearchIndex(docs);
+        third.remove("fineract", LocalDate.of(2026, 2, 5));
+        third.remove("fineract", LocalDate.of(2026, 2, 6));
+        assertTrue(third.write(manifest(docs), dateIndex));
+        transaction.commit();
+        assertFalse(Files.exists(shard));
+        assertFalse(new SearchIndex(docs).write(manifest(docs), dateIndex));
+    }
+
+    @Test
+    void shardsHoldTheWordsOfTheMessagesNotTheirMarkup() throws IOException {
+        Path docs = tempDir.resolve("docs");
+        DateIndex dateIndex = new DateIndex(tempDir.resolve("state"));
+        SearchIndex index = new SearchIndex(docs);
+        index.add("fineract", LocalDate.of(2026, 2, 5), List.of(MessageIndex.plainText(
+                "See <https://fineract.apache.org/docs|the docs> &amp; don't \"guess\" &lt;3",
+                id -> null)));
+        dateIndex.add("fineract", LocalDate.of(2026, 2, 5));
+
+        assertTrue(index.write(manifest(docs), dateIndex));
+        transaction.commit();
+        String shard = Files.readString(docs.resolve("search").resolve("fineract")
+                .resolve("2026-02.json"), StandardCharsets.UTF_8);
+        assertEquals("{\"apache\":[5],\"docs\":[5],\"don\":[5],\"fineract\":[5],"
+                + "\"guess\":[5],\"https\":[5],\"org\":[5],\"see\":[5],\"the\":[5]}", shard);
+        for (String markup : List.of("class", "archive", "link", "href", "amp", "lt", "gt",
+                "quot", "39")) {
+            assertFalse(shard.contains("\"" + markup + "\""), markup);
+        }
+    }
+
+    private OutputManifest manifest(Path docs) {
+        transaction = new OutputTransaction(tempDir.resolve("state"));
+        return new OutputManifest(tempDir.resolve("state"), docs, ArchiveConfig.ManifestMode.TRUST,
+                transaction, new Precompressor(ArchiveConfig.Precompression.NONE, 1, transaction));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SearchServerTest {
+
+    // 2026-02-06T12:00:00Z
+    private static final String TS = "1770379200.000100";
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void answersQueriesWithLinksToDailyPages() throws Exception {
+        Path stateDir = tempDir.resolve("state");
+        new UserStore(stateDir).save(new UserStore.UserState(1, Map.of("U1", "Alice")));
+        store(stateDir, "loan approved for <@U1>");
+        ArchiveConfig config = ArchiveConfig.fromValues(null, null, null, stateDir.toString(),
+                null, "https://example.org/archive");
+
+        try (SearchServer server = new SearchServer(config)) {
+            assertEquals(1, server.refresh());
+            server.start(0);
+
+            JsonNode body = get(server, "q=" + URLEncoder.encode("loan alice",
+                    StandardCharsets.UTF_8));
+            assertEquals(1, body.get("total").asInt());
+            JsonNode hit = body.get("results").get(0);
+            assertEquals("https://example.org/archive/daily/fineract/2026/02/06/",
+                    hit.get("url").asText());
+            assertEquals("Alice", hit.get("user").asText());
+            assertEquals("loan approved for @Alice", hit.get("snippet").asText());
+            assertEquals(0, get(server, "q=loan&from=2026-02-07").get("total").asInt());
+
+            assertEquals(0, server.refresh());
+            store(stateDir, "loan rejected, resubmit");
+            assertEquals(1, server.refresh());
+            assertEquals(0, get(server, "q=approved").get("total").asInt());
+            assertEquals(1, get(server, "q=resubmit&channel=fineract").get("total").asInt());
+
+            HttpResponse<String> invalid = send(server, "q=loan&to=yesterday");
+            assertEquals(400, invalid.statusCode());
+        }
+    }
+
+    @Test
+    void findsWordsThatOnlyThreadRepliesContain() throws Exception {
+        Path stateDir = tempDir.resolve("state");
+        store(stateDir, "which loan product?");
+        ThreadRepliesStore threadReplies = new ThreadRepliesStore(stateDir, "fineract");
+        // 2026-02-07T12:00:00Z, a day after the parent
+        SlackMessage reply = new SlackMessage("1770465600.000100", "U2", null,
+                "the microfinance one", null, TS, null, null);
+        threadReplies.put(TS, new ThreadRepliesStore.ThreadReplies(reply.ts(), List.of(reply)));
+        threadReplies.flush();
+        ArchiveConfig config = ArchiveConfig.fromValues(null, null, null, stateDir.toString(),
+                null, "https://example.org/archive");
+
+        try (SearchServer server = new SearchServer(config)) {
+            assertEquals(2, server.refresh());
+            server.start(0);
+
+            JsonNode body = get(server, "q=microfinance");
+            assertEquals(1, body.get("total").asInt());
+            assertEquals("https://example.org/archive/daily/fineract/2026/02/06/",
+                    body.get("results").get(0).get("url").asText());
+
+            // a reply also sent to the channel is found once
+            HistoryStore history = new HistoryStore(stateDir, "fineract");
+            history.put(reply);
+            history.flush();
+            assertEquals(2, server.refresh());
+            assertEquals(1, get(server, "q=microfinance").get("total").asInt());
+        }
+    }
+
+    private static void store(Path stateDir, String text) throws IOException {
+        HistoryStore history = new HistoryStore(stateDir, "fineract");
+        history.put(new SlackMessage(TS, "U1", null, text, null, null, null, null));
+        history.flush();
+    }
+
+    private JsonNode get(SearchServer server, String query) throws Exception {
+        HttpResponse<String> response = send(server, query);
+        assertEquals(200, response.statusCode());
+        return objectMapper.readTree(response.body());
+    }
+
+    private static HttpResponse<String> send(SearchServer server, String query) throws Exception {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            return client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:"
+                    + server.port() + "/search?" + query)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+        }
+    }
+}
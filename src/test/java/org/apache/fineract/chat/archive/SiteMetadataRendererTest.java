@@ -21,9 +21,9 @@ package org.apache.fineract.chat.archive;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 class SiteMetadataRendererTest {
@@ -45,13 +45,46 @@ class SiteMetadataRendererTest {
     }
 
     @Test
-    void sitemapIncludesIndexAndDailyPages() {
-        Map<String, List<LocalDate>> dates = Map.of(
-                "fineract", List.of(LocalDate.parse("2026-02-06"), LocalDate.parse("2026-02-05")));
-        String sitemap = SiteMetadataRenderer.renderSitemapXml("https://example.org/archive", dates);
-        assertTrue(sitemap.contains("<loc>https://example.org/archive/</loc>"));
-        assertTrue(sitemap.contains("<loc>https://example.org/archive/daily/fineract/</loc>"));
-        assertTrue(sitemap.contains("<loc>https://example.org/archive/daily/fineract/2026/02/06/</loc>"));
-        assertTrue(sitemap.contains("<loc>https://example.org/archive/daily/fineract/2026/02/05/</loc>"));
+    void urlSetListsPagesWithKnownLastmod() {
+        List<SiteMetadataRenderer.SitemapEntry> urls = List.of(
+                new SiteMetadataRenderer.SitemapEntry("", null),
+                new SiteMetadataRenderer.SitemapEntry(
+                        SiteMetadataRenderer.dailyPagePath("fineract", LocalDate.parse("2026-02-06")),
+                        "2026-02-07T08:00:00Z"));
+        String sitemap = SiteMetadataRenderer.renderUrlSet("https://example.org/archive", urls);
+        assertTrue(sitemap.contains("<urlset "));
+        assertTrue(sitemap.contains("<url><loc>https://example.org/archive/</loc></url>"));
+        assertTrue(sitemap.contains("<url><loc>https://example.org/archive/daily/fineract/2026/02/06/</loc>"
+                + "<lastmod>2026-02-07T08:00:00Z</lastmod></url>"));
+    }
+
+    @Test
+    void sitemapIndexListsShards() {
+        String index = SiteMetadataRenderer.renderSitemapIndex("https://example.org/archive", List.of(
+                new SiteMetadataRenderer.SitemapEntry("sitemaps/fineract/2026.xml",
+                        "2026-02-07T08:00:00Z")));
+        assertTrue(index.contains("<sitemapindex "));
+        assertTrue(index.contains("<sitemap><loc>https://example.org/archive/sitemaps/fineract/2026.xml"
+                + "</loc><lastmod>2026-02-07T08:00:00Z</lastmod></sitemap>"));
+    }
+
+    @Test
+    void atomFeedEscapesEntriesAndLinksTheirPages() throws IOException {
+        StringBuilder feed = new StringBuilder();
+        SiteMetadataRenderer.writeAtomFeed(feed, "https://example.org/archive", "feeds/fineract.xml",
+                "#fineract - Chat Archive", "daily/fineract/", List.of(
+                        new SiteMetadataRenderer.FeedEntry("fineract", "1770379200.000100", "Alice",
+                                "Alice: loans & fees", "see <b>this</b>",
+                                "daily/fineract/2026/02/06/")));
+
+        assertTrue(feed.toString().contains("<feed xmlns=\"http://www.w3.org/2005/Atom\">"));
+        assertTrue(feed.toString().contains(
+                "<link rel=\"self\" href=\"https://example.org/archive/feeds/fineract.xml\"/>"));
+        assertTrue(feed.toString().contains("<updated>2026-02-06T12:00:00Z</updated>\n  <entry>"));
+        assertTrue(feed.toString().contains(
+                "<id>https://example.org/archive/daily/fineract/2026/02/06/#1770379200.000100</id>"));
+        assertTrue(feed.toString().contains("<title>Alice: loans &amp; fees</title>"));
+        assertTrue(feed.toString().contains(
+                "<content type=\"html\">see &lt;b&gt;this&lt;/b&gt;</content>"));
     }
 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SlackApiClientTest {
+
+    @Test
+    void readPageStreamsItemsAndCursor() throws IOException {
+        String json = """
+                {"ok": true, "messages": [
+                  {"ts": "1770292800.000100", "user": "U1", "text": "one",
+                   "thread_ts": "1770292800.000100", "reply_count": 1,
+                   "latest_reply": "1770292900.000100", "blocks": [{"type": "rich_text"}]},
+                  {"ts": "1770292900.000100", "user": "U2", "text": "two", "thread_ts": "1770292800.000100"}
+                ], "has_more": true, "response_metadata": {"next_cursor": "bmV4dA=="}}
+                """;
+        List<SlackMessage> messages = new ArrayList<>();
+
+        SlackApiClient.PageStatus status = new SlackApiClient().readPage(stream(json), "messages",
+                SlackMessage.class, messages::add);
+
+        assertTrue(status.ok());
+        assertEquals("bmV4dA==", status.nextCursor());
+        assertEquals(2, messages.size());
+        assertEquals("one", messages.get(0).text());
+        assertEquals(Integer.valueOf(1), messages.get(0).replyCount());
+        assertEquals("1770292900.000100", messages.get(0).latestReply());
+        assertEquals("1770292800.000100", messages.get(1).threadTs());
+    }
+
+    @Test
+    void readPageSkipsItemsThatAreNotObjects() throws IOException {
+        String json = """
+                {"ok": true, "messages": [null, {"ts": "1770292800.000100", "text": "one"}, 7],
+                 "response_metadata": {"next_cursor": "bmV4dA=="}}
+                """;
+        List<SlackMessage> messages = new ArrayList<>();
+
+        SlackApiClient.PageStatus status = new SlackApiClient().readPage(stream(json), "messages",
+                SlackMessage.class, messages::add);
+
+        assertTrue(status.ok());
+        assertEquals("bmV4dA==", status.nextCursor());
+        assertEquals(List.of("one"), messages.stream().map(SlackMessage::text).toList());
+    }
+
+    @Test
+    void readPageRejectsAnUnclosedItemArray() throws IOException {
+        SlackApiClient.PageStatus status = new SlackApiClient().readPage(
+                stream("{\"ok\": true, \"messages\": [null"), "messages",
+                SlackMessage.class, message -> {});
+
+        assertFalse(status.ok());
+        assertEquals("invalid_response", status.error());
+    }
+
+    @Test
+    void readPageReportsSlackErrors() throws IOException {
+        List<SlackMessage> messages = new ArrayList<>();
+
+        SlackApiClient.PageStatus status = new SlackApiClient().readPage(
+                stream("{\"ok\": false, \"error\": \"channel_not_found\"}"), "messages",
+                SlackMessage.class, messages::add);
+
+        assertFalse(status.ok());
+        assertEquals("channel_not_found", status.error());
+        assertNull(status.nextCursor());
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    void streamsHistoryAcrossPagesFromConfiguredBaseUrl() throws Exception {
+        FakeSlackServer.Workspace workspace = FakeSlackServer.Workspace.of(1, 450, 300);
+        try (FakeSlackServer server = FakeSlackServer.start(workspace,
+                FakeSlackServer.Faults.none())) {
+            SlackApiClient client = new SlackApiClient(server.baseUrl(), new RateLimiter(false));
+            List<SlackMessage> messages = new ArrayList<>();
+            List<Integer> pageSizes = new ArrayList<>();
+
+            SlackApiClient.PageStatus status = client.streamChannelMessages(FakeSlackServer.TOKEN,
+                    FakeSlackServer.channelId(0), null, page -> {
+                        pageSizes.add(page.size());
+                        messages.addAll(page);
+                    });
+
+            assertTrue(status.ok());
+            assertEquals(3, pageSizes.size());
+            assertEquals(450, messages.size());
+            assertEquals(450, messages.stream().map(SlackMessage::ts).distinct().count());
+            assertEquals(3, server.calls(SlackMethod.CONVERSATIONS_HISTORY));
+            for (int index = 1; index < messages.size(); index++) {
+                assertTrue(SlackTimestamp.compare(messages.get(index - 1).ts(),
+                        messages.get(index).ts()) > 0);
+            }
+        }
+    }
+
+    @Test
+    void capsConcurrentCallsUntilTheirBodiesAreRead() throws Exception {
+        FakeSlackServer.Workspace workspace = FakeSlackServer.Workspace.of(4, 10, 10);
+        try (FakeSlackServer server = FakeSlackServer.start(workspace,
+                FakeSlackServer.Faults.none());
+                ExecutorService pool = Executors.newFixedThreadPool(4)) {
+            SlackApiClient client = new SlackApiClient(server.baseUrl(), new RateLimiter(false));
+            AtomicInteger reading = new AtomicInteger();
+            AtomicInteger mostReading = new AtomicInteger();
+            List<Future<SlackApiClient.PageStatus>> fetches = new ArrayList<>();
+
+            for (int channel = 0; channel < 4; channel++) {
+                String channelId = FakeSlackServer.channelId(channel);
+                fetches.add(pool.submit(() -> client.streamChannelMessages(FakeSlackServer.TOKEN,
+                        channelId, null, page -> {
+                            mostReading.accumulateAndGet(reading.incrementAndGet(), Math::max);
+                            try {
+                                Thread.sleep(200);
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                            }
+                            reading.decrementAndGet();
+                        })));
+            }
+            for (Future<SlackApiClient.PageStatus> fetch : fetches) {
+                assertTrue(fetch.get().ok());
+            }
+
+            assertEquals(SlackMethod.CONVERSATIONS_HISTORY.maxConcurrentCalls(),
+                    mostReading.get());
+        }
+    }
+
+    @Test
+    void retriesThrottledRequests() throws Exception {
+        try (FakeSlackServer server = FakeSlackServer.start(FakeSlackServer.Workspace.of(3, 10, 10),
+                new FakeSlackServer.Faults(2, Duration.ZERO, Duration.ZERO))) {
+            SlackApiClient client = new SlackApiClient(server.baseUrl(), new RateLimiter(false));
+
+            SlackApiClient.AuthTestResponse auth = client.authTest(FakeSlackServer.TOKEN);
+            SlackApiClient.ConversationsListResponse channels = client.listPublicChannels(
+                    FakeSlackServer.TOKEN);
+
+            assertTrue(auth.ok());
+            assertTrue(channels.ok());
+            assertEquals(3, channels.channels().size());
+            assertEquals(1, server.throttled());
+            assertEquals(1, client.rateLimiter().stats().get(SlackMethod.CONVERSATIONS_LIST)
+                    .throttled());
+        }
+    }
+
+    @Test
+    void reportsInvalidToken() throws Exception {
+        try (FakeSlackServer server = FakeSlackServer.start(FakeSlackServer.Workspace.of(1, 1, 1),
+                FakeSlackServer.Faults.none())) {
+            SlackApiClient client = new SlackApiClient(server.baseUrl(), new RateLimiter(false));
+
+            SlackApiClient.AuthTestResponse auth = client.authTest("xoxb-wrong");
+
+            assertFalse(auth.ok());
+            assertEquals("invalid_auth", auth.error());
+        }
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class SlackTimestampTest {
+
+    @Test
+    void packsSecondsAndMicros() {
+        assertEquals(1770292800_000100L, SlackTimestamp.pack("1770292800.000100"));
+        assertEquals(1_500000L, SlackTimestamp.pack("1.5"));
+        assertEquals(42_000000L, SlackTimestamp.pack("42"));
+        assertEquals(0L, SlackTimestamp.pack(null));
+    }
+
+    @Test
+    void comparesNumericallyAcrossDigitCounts() {
+        assertTrue(SlackTimestamp.compare("999999999.000000", "1000000000.000000") < 0);
+        assertTrue(SlackTimestamp.compare("1770292800.000100", "1770292800.0001") == 0);
+        assertTrue(SlackTimestamp.compare(null, "1.000000") < 0);
+    }
+
+    @Test
+    void convertsToInstantAndBack() {
+        Instant instant = SlackTimestamp.toInstant("1770292800.000100");
+
+        assertEquals(Instant.ofEpochSecond(1770292800L, 100_000L), instant);
+        assertEquals("1770292800.000100", SlackTimestamp.format(SlackTimestamp.fromInstant(instant)));
+        assertEquals("1770292800.000000", SlackTimestamp.formatEpochSecond(1770292800L));
+    }
+
+    @Test
+    void rejectsMalformedTimestamps() {
+        assertThrows(NumberFormatException.class, () -> SlackTimestamp.pack("abc"));
+        assertThrows(NumberFormatException.class, () -> SlackTimestamp.pack("."));
+        assertThrows(NumberFormatException.class, () -> SlackTimestamp.pack("-1.000000"));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// Deterministic, roughly realistic Slack traffic for benchmarks and load tests: mostly short
+// messages with some long ones, links, mentions, emoji, mrkdwn, reactions and threads.
+final class SyntheticMessages {
+
+    private static final String[] WORDS = {"the", "loan", "client", "savings", "account",
+            "build", "release", "test", "fails", "works", "on", "with", "for", "please", "review",
+            "PR", "branch", "Fineract", "API", "config", "after", "migration", "tenant", "thanks",
+            "merged", "docker", "gradle", "java", "batch", "job", "report", "I", "think", "we",
+            "should", "can", "it", "is", "not", "yet", "done", "today"};
+    private static final String[] EMOJI = {"wave", "thumbsup", "+1", "tada", "pray", "eyes",
+            "white_check_mark", "joy", "fire", "sob", "party_parrot", "heart"};
+    private static final String[] DOMAINS = {"github.com/apache/fineract/pull/",
+            "issues.apache.org/jira/browse/FINERACT-", "fineract.apache.org/docs/", "example.org/"};
+
+    private final Random random;
+    private final int userCount;
+
+    SyntheticMessages(long seed, int userCount) {
+        this.random = new Random(seed);
+        this.userCount = userCount;
+    }
+
+    static String userId(int index) {
+        return String.format(Locale.ROOT, "U%08d", index);
+    }
+
+    Map<String, String> userNames() {
+        Map<String, String> names = new LinkedHashMap<>();
+        for (int index = 0; index < userCount; index++) {
+            names.put(userId(index), "user_" + index);
+        }
+        return names;
+    }
+
+    // A day of messages in history order; thread replies follow their parent's ts.
+    List<SlackMessage> day(LocalDate date, int topLevelCount) {
+        long dayStart = date.atStartOfDay(ZoneOffset.UTC).toEpochSecond()
+                * SlackTimestamp.MICROS_PER_SECOND;
+        long step = 86_400L * SlackTimestamp.MICROS_PER_SECOND / Math.max(1, topLevelCount);
+        List<SlackMessage> messages = new ArrayList<>();
+        for (int index = 0; index < topLevelCount; index++) {
+            long parentTs = dayStart + index * step + random.nextLong(Math.max(1, step / 2));
+            messages.addAll(thread(parentTs, step / 2));
+        }
+        return messages;
+    }
+
+    // A top-level message and, one time in five, a few replies within the given window.
+    List<SlackMessage> thread(long parentTs, long replyWindow) {
+        int replies = random.nextInt(5) == 0 ? 1 + (int) (-3 * Math.log(1 - random.nextDouble())) : 0;
+        String ts = SlackTimestamp.format(parentTs);
+        List<SlackMessage> messages = new ArrayList<>();
+        List<SlackMessage> thread = new ArrayList<>();
+        long replyTs = parentTs;
+        for (int index = 0; index < replies; index++) {
+            replyTs += 1 + random.nextLong(Math.max(1, replyWindow / replies));
+            thread.add(message(SlackTimestamp.format(replyTs), ts, null, null));
+        }
+        if (replies == 0) {
+            messages.add(message(ts, null, null, null));
+        } else {
+            messages.add(message(ts, ts, replies, SlackTimestamp.format(replyTs)));
+            messages.addAll(thread);
+        }
+        return messages;
+    }
+
+    SlackMessage message(String ts, String threadTs, Integer replyCount, String latestReply) {
+        List<SlackMessage.Reaction> reactions = null;
+        if (random.nextInt(10) < 3) {
+            reactions = new ArrayList<>();
+            int count = 1 + random.nextInt(3);
+            for (int index = 0; index < count; index++) {
+                reactions.add(new SlackMessage.Reaction(EMOJI[random.nextInt(EMOJI.length)],
+                        1 + random.nextInt(6)));
+            }
+        }
+        boolean bot = random.nextInt(50) == 0;
+        return new SlackMessage(ts, bot ? null : user(), bot ? "B0000001" : null, text(),
+                bot ? "bot_message" : null, threadTs,
+                random.nextInt(20) == 0 ? new SlackMessage.Edited(ts) : null, reactions,
+                replyCount, latestReply);
+    }
+
+    String text() {
+        // Most messages are a sentence or two, one in ten is a long multi-paragraph post.
+        boolean longPost = random.nextInt(10) == 0;
+        int sentences = longPost ? 8 + random.nextInt(30) : 1 + random.nextInt(3);
+        StringBuilder text = new StringBuilder();
+        for (int index = 0; index < sentences; index++) {
+            if (index > 0) {
+                text.append(longPost && random.nextInt(4) == 0 ? "\n\n" : " ");
+            }
+            if (longPost && random.nextInt(6) == 0) {
+                text.append("\n- ").append(sentence()).append("\n- ").append(sentence());
+                continue;
+            }
+            text.append(sentence());
+        }
+        return text.toString();
+    }
+
+    private String sentence() {
+        StringBuilder sentence = new StringBuilder();
+        int words = 4 + random.nextInt(14);
+        for (int index = 0; index < words; index++) {
+            if (index > 0) {
+                sentence.append(' ');
+            }
+            int roll = random.nextInt(100);
+            if (roll < 3) {
+                sentence.append("<@").append(user()).append('>');
+            } else if (roll < 5) {
+                String domain = DOMAINS[random.nextInt(DOMAINS.length)];
+                sentence.append("<https://").append(domain).append(1000 + random.nextInt(9000));
+                if (random.nextBoolean()) {
+                    sentence.append("|link");
+                }
+                sentence.append('>');
+            } else if (roll < 7) {
+                sentence.append(':').append(EMOJI[random.nextInt(EMOJI.length)]).append(':');
+            } else if (roll < 9) {
+                char marker = "*_~".charAt(random.nextInt(3));
+                sentence.append(marker).append(WORDS[random.nextInt(WORDS.length)]).append(marker);
+            } else if (roll < 10) {
+                sentence.append("<#C0000001|general>");
+            } else {
+                sentence.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+        return sentence.append('.').toString();
+    }
+
+    // Skewed towards the first users, as in real channels.
+    private String user() {
+        double roll = random.nextDouble();
+        return userId((int) (userCount * roll * roll * roll));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class SyntheticMessagesTest {
+
+    private static final LocalDate DAY = LocalDate.parse("2026-02-06");
+
+    @Test
+    void sameSeedGeneratesSameDay() {
+        assertEquals(new SyntheticMessages(7, 50).day(DAY, 200),
+                new SyntheticMessages(7, 50).day(DAY, 200));
+    }
+
+    @Test
+    void dayHasThreadsWithinTheDate() {
+        List<SlackMessage> messages = new SyntheticMessages(7, 50).day(DAY, 500);
+
+        Set<String> parents = new HashSet<>();
+        int replies = 0;
+        for (SlackMessage message : messages) {
+            assertEquals(DAY, DirtyDateTracker.dateOf(message.ts()));
+            if (message.ts().equals(message.threadTs())) {
+                parents.add(message.ts());
+            } else if (message.threadTs() != null) {
+                assertTrue(parents.contains(message.threadTs()));
+                replies++;
+            }
+        }
+        assertTrue(messages.size() >= 500);
+        assertTrue(replies > 0);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ThreadRepliesStoreTest {
+
+    // 2026-02-05T12:00:00Z and an hour later
+    private static final String PARENT = "1770292800.000100";
+    private static final String REPLY = "1770296400.000100";
+    private static final String LATER_REPLY = "1770300000.000100";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void repliesArePersistedPerParentMonth() throws IOException {
+        ThreadRepliesStore store = new ThreadRepliesStore(tempDir, "fineract");
+        ThreadRepliesStore.ThreadReplies replies = new ThreadRepliesStore.ThreadReplies(REPLY,
+                List.of(reply(REPLY)));
+        store.put(PARENT, replies);
+        store.flush();
+
+        assertTrue(Files.exists(tempDir.resolve("replies").resolve("fineract")
+                .resolve("2026-02.json")));
+        ThreadRepliesStore reopened = new ThreadRepliesStore(tempDir, "fineract");
+        assertEquals(replies, reopened.get(PARENT));
+        assertNull(reopened.get(REPLY));
+    }
+
+    @Test
+    void storedRepliesAreCurrentUntilLatestReplyAdvances() {
+        ThreadRepliesStore.ThreadReplies stored = new ThreadRepliesStore.ThreadReplies(REPLY,
+                List.of(reply(REPLY)));
+
+        assertTrue(stored.isCurrent(parent(REPLY)));
+        assertFalse(stored.isCurrent(parent(LATER_REPLY)));
+        assertTrue(stored.isCurrent(parent(null)));
+        assertFalse(new ThreadRepliesStore.ThreadReplies(null, List.of())
+                .isCurrent(parent(REPLY)));
+    }
+
+    @Test
+    void activeThreadsAreForgottenOnceQuiet() throws IOException {
+        ThreadRepliesStore store = new ThreadRepliesStore(tempDir, "fineract");
+        assertFalse(store.tracksActiveThreads());
+        assertTrue(store.track(parent(REPLY)));
+        assertFalse(store.track(reply(REPLY)));
+        store.flush();
+
+        ThreadRepliesStore reopened = new ThreadRepliesStore(tempDir, "fineract");
+        assertTrue(reopened.tracksActiveThreads());
+        assertEquals(List.of(PARENT), reopened.activeThreads(SlackTimestamp.toInstant(REPLY)));
+        assertEquals(List.of(), reopened.activeThreads(SlackTimestamp.toInstant(LATER_REPLY)));
+    }
+
+    private static SlackMessage parent(String latestReply) {
+        return new SlackMessage(PARENT, "U1", null, "question", null, PARENT, null, null,
+                latestReply == null ? null : 1, latestReply);
+    }
+
+    private static SlackMessage reply(String ts) {
+        return new SlackMessage(ts, "U2", null, "answer", null, PARENT, null, null);
+    }
+}
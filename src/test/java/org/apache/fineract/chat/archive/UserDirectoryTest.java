@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.chat.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class UserDirectoryTest {
+
+    private static final Instant NOW = Instant.parse("2026-02-06T12:00:00Z");
+
+    @Test
+    void staleDirectoryIsRefreshedFromUsersList() {
+        RecordingClient client = new RecordingClient();
+        UserDirectory directory = new UserDirectory(UserStore.UserState.empty(), client, "token");
+
+        directory.refreshIfStale(NOW, Duration.ofHours(24));
+
+        assertEquals("Ada", directory.resolve("U1"));
+        assertEquals(List.of("users.list"), client.calls);
+        assertTrue(directory.changed());
+        assertEquals(NOW.getEpochSecond(), directory.state().listedAt());
+    }
+
+    @Test
+    void freshDirectoryOnlyFallsBackToUsersInfoForUnknownIds() {
+        RecordingClient client = new RecordingClient();
+        UserStore.UserState state = new UserStore.UserState(
+                NOW.minus(Duration.ofHours(1)).getEpochSecond(), Map.of("U1", "Ada"));
+        UserDirectory directory = new UserDirectory(state, client, "token");
+
+        directory.refreshIfStale(NOW, Duration.ofHours(24));
+        assertFalse(directory.changed());
+
+        assertEquals("Ada", directory.resolve("U1"));
+        assertEquals("Grace", directory.resolve("U2"));
+        assertEquals("Grace", directory.resolve("U2"));
+        assertEquals(List.of("users.info:U2"), client.calls);
+        assertTrue(directory.changed());
+    }
+
+    @Test
+    void concurrentCallersShareOneUsersInfoLookup() throws Exception {
+        RecordingClient client = new RecordingClient();
+        client.lookupsHeld = new CountDownLatch(1);
+        UserDirectory directory = new UserDirectory(UserStore.UserState.empty(), client, "token");
+        List<Future<String>> names = new ArrayList<>();
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(4)) {
+            for (int caller = 0; caller < 4; caller++) {
+                names.add(pool.submit(() -> directory.resolve("U2")));
+            }
+            while (client.calls.isEmpty()) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            client.lookupsHeld.countDown();
+            for (Future<String> name : names) {
+                assertEquals("Grace", name.get());
+            }
+        }
+
+        assertEquals(List.of("users.info:U2"), client.calls);
+    }
+
+    private static final class RecordingClient extends SlackApiClient {
+        private final List<String> calls = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch lookupsHeld = new CountDownLatch(0);
+
+        @Override
+        UsersListResponse listUsers(String token) {
+            calls.add("users.list");
+            return new UsersListResponse(true, null, List.of(new SlackUser("U1", "ada",
+                    new SlackProfile("Ada", "Ada Lovelace"))));
+        }
+
+        @Override
+        UserInfoResponse getUserInfo(String token, String userId) {
+            calls.add("users.info:" + userId);
+            try {
+                lookupsHeld.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new UserInfoResponse(true, null, new SlackUser(userId, "grace",
+                    new SlackProfile("Grace", "Grace Hopper")));
+        }
+    }
+}